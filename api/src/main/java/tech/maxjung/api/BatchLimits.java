@@ -0,0 +1,13 @@
+package tech.maxjung.api;
+
+/**
+ * Limits of the batch lookups of the composite and of the core services, e.g. GET /review/batch.
+ */
+public final class BatchLimits {
+
+  // max number of productIds of one batch lookup
+  public static final int MAX_PRODUCT_IDS = 100;
+
+  private BatchLimits() {
+  }
+}
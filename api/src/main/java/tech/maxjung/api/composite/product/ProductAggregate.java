@@ -2,11 +2,17 @@ package tech.maxjung.api.composite.product;
 
 import java.util.List;
 
+/**
+ * The recommendations and reviews of a product aggregate are their first page only. The continuation tokens
+ * are null if there are no more, else they get the next page from GET /recommendation/page and GET /review/page.
+ */
 public record ProductAggregate(
   int productId,
   String name,
   int weight,
   List<RecommendationSummary> recommendations,
   List<ReviewSummary> reviews,
-  ServiceAddresses serviceAddresses
+  ServiceAddresses serviceAddresses,
+  String recommendationsContinuationToken,
+  String reviewsContinuationToken
 ) {}
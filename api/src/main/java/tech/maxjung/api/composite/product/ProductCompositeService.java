@@ -5,6 +5,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 @Tag(name = "ProductComposite", description = "REST API for composite product information.")
 public interface ProductCompositeService {
@@ -15,7 +19,7 @@ public interface ProductCompositeService {
    * Sample usage: "curl $HOST:$PORT/product-composite/1".
    *
    * @param productId Id of the product
-   * @return the composite product info, if found, else null
+   * @return the composite product info, if found, else a 404 - Not Found error
    */
   @Operation(
       summary = "${api.product-composite.get-composite-product.description}",
@@ -29,7 +33,28 @@ public interface ProductCompositeService {
   @GetMapping(
     value = "/product-composite/{productId}",
     produces = "application/json")
-  ProductAggregate getProduct(@PathVariable int productId);
+  Mono<ProductAggregate> getProduct(@PathVariable int productId);
+
+  /**
+   * Retrieves the composite product information of several products at once.
+   * <p>
+   * Sample usage: "curl $HOST:$PORT/product-composite?ids=1,2,3".
+   *
+   * @param productIds Ids of the products, at most 100
+   * @return the composite product info of the products that were found, in the order of the ids
+   */
+  @Operation(
+      summary = "${api.product-composite.get-composite-products.description}",
+      description = "${api.product-composite.get-composite-products.notes}")
+  @ApiResponses(value = {
+      @ApiResponse(responseCode = "200", description = "${api.responseCodes.ok.description}"),
+      @ApiResponse(responseCode = "400", description = "${api.responseCodes.badRequest.description}"),
+      @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
+  })
+  @GetMapping(
+    value = "/product-composite",
+    produces = "application/json")
+  Flux<ProductAggregate> getProducts(@RequestParam(value = "ids", required = true) List<Integer> productIds);
 
   /**
    * Creates a new composite product.
@@ -49,7 +74,7 @@ public interface ProductCompositeService {
   @PostMapping(
     value = "/product-composite",
     consumes = "application/json")
-  void createProduct(@RequestBody ProductAggregate product);
+  Mono<Void> createProduct(@RequestBody ProductAggregate product);
 
   /**
    * Deletes a composite product.
@@ -66,5 +91,5 @@ public interface ProductCompositeService {
     @ApiResponse(responseCode = "422", description = "${api.responseCodes.unprocessableEntity.description}")
   })
   @DeleteMapping(value = "/product-composite/{productId}")
-  void deleteProduct(@PathVariable int productId);
+  Mono<Void> deleteProduct(@PathVariable int productId);
 }
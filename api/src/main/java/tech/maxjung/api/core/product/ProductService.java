@@ -1,19 +1,36 @@
 package tech.maxjung.api.core.product;
 
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
 
 public interface ProductService {
 
   /**
    * Sample usage: "curl $HOST:$PORT/product/1".
+   * Like all the core service endpoints it also speaks Smile, a binary form of JSON, e.g. with
+   * "curl -H 'Accept: application/x-jackson-smile' $HOST:$PORT/product/1", which the composite service uses by default.
    *
    * @param productId Id of the product
-   * @return the product, if found, else null
+   * @return the product, if found, else a 404 - Not Found error
    */
   @GetMapping(
     value = "/product/{productId}",
-    produces = "application/json")
-  Product getProduct(@PathVariable int productId);
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<Product> getProduct(@PathVariable int productId);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/product/batch?productIds=1,2,3".
+   *
+   * @param productIds Ids of the products, at most 100
+   * @return the products that were found, products that don't exist are left out
+   */
+  @GetMapping(
+    value = "/product/batch",
+    produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Product> getProducts(@RequestParam(value = "productIds", required = true) List<Integer> productIds);
 
   /**
    * Sample usage: curl -X POST $HOST:$PORT/product --json '{"productId":123,"name":"product 123","weight":123}'
@@ -23,9 +40,9 @@ public interface ProductService {
    */
   @PostMapping(
     value = "/product",
-    consumes = "application/json",
-    produces = "application/json")
-  Product createProduct(@RequestBody Product product);
+    consumes = {"application/json", "application/x-jackson-smile"},
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<Product> createProduct(@RequestBody Product product);
 
   /**
    * Sample usage: "curl -X DELETE $HOST:$PORT/product/1".
@@ -33,5 +50,5 @@ public interface ProductService {
    * @param productId Id of the product
    */
   @DeleteMapping(value = "/product/{productId}")
-  void deleteProduct(@PathVariable int productId);
+  Mono<Void> deleteProduct(@PathVariable int productId);
 }
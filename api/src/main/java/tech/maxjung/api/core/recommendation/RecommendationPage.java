@@ -0,0 +1,14 @@
+package tech.maxjung.api.core.recommendation;
+
+import java.util.List;
+
+/**
+ * A page of the recommendations of a product, ordered by recommendationId.
+ *
+ * @param recommendations   the recommendations on this page
+ * @param continuationToken opaque token to request the next page with, null on the last page
+ */
+public record RecommendationPage(
+        List<Recommendation> recommendations,
+        String continuationToken
+) {}
@@ -1,6 +1,8 @@
 package tech.maxjung.api.core.recommendation;
 
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -8,14 +10,50 @@ public interface RecommendationService {
 
 	/**
 	 * Sample usage: "curl $HOST:$PORT/recommendation?productId=1".
+	 * Use "curl -H 'Accept: application/x-ndjson' $HOST:$PORT/recommendation?productId=1" to get the recommendations
+	 * streamed as newline delimited JSON, one recommendation per line, instead of a single JSON array.
+	 * With 'Accept: application/stream+x-jackson-smile' they are streamed as a sequence of Smile values.
 	 *
 	 * @param productId Id of the product to look up recommendations for
 	 * @return the recommendations of the product
 	 */
 	@GetMapping(
 		value = "/recommendation",
-		produces = "application/json")
-	List<Recommendation> getRecommendations(@RequestParam(value = "productId", required = true) int productId);
+		produces = {"application/json", "application/x-ndjson", "application/x-jackson-smile", "application/stream+x-jackson-smile"})
+	Flux<Recommendation> getRecommendations(@RequestParam(value = "productId", required = true) int productId);
+
+	/**
+	 * Sample usage: "curl $HOST:$PORT/recommendation/batch?productIds=1,2,3&pageSize=20".
+	 *
+	 * @param productIds Ids of the products for which to get the recommendations, at most 100
+	 * @param pageSize   max number of recommendations on the first page of a product
+	 * @return the first pageSize + 1 recommendations of each of the products, ordered by productId and recommendationId.
+	 *         The one more than a page tells if a product has more, which are paged in with GET /recommendation/page.
+	 */
+	@GetMapping(
+		value = "/recommendation/batch",
+		produces = {"application/json", "application/x-jackson-smile"})
+	Flux<Recommendation> getRecommendationsOfProducts(
+		@RequestParam(value = "productIds", required = true) List<Integer> productIds,
+		@RequestParam(value = "pageSize", required = false, defaultValue = "20") int pageSize);
+
+	/**
+	 * Sample usage: "curl $HOST:$PORT/recommendation/page?productId=1&pageSize=20".
+	 * The following page is requested with the continuation token of the previous one:
+	 * "curl $HOST:$PORT/recommendation/page?productId=1&pageSize=20&continuationToken=$TOKEN".
+	 *
+	 * @param productId         Id of the product to look up recommendations for
+	 * @param continuationToken token of the previous page, omitted for the first page
+	 * @param pageSize          max number of recommendations on the page
+	 * @return the page of recommendations, ordered by recommendationId
+	 */
+	@GetMapping(
+		value = "/recommendation/page",
+		produces = {"application/json", "application/x-jackson-smile"})
+	Mono<RecommendationPage> getRecommendationPage(
+		@RequestParam(value = "productId", required = true) int productId,
+		@RequestParam(value = "continuationToken", required = false) String continuationToken,
+		@RequestParam(value = "pageSize", required = false, defaultValue = "20") int pageSize);
 
 	/**
 	 * Sample usage: curl -X POST $HOST:$PORT/recommendation \
@@ -26,9 +64,26 @@ public interface RecommendationService {
 	 */
 	@PostMapping(
 		value = "/recommendation",
-		consumes = "application/json",
-		produces = "application/json")
-	Recommendation createRecommendation(@RequestBody Recommendation recommendation);
+		consumes = {"application/json", "application/x-jackson-smile"},
+		produces = {"application/json", "application/x-jackson-smile"})
+	Mono<Recommendation> createRecommendation(@RequestBody Recommendation recommendation);
+
+	/**
+	 * Sample usage: curl -X POST $HOST:$PORT/recommendation/batch \
+	 * --json '[{"productId":123,"recommendationId":1,"author":"me","rate":5,"content":"yada, yada, yada"},
+	 * {"productId":123,"recommendationId":2,"author":"you","rate":1,"content":"bla, bla"}]'
+	 * <p>
+	 * The recommendations are stored with a single insert, in the order given. If one of them can't be stored,
+	 * e.g. because of a duplicate key, the ones before it are stored and the rest are not.
+	 *
+	 * @param recommendations A JSON array of the new recommendations
+	 * @return A JSON representation of the newly created recommendations
+	 */
+	@PostMapping(
+		value = "/recommendation/batch",
+		consumes = {"application/json", "application/x-jackson-smile"},
+		produces = {"application/json", "application/x-jackson-smile"})
+	Flux<Recommendation> createRecommendations(@RequestBody List<Recommendation> recommendations);
 
 
 	/**
@@ -37,5 +92,5 @@ public interface RecommendationService {
 	 * @param productId Id of the product to delete recommendations for
 	 */
 	@DeleteMapping(value = "/recommendation")
-	void deleteRecommendations(@RequestParam(value = "productId", required = true) int productId);
+	Mono<Void> deleteRecommendations(@RequestParam(value = "productId", required = true) int productId);
 }
@@ -0,0 +1,14 @@
+package tech.maxjung.api.core.review;
+
+import java.util.List;
+
+/**
+ * A page of the reviews of a product, ordered by reviewId.
+ *
+ * @param reviews           the reviews on this page
+ * @param continuationToken opaque token to request the next page with, null on the last page
+ */
+public record ReviewPage(
+        List<Review> reviews,
+        String continuationToken
+) {}
@@ -1,6 +1,8 @@
 package tech.maxjung.api.core.review;
 
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -8,14 +10,50 @@ public interface ReviewService {
 
   /**
    * Sample usage: "curl $HOST:$PORT/review?productId=1".
+   * Use "curl -H 'Accept: application/x-ndjson' $HOST:$PORT/review?productId=1" to get the reviews streamed
+   * as newline delimited JSON, one review per line, instead of a single JSON array.
+   * With 'Accept: application/stream+x-jackson-smile' they are streamed as a sequence of Smile values.
    *
    * @param productId Id of the product for which to get the reviews
    * @return the reviews of the product
    */
   @GetMapping(
     value = "/review",
-    produces = "application/json")
-  List<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
+    produces = {"application/json", "application/x-ndjson", "application/x-jackson-smile", "application/stream+x-jackson-smile"})
+  Flux<Review> getReviews(@RequestParam(value = "productId", required = true) int productId);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/review/batch?productIds=1,2,3&pageSize=20".
+   *
+   * @param productIds Ids of the products for which to get the reviews, at most 100
+   * @param pageSize   max number of reviews on the first page of a product
+   * @return the first pageSize + 1 reviews of each of the products, ordered by productId and reviewId.
+   *         The one more than a page tells if a product has more, which are paged in with GET /review/page.
+   */
+  @GetMapping(
+    value = "/review/batch",
+    produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Review> getReviewsOfProducts(
+    @RequestParam(value = "productIds", required = true) List<Integer> productIds,
+    @RequestParam(value = "pageSize", required = false, defaultValue = "20") int pageSize);
+
+  /**
+   * Sample usage: "curl $HOST:$PORT/review/page?productId=1&pageSize=20".
+   * The following page is requested with the continuation token of the previous one:
+   * "curl $HOST:$PORT/review/page?productId=1&pageSize=20&continuationToken=$TOKEN".
+   *
+   * @param productId         Id of the product for which to get the reviews
+   * @param continuationToken token of the previous page, omitted for the first page
+   * @param pageSize          max number of reviews on the page
+   * @return the page of reviews, ordered by reviewId
+   */
+  @GetMapping(
+    value = "/review/page",
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<ReviewPage> getReviewPage(
+    @RequestParam(value = "productId", required = true) int productId,
+    @RequestParam(value = "continuationToken", required = false) String continuationToken,
+    @RequestParam(value = "pageSize", required = false, defaultValue = "20") int pageSize);
 
   /**
    * Sample usage: curl -X POST $HOST:$PORT/review \
@@ -26,9 +64,25 @@ public interface ReviewService {
    */
   @PostMapping(
     value = "/review",
-    consumes = "application/json",
-    produces = "application/json")
-  Review createReview(@RequestBody Review review);
+    consumes = {"application/json", "application/x-jackson-smile"},
+    produces = {"application/json", "application/x-jackson-smile"})
+  Mono<Review> createReview(@RequestBody Review review);
+
+  /**
+   * Sample usage: curl -X POST $HOST:$PORT/review/batch \
+   * --json '[{"productId":123,"reviewId":1,"author":"me","subject":"like it!","content":"lore ipsum"},
+   * {"productId":123,"reviewId":2,"author":"you","subject":"don't","content":"dolor sit amet"}]'
+   * <p>
+   * The reviews are stored in one transaction, i.e. if one of them can't be stored none of them is.
+   *
+   * @param reviews A JSON array of the new reviews
+   * @return A JSON representation of the newly created reviews
+   */
+  @PostMapping(
+    value = "/review/batch",
+    consumes = {"application/json", "application/x-jackson-smile"},
+    produces = {"application/json", "application/x-jackson-smile"})
+  Flux<Review> createReviews(@RequestBody List<Review> reviews);
 
 
   /**
@@ -37,5 +91,5 @@ public interface ReviewService {
    * @param productId Id of the product to delete recommendations for
    */
   @DeleteMapping(value = "/review")
-  void deleteReviews(@RequestParam(value = "productId", required = true) int productId);
+  Mono<Void> deleteReviews(@RequestParam(value = "productId", required = true) int productId);
 }
@@ -0,0 +1,58 @@
+plugins {
+    java
+    id("io.spring.dependency-management") version "1.1.4"
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+val springBootVersion: String by extra("3.2.5")
+val mapstructVersion = "1.5.5.Final"
+
+group = "tech.maxjung.microservices"
+version = "0.0.1-SNAPSHOT"
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencyManagement {
+    imports {
+        mavenBom("org.springframework.boot:spring-boot-dependencies:${springBootVersion}")
+    }
+}
+
+// the services don't build a plain jar file, so the benchmarks use their classes directories instead
+configurations.matching { it.name == "jmhCompileClasspath" || it.name == "jmhRuntimeClasspath" }.configureEach {
+    attributes {
+        attribute(LibraryElements.LIBRARY_ELEMENTS_ATTRIBUTE, objects.named(LibraryElements.CLASSES))
+    }
+}
+
+dependencies {
+    jmhImplementation(project(":api"))
+    jmhImplementation(project(":util"))
+    jmhImplementation(project(":services:product-service"))
+    jmhImplementation(project(":services:recommendation-service"))
+    jmhImplementation(project(":services:review-service"))
+    jmhImplementation(project(":services:product-comp-service"))
+
+    jmhImplementation("org.mapstruct:mapstruct:$mapstructVersion")
+    jmhImplementation("com.fasterxml.jackson.core:jackson-databind")
+    jmhImplementation("org.springframework:spring-web")
+}
+
+// ./gradlew :benchmarks:jmh, or e.g. ./gradlew :benchmarks:jmh -Pbenchmarks=ProductAggregateJson to run some of them
+// the results are written to build/results/jmh/results.json
+jmh {
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    if (project.hasProperty("benchmarks")) {
+        includes.add(project.property("benchmarks").toString())
+    }
+}
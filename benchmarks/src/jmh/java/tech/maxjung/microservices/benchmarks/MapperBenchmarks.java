@@ -0,0 +1,96 @@
+package tech.maxjung.microservices.benchmarks;
+
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.maxjung.api.core.product.Product;
+import tech.maxjung.api.core.recommendation.Recommendation;
+import tech.maxjung.api.core.review.Review;
+import tech.maxjung.microservices.core.product.persistence.ProductEntity;
+import tech.maxjung.microservices.core.product.services.ProductMapper;
+import tech.maxjung.microservices.core.recommendation.persistence.RecommendationEntity;
+import tech.maxjung.microservices.core.recommendation.services.RecommendationMapper;
+import tech.maxjung.microservices.core.review.persistence.ReviewEntity;
+import tech.maxjung.microservices.core.review.services.ReviewMapper;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * The mappers between the entities and the API records of the core services, the list mappers with lists of
+ * the size of a page up to all the reviews or recommendations of a very popular product.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MapperBenchmarks {
+
+	private static final String SERVICE_ADDRESS = "review-service/172.17.0.3:8080";
+
+	@State(Scope.Benchmark)
+	public static class Products {
+
+		ProductMapper mapper;
+		ProductEntity entity;
+		Product api;
+
+		@Setup
+		public void setUp() {
+			mapper = Mappers.getMapper(ProductMapper.class);
+			entity = new ProductEntity(1, "Product 1", 42);
+			api = new Product(1, "Product 1", 42, SERVICE_ADDRESS);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Entities {
+
+		@Param({"10", "1000", "100000"})
+		int size;
+
+		RecommendationMapper recommendationMapper;
+		ReviewMapper reviewMapper;
+		List<RecommendationEntity> recommendations;
+		List<ReviewEntity> reviews;
+
+		@Setup
+		public void setUp() {
+			recommendationMapper = Mappers.getMapper(RecommendationMapper.class);
+			reviewMapper = Mappers.getMapper(ReviewMapper.class);
+			recommendations = IntStream.rangeClosed(1, size)
+				.mapToObj(id -> new RecommendationEntity(1, id, "Author " + id, id % 5, "Content " + id))
+				.toList();
+			reviews = IntStream.rangeClosed(1, size)
+				.mapToObj(id -> new ReviewEntity(1, id, "Author " + id, "Subject " + id, "Content " + id))
+				.toList();
+		}
+	}
+
+	@Benchmark
+	public Product productEntityToApi(Products products) {
+		return products.mapper.entityToApi(products.entity, SERVICE_ADDRESS);
+	}
+
+	@Benchmark
+	public ProductEntity productApiToEntity(Products products) {
+		return products.mapper.apiToEntity(products.api);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<Recommendation> recommendationEntitiesToApis(Entities entities) {
+		return entities.recommendationMapper.entitiesToApis(entities.recommendations, SERVICE_ADDRESS);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<Review> reviewEntitiesToApis(Entities entities) {
+		return entities.reviewMapper.entitiesToApis(entities.reviews, SERVICE_ADDRESS);
+	}
+}
@@ -0,0 +1,74 @@
+package tech.maxjung.microservices.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import tech.maxjung.api.composite.product.ProductAggregate;
+import tech.maxjung.api.composite.product.RecommendationSummary;
+import tech.maxjung.api.composite.product.ReviewSummary;
+import tech.maxjung.api.composite.product.ServiceAddresses;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Jackson serialization and deserialization of a product aggregate, i.e. of the response body of the composite
+ * service, with no reviews up to a product with 100k reviews. The object mapper is built like the one of
+ * Spring's default JSON codecs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductAggregateJsonBenchmarks {
+
+	@Param({"0", "10", "1000", "100000"})
+	int reviews;
+
+	private ObjectMapper mapper;
+	private ProductAggregate productAggregate;
+	private byte[] json;
+
+	@Setup
+	public void setUp() throws IOException {
+		mapper = Jackson2ObjectMapperBuilder.json().build();
+		productAggregate = new ProductAggregate(
+			1,
+			"Product 1",
+			42,
+			IntStream.rangeClosed(1, 10)
+				.mapToObj(id -> new RecommendationSummary(id, "Author " + id, id % 5, "Content of recommendation " + id))
+				.toList(),
+			reviewSummaries(reviews),
+			new ServiceAddresses("composite/172.17.0.2:8080", "product/172.17.0.3:8080",
+				"review/172.17.0.4:8080", "recommendation/172.17.0.5:8080"),
+			null,
+			null);
+		json = mapper.writeValueAsBytes(productAggregate);
+	}
+
+	private static List<ReviewSummary> reviewSummaries(int count) {
+		return IntStream.rangeClosed(1, count)
+			.mapToObj(id -> new ReviewSummary(id, "Author " + id, "Subject " + id,
+				"Content of review " + id + ", lorem ipsum dolor sit amet, consectetur adipiscing elit"))
+			.toList();
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		return mapper.writeValueAsBytes(productAggregate);
+	}
+
+	@Benchmark
+	public ProductAggregate deserialize() throws IOException {
+		return mapper.readValue(json, ProductAggregate.class);
+	}
+}
@@ -0,0 +1,61 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.maxjung.api.composite.product.ProductAggregate;
+import tech.maxjung.api.composite.product.ReviewSummary;
+import tech.maxjung.api.core.product.Product;
+import tech.maxjung.api.core.recommendation.Recommendation;
+import tech.maxjung.api.core.recommendation.RecommendationPage;
+import tech.maxjung.api.core.review.Review;
+import tech.maxjung.api.core.review.ReviewPage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * The assembly of a product aggregate from the answers of the core services, in the package of
+ * ProductCompositeServiceImpl to reach its package-private methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductAggregateAssemblyBenchmarks {
+
+	private static final String SERVICE_ADDRESS = "composite/172.17.0.2:8080";
+
+	@Param({"0", "10", "1000", "100000"})
+	int reviews;
+
+	private Product product;
+	private RecommendationPage recommendationPage;
+	private ReviewPage reviewPage;
+
+	@Setup
+	public void setUp() {
+		product = new Product(1, "Product 1", 42, "product/172.17.0.3:8080");
+		recommendationPage = new RecommendationPage(IntStream.rangeClosed(1, 10)
+			.mapToObj(id -> new Recommendation(1, id, "Author " + id, id % 5, "Content " + id, "recommendation/172.17.0.5:8080"))
+			.toList(), null);
+		reviewPage = new ReviewPage(IntStream.rangeClosed(1, reviews)
+			.mapToObj(id -> new Review(1, id, "Author " + id, "Subject " + id, "Content " + id, "review/172.17.0.4:8080"))
+			.toList(), null);
+	}
+
+	@Benchmark
+	public ProductAggregate createProductAggregate() {
+		return ProductCompositeServiceImpl.createProductAggregate(product, recommendationPage, reviewPage, SERVICE_ADDRESS);
+	}
+
+	@Benchmark
+	public List<ReviewSummary> convertReviews() {
+		return ProductCompositeServiceImpl.convertReviews(reviewPage.reviews());
+	}
+}
@@ -0,0 +1,53 @@
+plugins {
+    java
+    application
+    id("io.spring.dependency-management") version "1.1.4"
+}
+
+val springBootVersion: String by extra("3.2.5")
+
+group = "tech.maxjung.microservices"
+version = "0.0.1-SNAPSHOT"
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_17
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencyManagement {
+    imports {
+        mavenBom("org.springframework.boot:spring-boot-dependencies:${springBootVersion}")
+    }
+}
+
+dependencies {
+    implementation("org.hdrhistogram:HdrHistogram:2.2.2")
+    implementation("de.flapdoodle.embed:de.flapdoodle.embed.mongo:4.16.1")
+    implementation("com.fasterxml.jackson.core:jackson-databind")
+    implementation("org.slf4j:slf4j-simple")
+
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+application {
+    mainClass.set("tech.maxjung.microservices.loadtest.LoadTest")
+}
+
+// ./gradlew :load-test:run --args="--rate=200 --duration=60s", see load-test/README.md
+tasks.named<JavaExec>("run") {
+    dependsOn(
+        ":services:product-service:bootJar",
+        ":services:recommendation-service:bootJar",
+        ":services:review-service:bootJar",
+        ":services:product-comp-service:bootJar"
+    )
+    workingDir = rootProject.projectDir
+}
+
+tasks.withType<Test> {
+    useJUnitPlatform()
+}
@@ -0,0 +1,69 @@
+package tech.maxjung.microservices.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and errors of the requests to one endpoint, recorded concurrently by the response callbacks.
+ * Failed requests are recorded with their latency too, so slow failures show up in the percentiles.
+ */
+final class EndpointStats {
+
+	private final String name;
+
+	// in microseconds, auto-resizing and with 3 significant digits
+	private final Histogram latencies = new ConcurrentHistogram(3);
+
+	private final LongAdder requests = new LongAdder();
+
+	// e.g. "500", "timeout" or "rejected"
+	private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+	EndpointStats(String name) {
+		this.name = name;
+	}
+
+	String name() {
+		return name;
+	}
+
+	void recordSuccess(long latencyMicros) {
+		requests.increment();
+		latencies.recordValue(latencyMicros);
+	}
+
+	void recordError(long latencyMicros, String cause) {
+		requests.increment();
+		latencies.recordValue(latencyMicros);
+		errors.computeIfAbsent(cause, c -> new LongAdder()).increment();
+	}
+
+	// a request that wasn't even sent, as too many were in flight already, has no latency
+	void recordRejected() {
+		requests.increment();
+		errors.computeIfAbsent("rejected", c -> new LongAdder()).increment();
+	}
+
+	Histogram latencies() {
+		return latencies;
+	}
+
+	long requests() {
+		return requests.sum();
+	}
+
+	long errors() {
+		return errors.values().stream().mapToLong(LongAdder::sum).sum();
+	}
+
+	Map<String, Long> errorsByCause() {
+		Map<String, Long> byCause = new TreeMap<>();
+		errors.forEach((cause, count) -> byCause.put(cause, count.sum()));
+		return byCause;
+	}
+}
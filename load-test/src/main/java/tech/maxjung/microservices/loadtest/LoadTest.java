@@ -0,0 +1,77 @@
+package tech.maxjung.microservices.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Runs the services and their database stand-ins locally, creates the products, sends the warm-up traffic and then
+ * the measured traffic, and writes the results to [output]/[git commit], so runs of different commits can be compared.
+ * See load-test/README.md for the arguments.
+ */
+public class LoadTest {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LoadTest.class);
+
+	public static void main(String[] args) throws Exception {
+		LoadTestConfig config = LoadTestConfig.parse(args);
+		Path rootDir = Path.of("").toAbsolutePath();
+		String commit = gitCommit();
+		Path resultDir = config.output().resolve(commit);
+		LOG.info("Load test of commit {} with {}", commit, config);
+
+		try (ServiceLauncher services = ServiceLauncher.start(rootDir, resultDir.resolve("logs"))) {
+			TrafficGenerator traffic = new TrafficGenerator(config, URI.create("http://localhost:7000"));
+			traffic.seed();
+
+			// warms up the JIT, connection pools and caches, its results are dropped
+			if (!config.warmup().isZero()) {
+				LOG.info("Warming up for {}", config.warmup());
+				traffic.run(config.warmup());
+			}
+
+			LOG.info("Measuring for {}", config.duration());
+			Map<String, EndpointStats> stats = traffic.run(config.duration());
+
+			new ResultWriter().write(resultDir, commit, config, config.duration(), stats);
+			stats.values().stream().filter(s -> s.requests() > 0).forEach(s -> LOG.info(
+				"{}: {} requests, {} errors, p50 {} ms, p99 {} ms, max {} ms",
+				s.name(), s.requests(), s.errors(),
+				s.latencies().getValueAtPercentile(50) / 1000.0,
+				s.latencies().getValueAtPercentile(99) / 1000.0,
+				s.latencies().getMaxValue() / 1000.0));
+			LOG.info("Results written to {}", resultDir.toAbsolutePath());
+		}
+	}
+
+	// the short hash of HEAD, with a -dirty suffix if there are uncommitted changes
+	private static String gitCommit() {
+		try {
+			String commit = git("rev-parse", "--short", "HEAD");
+			return commit.isEmpty() ? "unknown" : git("status", "--porcelain").isEmpty() ? commit : commit + "-dirty";
+		} catch (IOException ex) {
+			return "unknown";
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return "unknown";
+		}
+	}
+
+	private static String git(String... args) throws IOException, InterruptedException {
+		String[] command = new String[args.length + 1];
+		command[0] = "git";
+		System.arraycopy(args, 0, command, 1, args.length);
+		Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+		try (InputStream in = process.getInputStream()) {
+			String output = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+			return process.waitFor() == 0 ? output : "";
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package tech.maxjung.microservices.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Settings of a load test run, given as {@code --name=value} arguments.
+ *
+ * @param rate              mean number of requests started per second, independent of the response times (open model)
+ * @param duration          how long the traffic is measured
+ * @param warmup            how long traffic is sent before it is measured
+ * @param readRatio         share of the requests that read a single product aggregate
+ * @param batchReadRatio    share of the requests that read the aggregates of several products at once,
+ *                          the rest creates new products
+ * @param products          number of products created before the traffic starts, the reads pick one of them
+ * @param skew              exponent of the Zipf distribution of the read products, 0 reads all products equally
+ *                          often, the higher the more the reads concentrate on a few hot products
+ * @param reviewsPerProduct number of reviews and of recommendations of every created product
+ * @param seed              seed of the random arrivals, product picks and request mix, for reproducible runs
+ * @param output            directory the results are written to, in a subdirectory named after the git commit
+ */
+record LoadTestConfig(
+	double rate,
+	Duration duration,
+	Duration warmup,
+	double readRatio,
+	double batchReadRatio,
+	int products,
+	double skew,
+	int reviewsPerProduct,
+	long seed,
+	Path output
+) {
+
+	private static final Map<String, String> DEFAULTS = Map.of(
+		"rate", "100",
+		"duration", "60s",
+		"warmup", "10s",
+		"read-ratio", "0.9",
+		"batch-read-ratio", "0.0",
+		"products", "1000",
+		"skew", "1.0",
+		"reviews-per-product", "5",
+		"seed", "42",
+		"output", "load-test/build/results");
+
+	static LoadTestConfig parse(String... args) {
+		Map<String, String> values = new HashMap<>(DEFAULTS);
+		for (String arg : args) {
+			int separator = arg.indexOf('=');
+			String name = separator < 0 ? "" : arg.substring(0, separator).replaceFirst("^--", "");
+			if (!arg.startsWith("--") || !DEFAULTS.containsKey(name)) {
+				throw new IllegalArgumentException("Unknown argument: " + arg + ", expected --name=value with a name of " + DEFAULTS.keySet());
+			}
+			values.put(name, arg.substring(separator + 1));
+		}
+
+		LoadTestConfig config = new LoadTestConfig(
+			Double.parseDouble(values.get("rate")),
+			parseDuration(values.get("duration")),
+			parseDuration(values.get("warmup")),
+			Double.parseDouble(values.get("read-ratio")),
+			Double.parseDouble(values.get("batch-read-ratio")),
+			Integer.parseInt(values.get("products")),
+			Double.parseDouble(values.get("skew")),
+			Integer.parseInt(values.get("reviews-per-product")),
+			Long.parseLong(values.get("seed")),
+			Path.of(values.get("output")));
+
+		if (config.rate <= 0 || config.products < 1 || config.skew < 0
+			|| config.readRatio < 0 || config.batchReadRatio < 0 || config.readRatio + config.batchReadRatio > 1) {
+			throw new IllegalArgumentException("Invalid settings: " + config);
+		}
+		return config;
+	}
+
+	// e.g. 500ms, 30s or 5m
+	private static Duration parseDuration(String value) {
+		try {
+			if (value.endsWith("ms")) {
+				return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+			} else if (value.endsWith("s")) {
+				return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+			} else if (value.endsWith("m")) {
+				return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+			}
+		} catch (NumberFormatException ex) {
+			// reported below
+		}
+		throw new IllegalArgumentException("Invalid duration: " + value + ", expected e.g. 500ms, 30s or 5m");
+	}
+
+	// the settings as written to the results, in a fixed order so results of different runs can be diffed
+	Map<String, Object> toMap() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("rate", rate);
+		map.put("durationSeconds", duration.toMillis() / 1000.0);
+		map.put("warmupSeconds", warmup.toMillis() / 1000.0);
+		map.put("readRatio", readRatio);
+		map.put("batchReadRatio", batchReadRatio);
+		map.put("writeRatio", 1 - readRatio - batchReadRatio);
+		map.put("products", products);
+		map.put("skew", skew);
+		map.put("reviewsPerProduct", reviewsPerProduct);
+		map.put("seed", seed);
+		return map;
+	}
+}
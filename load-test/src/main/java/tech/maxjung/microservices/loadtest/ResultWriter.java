@@ -0,0 +1,71 @@
+package tech.maxjung.microservices.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Writes the results of a run to summary.json, with the latency percentiles in milliseconds, and the full latency
+ * distribution of every endpoint to [endpoint].hgrm, which e.g. the HdrHistogram plotter can draw.
+ */
+final class ResultWriter {
+
+	private static final double MICROS_PER_MILLI = 1000.0;
+
+	private final ObjectMapper mapper = new ObjectMapper()
+		.enable(SerializationFeature.INDENT_OUTPUT);
+
+	void write(Path dir, String commit, LoadTestConfig config, Duration measured, Map<String, EndpointStats> stats) throws IOException {
+		Files.createDirectories(dir);
+
+		Map<String, Object> endpoints = new LinkedHashMap<>();
+		for (EndpointStats endpoint : stats.values()) {
+			if (endpoint.requests() == 0) {
+				continue;
+			}
+			endpoints.put(endpoint.name(), summary(endpoint, measured));
+
+			try (PrintStream out = new PrintStream(Files.newOutputStream(dir.resolve(fileName(endpoint.name()) + ".hgrm")))) {
+				endpoint.latencies().outputPercentileDistribution(out, MICROS_PER_MILLI);
+			}
+		}
+
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("commit", commit);
+		summary.put("config", config.toMap());
+		summary.put("endpoints", endpoints);
+		mapper.writeValue(dir.resolve("summary.json").toFile(), summary);
+	}
+
+	private static Map<String, Object> summary(EndpointStats endpoint, Duration measured) {
+		Histogram latencies = endpoint.latencies();
+		Map<String, Object> latencyMillis = new LinkedHashMap<>();
+		latencyMillis.put("mean", latencies.getMean() / MICROS_PER_MILLI);
+		latencyMillis.put("p50", latencies.getValueAtPercentile(50) / MICROS_PER_MILLI);
+		latencyMillis.put("p90", latencies.getValueAtPercentile(90) / MICROS_PER_MILLI);
+		latencyMillis.put("p99", latencies.getValueAtPercentile(99) / MICROS_PER_MILLI);
+		latencyMillis.put("p99.9", latencies.getValueAtPercentile(99.9) / MICROS_PER_MILLI);
+		latencyMillis.put("max", latencies.getMaxValue() / MICROS_PER_MILLI);
+
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("requests", endpoint.requests());
+		summary.put("errors", endpoint.errors());
+		summary.put("errorsByCause", endpoint.errorsByCause());
+		summary.put("throughputPerSecond", (endpoint.requests() - endpoint.errors()) / (measured.toMillis() / 1000.0));
+		summary.put("latencyMillis", latencyMillis);
+		return summary;
+	}
+
+	// e.g. "GET /product-composite/{productId}" -> "get-product-composite-productid"
+	static String fileName(String endpoint) {
+		return endpoint.toLowerCase().replaceAll("[^a-z0-9]+", "-").replaceAll("(^-|-$)", "");
+	}
+}
@@ -0,0 +1,145 @@
+package tech.maxjung.microservices.loadtest;
+
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Starts the four services from their boot jars, with the loadtest profile, and the stand-ins of their databases:
+ * an embedded MongoDB for the product and recommendation services, and the in-memory H2 database of the
+ * loadtest profile, in MySQL mode, for the review service. Nothing runs in Docker.
+ */
+final class ServiceLauncher implements AutoCloseable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ServiceLauncher.class);
+
+	private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+	private record ServiceDefinition(String name, int port, boolean usesMongo) {
+	}
+
+	// the composite service last, its health depends on the core services
+	private static final List<ServiceDefinition> SERVICES = List.of(
+		new ServiceDefinition("product-service", 7001, true),
+		new ServiceDefinition("recommendation-service", 7002, true),
+		new ServiceDefinition("review-service", 7003, false),
+		new ServiceDefinition("product-comp-service", 7000, false));
+
+	private final TransitionWalker.ReachedState<RunningMongodProcess> mongo;
+	private final List<Process> processes = new ArrayList<>();
+	private final HttpClient client = HttpClient.newHttpClient();
+
+	private ServiceLauncher(TransitionWalker.ReachedState<RunningMongodProcess> mongo) {
+		this.mongo = mongo;
+	}
+
+	/**
+	 * @param rootDir the root of the repository, the boot jars are looked up in services/[name]/build/libs
+	 * @param logDir  the output of each service goes to [name].log in here
+	 */
+	static ServiceLauncher start(Path rootDir, Path logDir) throws IOException, InterruptedException {
+		// the first start downloads the MongoDB binaries to ~/.embedmongo, later starts work offline
+		LOG.info("Starting MongoDB");
+		ServiceLauncher launcher = new ServiceLauncher(Mongod.instance().start(Version.Main.V7_0));
+		try {
+			int mongoPort = launcher.mongo.current().getServerAddress().getPort();
+			Files.createDirectories(logDir);
+			for (ServiceDefinition service : SERVICES) {
+				launcher.startService(service, rootDir, logDir, mongoPort);
+			}
+			return launcher;
+		} catch (IOException | InterruptedException | RuntimeException ex) {
+			launcher.close();
+			throw ex;
+		}
+	}
+
+	private void startService(ServiceDefinition service, Path rootDir, Path logDir, int mongoPort) throws IOException, InterruptedException {
+		List<String> command = new ArrayList<>(List.of(
+			Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+			"-jar", bootJar(rootDir.resolve("services").resolve(service.name())).toString(),
+			"--spring.profiles.active=loadtest"));
+		if (service.usesMongo()) {
+			command.add("--spring.data.mongodb.host=localhost");
+			command.add("--spring.data.mongodb.port=" + mongoPort);
+		}
+
+		Path log = logDir.resolve(service.name() + ".log");
+		LOG.info("Starting {}, logging to {}", service.name(), log);
+		Process process = new ProcessBuilder(command)
+			.redirectErrorStream(true)
+			.redirectOutput(log.toFile())
+			.start();
+		processes.add(process);
+		awaitHealthy(service, process, log);
+	}
+
+	private static Path bootJar(Path serviceDir) throws IOException {
+		Path libs = serviceDir.resolve("build").resolve("libs");
+		try (Stream<Path> jars = Files.list(libs)) {
+			return jars.filter(jar -> jar.toString().endsWith(".jar"))
+				.findFirst()
+				.orElseThrow(() -> new IllegalStateException("No boot jar in " + libs + ", run ./gradlew build first"));
+		} catch (NoSuchFileException ex) {
+			throw new IllegalStateException("No boot jar in " + libs + ", run ./gradlew build first");
+		}
+	}
+
+	private void awaitHealthy(ServiceDefinition service, Process process, Path log) throws InterruptedException {
+		HttpRequest health = HttpRequest.newBuilder(URI.create("http://localhost:" + service.port() + "/actuator/health"))
+			.timeout(Duration.ofSeconds(2))
+			.build();
+		long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+		while (System.nanoTime() < deadline) {
+			if (!process.isAlive()) {
+				throw new IllegalStateException(service.name() + " exited with " + process.exitValue() + ", see " + log);
+			}
+			try {
+				if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+					LOG.info("{} is up on port {}", service.name(), service.port());
+					return;
+				}
+			} catch (IOException ex) {
+				// not listening yet
+			}
+			TimeUnit.MILLISECONDS.sleep(500);
+		}
+		throw new IllegalStateException(service.name() + " isn't healthy after " + STARTUP_TIMEOUT + ", see " + log);
+	}
+
+	@Override
+	public void close() {
+		// in reverse order, the composite service first
+		for (int i = processes.size() - 1; i >= 0; i--) {
+			Process process = processes.get(i);
+			process.destroy();
+			try {
+				if (!process.waitFor(10, TimeUnit.SECONDS)) {
+					process.destroyForcibly();
+				}
+			} catch (InterruptedException ex) {
+				process.destroyForcibly();
+				Thread.currentThread().interrupt();
+			}
+		}
+		processes.clear();
+		mongo.close();
+	}
+}
@@ -0,0 +1,205 @@
+package tech.maxjung.microservices.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Sends traffic to the product composite service as an open model: the requests are started at random, Poisson
+ * distributed, points in time at the configured rate, however long the responses take. The latency of a request is
+ * measured from the point in time it was meant to be started, so a stalled generator or service shows up in the
+ * latencies instead of silently sending fewer requests (coordinated omission).
+ */
+final class TrafficGenerator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TrafficGenerator.class);
+
+	static final String READ = "GET /product-composite/{productId}";
+	static final String BATCH_READ = "GET /product-composite?ids";
+	static final String WRITE = "POST /product-composite";
+
+	private static final int BATCH_READ_SIZE = 10;
+	private static final int SEED_CONCURRENCY = 16;
+	private static final int MAX_IN_FLIGHT = 10_000;
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+
+	private final LoadTestConfig config;
+	private final URI baseUri;
+	private final HttpClient client;
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final ZipfDistribution products;
+	private final Random random;
+	private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+
+	// the products created by the writes get ids after the seeded ones
+	private int nextProductId;
+
+	TrafficGenerator(LoadTestConfig config, URI baseUri) {
+		this.config = config;
+		this.baseUri = baseUri;
+		this.client = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(REQUEST_TIMEOUT)
+			.build();
+		this.products = new ZipfDistribution(config.products(), config.skew());
+		this.random = new Random(config.seed());
+		this.nextProductId = config.products() + 1;
+	}
+
+	/**
+	 * Creates the products 1..products, each with reviews-per-product recommendations and reviews.
+	 */
+	void seed() {
+		LOG.info("Creating {} products", config.products());
+		for (int from = 1; from <= config.products(); from += SEED_CONCURRENCY) {
+			List<CompletableFuture<HttpResponse<String>>> responses = IntStream
+				.rangeClosed(from, Math.min(from + SEED_CONCURRENCY - 1, config.products()))
+				.mapToObj(productId -> client.sendAsync(createRequest(productId), HttpResponse.BodyHandlers.ofString()))
+				.toList();
+			for (CompletableFuture<HttpResponse<String>> response : responses) {
+				HttpResponse<String> r = response.join();
+				if (r.statusCode() / 100 != 2) {
+					throw new IllegalStateException("Creating a product failed with " + r.statusCode() + ": " + r.body());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Sends traffic for the given duration and waits for the responses of the requests in flight at its end.
+	 */
+	Map<String, EndpointStats> run(Duration duration) throws InterruptedException {
+		Map<String, EndpointStats> stats = new LinkedHashMap<>();
+		for (String endpoint : List.of(READ, BATCH_READ, WRITE)) {
+			stats.put(endpoint, new EndpointStats(endpoint));
+		}
+
+		long start = System.nanoTime();
+		long end = start + duration.toNanos();
+		long intendedStart = start;
+		while (true) {
+			// exponentially distributed gaps between the requests give Poisson arrivals
+			intendedStart += (long) (-Math.log(1 - random.nextDouble()) / config.rate() * TimeUnit.SECONDS.toNanos(1));
+			if (intendedStart >= end) {
+				break;
+			}
+			sleepUntil(intendedStart);
+			send(nextRequest(stats), intendedStart);
+		}
+
+		// every request in flight holds a permit, and times out after REQUEST_TIMEOUT at the latest
+		if (!inFlight.tryAcquire(MAX_IN_FLIGHT, REQUEST_TIMEOUT.multipliedBy(2).toMillis(), TimeUnit.MILLISECONDS)) {
+			LOG.warn("Requests still in flight after the end of the run");
+		} else {
+			inFlight.release(MAX_IN_FLIGHT);
+		}
+		return stats;
+	}
+
+	private record PendingRequest(EndpointStats stats, HttpRequest request) {
+	}
+
+	// called by the single generator thread only, so the random numbers are the same in every run with the same seed
+	private PendingRequest nextRequest(Map<String, EndpointStats> stats) {
+		double mix = random.nextDouble();
+		if (mix < config.readRatio()) {
+			return new PendingRequest(stats.get(READ), HttpRequest.newBuilder(baseUri.resolve("/product-composite/" + products.sample(random)))
+				.timeout(REQUEST_TIMEOUT)
+				.GET()
+				.build());
+		} else if (mix < config.readRatio() + config.batchReadRatio()) {
+			String ids = IntStream.range(0, BATCH_READ_SIZE)
+				.mapToObj(i -> String.valueOf(products.sample(random)))
+				.collect(Collectors.joining(","));
+			return new PendingRequest(stats.get(BATCH_READ), HttpRequest.newBuilder(baseUri.resolve("/product-composite?ids=" + ids))
+				.timeout(REQUEST_TIMEOUT)
+				.GET()
+				.build());
+		} else {
+			return new PendingRequest(stats.get(WRITE), createRequest(nextProductId++));
+		}
+	}
+
+	private void send(PendingRequest pending, long intendedStart) {
+		if (!inFlight.tryAcquire()) {
+			pending.stats().recordRejected();
+			return;
+		}
+		client.sendAsync(pending.request(), HttpResponse.BodyHandlers.discarding())
+			.whenComplete((response, ex) -> {
+				long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+				if (ex != null) {
+					pending.stats().recordError(latencyMicros, errorCause(ex));
+				} else if (response.statusCode() / 100 != 2) {
+					pending.stats().recordError(latencyMicros, String.valueOf(response.statusCode()));
+				} else {
+					pending.stats().recordSuccess(latencyMicros);
+				}
+				inFlight.release();
+			});
+	}
+
+	private static String errorCause(Throwable ex) {
+		Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+		if (cause instanceof HttpTimeoutException) {
+			return "timeout";
+		} else if (cause instanceof ConnectException) {
+			return "connect";
+		}
+		return cause.getClass().getSimpleName();
+	}
+
+	private static void sleepUntil(long nanoTime) throws InterruptedException {
+		long remaining = nanoTime - System.nanoTime();
+		if (remaining > 0) {
+			TimeUnit.NANOSECONDS.sleep(remaining);
+		}
+	}
+
+	private HttpRequest createRequest(int productId) {
+		return HttpRequest.newBuilder(baseUri.resolve("/product-composite"))
+			.timeout(REQUEST_TIMEOUT)
+			.header("Content-Type", "application/json")
+			.POST(HttpRequest.BodyPublishers.ofString(productJson(productId)))
+			.build();
+	}
+
+	private String productJson(int productId) {
+		List<Map<String, Object>> recommendations = new ArrayList<>();
+		List<Map<String, Object>> reviews = new ArrayList<>();
+		for (int i = 1; i <= config.reviewsPerProduct(); i++) {
+			recommendations.add(Map.of("recommendationId", i, "author", "author " + i, "rate", i % 5, "content", "content " + i));
+			reviews.add(Map.of("reviewId", i, "author", "author " + i, "subject", "subject " + i, "content", "content " + i));
+		}
+		try {
+			return mapper.writeValueAsString(Map.of(
+				"productId", productId,
+				"name", "product " + productId,
+				"weight", productId % 100,
+				"recommendations", recommendations,
+				"reviews", reviews));
+		} catch (JsonProcessingException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+}
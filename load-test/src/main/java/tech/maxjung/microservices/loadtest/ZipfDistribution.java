@@ -0,0 +1,38 @@
+package tech.maxjung.microservices.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Picks keys 1..n, key k with a probability proportional to 1 / k^exponent. With an exponent of 0 all keys are
+ * picked equally often, with about 1 a few hot keys get most of the picks, like popular products in a shop.
+ */
+final class ZipfDistribution {
+
+	// cumulative[k - 1] is the probability of picking a key <= k
+	private final double[] cumulative;
+
+	ZipfDistribution(int n, double exponent) {
+		if (n < 1 || exponent < 0) {
+			throw new IllegalArgumentException("Invalid Zipf distribution, n: " + n + ", exponent: " + exponent);
+		}
+		cumulative = new double[n];
+		double sum = 0;
+		for (int k = 1; k <= n; k++) {
+			sum += 1 / Math.pow(k, exponent);
+			cumulative[k - 1] = sum;
+		}
+		for (int i = 0; i < n; i++) {
+			cumulative[i] /= sum;
+		}
+	}
+
+	int sample(Random random) {
+		int index = Arrays.binarySearch(cumulative, random.nextDouble());
+		if (index < 0) {
+			index = -index - 1;
+		}
+		// rounding may leave the last cumulative probability a bit below 1
+		return Math.min(index, cumulative.length - 1) + 1;
+	}
+}
@@ -0,0 +1,61 @@
+package tech.maxjung.microservices.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipfDistributionTests {
+
+	private static final int SAMPLES = 100_000;
+
+	@Test
+	void samplesAreInRange() {
+		ZipfDistribution zipf = new ZipfDistribution(10, 1.0);
+		Random random = new Random(42);
+		for (int i = 0; i < SAMPLES; i++) {
+			int key = zipf.sample(random);
+			assertTrue(key >= 1 && key <= 10, "key out of range: " + key);
+		}
+	}
+
+	@Test
+	void exponentZeroIsUniform() {
+		int[] counts = sample(new ZipfDistribution(10, 0), new Random(42));
+		for (int key = 1; key <= 10; key++) {
+			assertEquals(SAMPLES / 10.0, counts[key], SAMPLES / 100.0);
+		}
+	}
+
+	@Test
+	void hotKeysArePickedMoreOften() {
+		int[] counts = sample(new ZipfDistribution(1000, 1.0), new Random(42));
+
+		// key 1 gets 1 / H(1000) = about 13 % of the picks, the top 10 keys 2.93 / 7.49 = about 39 %
+		assertEquals(0.134, counts[1] / (double) SAMPLES, 0.01);
+		int top10 = 0;
+		for (int key = 1; key <= 10; key++) {
+			top10 += counts[key];
+		}
+		assertEquals(0.391, top10 / (double) SAMPLES, 0.01);
+	}
+
+	@Test
+	void sameSeedGivesSameKeys() {
+		ZipfDistribution zipf = new ZipfDistribution(1000, 1.2);
+		Random first = new Random(7);
+		Random second = new Random(7);
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(zipf.sample(first), zipf.sample(second));
+		}
+	}
+
+	private static int[] sample(ZipfDistribution zipf, Random random) {
+		int[] counts = new int[1001];
+		for (int i = 0; i < SAMPLES; i++) {
+			counts[zipf.sample(random)]++;
+		}
+		return counts;
+	}
+}
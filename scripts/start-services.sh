@@ -44,7 +44,7 @@ if [[ $@ == *"--logging-level="* ]]; then
                         --logging.level.tech.maxjung=$LOGGING_LEVEL \
                         --logging.level.org.hibernate=$LOGGING_LEVEL \
                         --logging.level.org.hibernate.SQL=$LOGGING_LEVEL \
-                        --logging.level.org.springframework.data.mongodb.core.MongoTemplate=$LOGGING_LEVEL"
+                        --logging.level.org.springframework.data.mongodb.core.ReactiveMongoTemplate=$LOGGING_LEVEL"
   echo "Logging level set to: $LOGGING_LEVEL"
 fi
 
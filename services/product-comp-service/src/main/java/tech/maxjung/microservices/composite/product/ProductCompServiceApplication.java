@@ -11,26 +11,36 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.core.env.ConfigurableEnvironment;
-import org.springframework.web.client.RestTemplate;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties;
+import tech.maxjung.microservices.composite.product.services.HedgingProperties;
+import tech.maxjung.microservices.composite.product.services.ProductCacheProperties;
+import tech.maxjung.microservices.composite.product.services.ProductSnapshotProperties;
+import tech.maxjung.microservices.composite.product.services.RevalidationProperties;
+import tech.maxjung.microservices.composite.product.services.StaleWhileRevalidateProperties;
+import tech.maxjung.microservices.composite.product.services.WarmUpProperties;
 
 import java.util.Arrays;
 import java.util.stream.StreamSupport;
 
 @SpringBootApplication
 @ComponentScan("tech.maxjung")
+@EnableConfigurationProperties({
+	CoreServicesProperties.class,
+	ProductCacheProperties.class,
+	ProductSnapshotProperties.class,
+	HedgingProperties.class,
+	RevalidationProperties.class,
+	StaleWhileRevalidateProperties.class,
+	WarmUpProperties.class
+})
 public class ProductCompServiceApplication {
 
   private static final Logger logger = LoggerFactory.getLogger(ProductCompServiceApplication.class);
 
-  // in order to perform HTTP requests to the core services
-  @Bean
-  RestTemplate restTemplate() {   // todo will use WebClient for reactive programming later
-    return new RestTemplate();
-  }
-
   public static void main(String[] args) {
     SpringApplication.run(ProductCompServiceApplication.class, args);
   }
@@ -0,0 +1,53 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The bulkhead, timeout and circuit breaker protecting the calls to one core service, configured by the
+ * resilience4j.* properties of the instance with the same name.
+ * <p>
+ * A call first needs a free slot in the bulkhead, then it is cut off by the time limiter, and the circuit breaker
+ * records its outcome, timeouts and full bulkheads included. While the circuit is open calls fail immediately
+ * with a CallNotPermittedException.
+ */
+class CoreServiceResilience {
+
+	private final CircuitBreaker circuitBreaker;
+	private final TimeLimiter timeLimiter;
+	private final Bulkhead bulkhead;
+
+	CoreServiceResilience(
+		String name,
+		CircuitBreakerRegistry circuitBreakerRegistry,
+		TimeLimiterRegistry timeLimiterRegistry,
+		BulkheadRegistry bulkheadRegistry
+	) {
+		this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(name);
+		this.timeLimiter = timeLimiterRegistry.timeLimiter(name);
+		this.bulkhead = bulkheadRegistry.bulkhead(name);
+	}
+
+	<T> Mono<T> protect(Mono<T> call) {
+		return call
+			.transformDeferred(BulkheadOperator.of(bulkhead))
+			.transformDeferred(TimeLimiterOperator.of(timeLimiter))
+			.transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+	}
+
+	<T> Flux<T> protect(Flux<T> call) {
+		return call
+			.transformDeferred(BulkheadOperator.of(bulkhead))
+			.transformDeferred(TimeLimiterOperator.of(timeLimiter))
+			.transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+	}
+}
@@ -0,0 +1,66 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Addresses and HTTP client settings of the core services, bound from the {@code app.*} properties.
+ * Every core service gets its own connection pool, so a slow service can't starve the others of connections.
+ * A core service may run as several instances, the composite balances its calls over them, see ServiceInstances.
+ * The bodies are exchanged in the wire format, see WireFormat.
+ */
+@ConfigurationProperties(prefix = "app")
+public record CoreServicesProperties(
+	CoreService productService,
+	CoreService recommendationService,
+	CoreService reviewService,
+	@DefaultValue("smile") WireFormat wireFormat
+) {
+
+	/**
+	 * @param instances      host:port of every instance of the service, or its base URL
+	 * @param connectionPool settings of the connection pool shared by the instances
+	 * @param loadBalancing  how calls are spread over the instances
+	 */
+	public record CoreService(
+		List<String> instances,
+		@DefaultValue ConnectionPool connectionPool,
+		@DefaultValue LoadBalancing loadBalancing
+	) {
+
+		public List<String> baseUrls() {
+			return instances.stream()
+				.map(instance -> instance.contains("://") ? instance : "http://" + instance)
+				.toList();
+		}
+	}
+
+	/**
+	 * @param maxConnections         max number of open connections to the service
+	 * @param pendingAcquireMaxCount max number of requests waiting for a connection, further requests fail fast
+	 * @param pendingAcquireTimeout  max time a request waits for a connection
+	 * @param maxIdleTime            idle connections older than this are closed
+	 * @param evictionInterval       how often idle connections are evicted in the background
+	 */
+	public record ConnectionPool(
+		@DefaultValue("50") int maxConnections,
+		@DefaultValue("500") int pendingAcquireMaxCount,
+		@DefaultValue("5s") Duration pendingAcquireTimeout,
+		@DefaultValue("30s") Duration maxIdleTime,
+		@DefaultValue("60s") Duration evictionInterval
+	) {}
+
+	/**
+	 * @param strategy                   how an instance is chosen for a call
+	 * @param consecutiveFailuresToEject failed calls in a row after which an instance is ejected
+	 * @param ejectionTime               how long an ejected instance gets no calls
+	 */
+	public record LoadBalancing(
+		@DefaultValue("round-robin") LoadBalancingStrategy.Type strategy,
+		@DefaultValue("5") int consecutiveFailuresToEject,
+		@DefaultValue("30s") Duration ejectionTime
+	) {}
+}
@@ -0,0 +1,43 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tells a cache whether the result of a load is degraded, i.e. partly made of fallbacks, e.g. the empty page of
+ * reviews that stands in for a failed review lookup. Such results are served, but not kept.
+ * <p>
+ * {@link #track(Mono)} puts a flag into the Reactor context of the load, the fallbacks set it with {@link #report()}.
+ * Tracked loads may be nested, a degraded inner load degrades the outer one too.
+ */
+public final class Degradation {
+
+	private static final Class<Degradation> DEGRADED = Degradation.class;
+
+	public record Tracked<T>(T value, boolean degraded) {}
+
+	private Degradation() {}
+
+	public static <T> Mono<Tracked<T>> track(Mono<T> load) {
+		return Mono.deferContextual(context -> {
+			AtomicBoolean degraded = new AtomicBoolean();
+			return load
+				.map(value -> {
+					if (degraded.get()) {
+						context.<AtomicBoolean>getOrEmpty(DEGRADED).ifPresent(outer -> outer.set(true));
+					}
+					return new Tracked<>(value, degraded.get());
+				})
+				.contextWrite(inner -> inner.put(DEGRADED, degraded));
+		});
+	}
+
+	// called by a fallback, outside of a tracked load it does nothing
+	public static Mono<Void> report() {
+		return Mono.deferContextual(context -> {
+			context.<AtomicBoolean>getOrEmpty(DEGRADED).ifPresent(degraded -> degraded.set(true));
+			return Mono.empty();
+		});
+	}
+}
@@ -0,0 +1,22 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the hedged lookups of the core services, bound from the {@code app.hedging.*} properties.
+ *
+ * @param enabled             if false, every lookup is a single request
+ * @param percentile          a second request is sent if the first hasn't answered within this latency percentile
+ * @param minDelay            lower bound of the delay before the second request
+ * @param maxExtraLoadPercent max number of second requests, in percent of all lookups
+ */
+@ConfigurationProperties(prefix = "app.hedging")
+public record HedgingProperties(
+	@DefaultValue("false") boolean enabled,
+	@DefaultValue("0.95") double percentile,
+	@DefaultValue("10ms") Duration minDelay,
+	@DefaultValue("10") double maxExtraLoadPercent
+) {}
@@ -0,0 +1,135 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the calls of the integration to one core service.
+ * <p>
+ * Publishes the timer integration.calls, tagged with the service, the integration method, the outcome
+ * (SUCCESS, CLIENT_ERROR, SERVER_ERROR, UNKNOWN or CANCELLED), the HTTP status (NONE without a response)
+ * and the exception, and the distribution summary integration.response.size of the response bodies in bytes,
+ * tagged with the service and the method. Both with percentile histograms.
+ * <p>
+ * A timed call includes the load balancing, hedging and the resilience operators, but not the fallbacks,
+ * so a lookup that timed out is counted as one, even if it ended up as an empty result.
+ */
+public class IntegrationMetrics {
+
+	public static final String CALLS = "integration.calls";
+	public static final String RESPONSE_SIZE = "integration.response.size";
+
+	private static final String NONE = "NONE";
+
+	private final String service;
+	private final MeterRegistry meterRegistry;
+
+	public IntegrationMetrics(String service, MeterRegistry meterRegistry) {
+		this.service = service;
+		this.meterRegistry = meterRegistry;
+	}
+
+	// the state of one timed call, passed down to the filter in the Reactor context
+	private static final class Call {
+		private final String method;
+		// of the last response received, e.g. of the winning attempt of a hedged lookup
+		private volatile int status;
+
+		private Call(String method) {
+			this.method = method;
+		}
+	}
+
+	public <T> Mono<T> time(String method, Mono<T> call) {
+		return Mono.deferContextual(context -> {
+			Call state = context.get(Call.class);
+			long start = System.nanoTime();
+			return call
+				.doOnSuccess(value -> record(state, start, null))
+				.doOnError(ex -> record(state, start, ex))
+				.doOnCancel(() -> recordCancelled(state, start));
+		}).contextWrite(context -> context.put(Call.class, new Call(method)));
+	}
+
+	public <T> Flux<T> time(String method, Flux<T> call) {
+		return Flux.deferContextual(context -> {
+			Call state = context.get(Call.class);
+			long start = System.nanoTime();
+			return call
+				.doOnComplete(() -> record(state, start, null))
+				.doOnError(ex -> record(state, start, ex))
+				.doOnCancel(() -> recordCancelled(state, start));
+		}).contextWrite(context -> context.put(Call.class, new Call(method)));
+	}
+
+	/**
+	 * Records the status and the response size of every exchange of a timed call. Also streamed bodies are counted
+	 * as they arrive, so the size is recorded when the body is consumed, or released unread.
+	 */
+	public ExchangeFilterFunction filter() {
+		return (request, next) -> Mono.deferContextual(context -> {
+			Call call = context.getOrDefault(Call.class, null);
+			return next.exchange(request).map(response -> {
+				if (call == null) {
+					return response;
+				}
+				call.status = response.statusCode().value();
+
+				DistributionSummary responseSize = DistributionSummary.builder(RESPONSE_SIZE)
+					.description("Size of the response bodies of the core services")
+					.baseUnit("bytes")
+					.tags("service", service, "method", call.method)
+					.publishPercentileHistogram()
+					.register(meterRegistry);
+				AtomicLong bytes = new AtomicLong();
+				return response.mutate()
+					.body(body -> body
+						.doOnNext(buffer -> bytes.addAndGet(buffer.readableByteCount()))
+						.doFinally(signal -> responseSize.record(bytes.get())))
+					.build();
+			});
+		});
+	}
+
+	private void record(Call call, long start, Throwable ex) {
+		int status = call.status != 0 ? call.status : statusOf(ex);
+		timer(call, outcome(status, ex), status == 0 ? NONE : String.valueOf(status), ex == null ? "none" : ex.getClass().getSimpleName())
+			.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	private void recordCancelled(Call call, long start) {
+		timer(call, "CANCELLED", call.status == 0 ? NONE : String.valueOf(call.status), "none")
+			.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	private Timer timer(Call call, String outcome, String status, String exception) {
+		return Timer.builder(CALLS)
+			.description("Calls of the integration to the core services")
+			.tags("service", service, "method", call.method, "outcome", outcome, "status", status, "exception", exception)
+			.publishPercentileHistogram()
+			.register(meterRegistry);
+	}
+
+	// in case the filter didn't see the response, e.g. of a WebClient built without it
+	private static int statusOf(Throwable ex) {
+		return ex instanceof WebClientResponseException responseException ? responseException.getStatusCode().value() : 0;
+	}
+
+	// a failure after a successful response, e.g. a body that can't be decoded, is UNKNOWN like a missing response
+	private static String outcome(int status, Throwable ex) {
+		return switch (status / 100) {
+			case 2 -> ex == null ? "SUCCESS" : "UNKNOWN";
+			case 4 -> "CLIENT_ERROR";
+			case 5 -> "SERVER_ERROR";
+			default -> ex == null ? "SUCCESS" : "UNKNOWN";
+		};
+	}
+}
@@ -0,0 +1,73 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the instance of a core service a call is sent to, configured by
+ * {@code app.<service>.load-balancing.strategy}.
+ */
+public interface LoadBalancingStrategy {
+
+	enum Type { ROUND_ROBIN, LEAST_OUTSTANDING, POWER_OF_TWO_CHOICES }
+
+	/**
+	 * @param candidates the instances that may be chosen, never empty
+	 */
+	ServiceInstance choose(List<ServiceInstance> candidates);
+
+	static LoadBalancingStrategy of(Type type) {
+		return switch (type) {
+			case ROUND_ROBIN -> new RoundRobin();
+			case LEAST_OUTSTANDING -> new LeastOutstanding();
+			case POWER_OF_TWO_CHOICES -> new PowerOfTwoChoices();
+		};
+	}
+
+	// takes the instances in turn
+	class RoundRobin implements LoadBalancingStrategy {
+
+		private final AtomicInteger next = new AtomicInteger();
+
+		@Override
+		public ServiceInstance choose(List<ServiceInstance> candidates) {
+			return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+		}
+	}
+
+	// takes the instance with the fewest outstanding requests, ties are broken by starting the scan at a random instance
+	class LeastOutstanding implements LoadBalancingStrategy {
+
+		@Override
+		public ServiceInstance choose(List<ServiceInstance> candidates) {
+			int start = ThreadLocalRandom.current().nextInt(candidates.size());
+			ServiceInstance least = candidates.get(start);
+			for (int i = 1; i < candidates.size(); i++) {
+				ServiceInstance candidate = candidates.get((start + i) % candidates.size());
+				if (candidate.outstandingRequests() < least.outstandingRequests()) {
+					least = candidate;
+				}
+			}
+			return least;
+		}
+	}
+
+	/* takes the one with fewer outstanding requests of two randomly picked instances, which avoids the herding
+	   of least-outstanding, where concurrent calls all see and pick the same idle instance */
+	class PowerOfTwoChoices implements LoadBalancingStrategy {
+
+		@Override
+		public ServiceInstance choose(List<ServiceInstance> candidates) {
+			if (candidates.size() == 1) {
+				return candidates.get(0);
+			}
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(candidates.size());
+			int second = (first + 1 + random.nextInt(candidates.size() - 1)) % candidates.size();
+			ServiceInstance a = candidates.get(first);
+			ServiceInstance b = candidates.get(second);
+			return b.outstandingRequests() < a.outstandingRequests() ? b : a;
+		}
+	}
+}
@@ -0,0 +1,130 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import tech.maxjung.api.composite.product.ProductAggregate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+
+/**
+ * Read-through cache of product aggregates, keyed by productId.
+ * <p>
+ * Size bounded (Caffeine's W-TinyLFU eviction) and expired a fixed time after loading. Only found products are
+ * cached, errors and empty results are not, nor are degraded aggregates, i.e. ones with recommendations or reviews
+ * that fell back to empty results or to stale pages (see Degradation). Hits, misses, loads and evictions are published
+ * as the Micrometer cache.* metrics, tagged with cache=product-composite.
+ * <p>
+ * The stale parts of a product aggregate, see StalenessHeaders, are kept with it and reported, aged by the time it is
+ * cached, on every lookup, also by the requests that share its load.
+ * <p>
+ * With stale-while-revalidate enabled, the time to live must not exceed its soft TTL, else an aggregate would be
+ * served from the cache without a header while its pages are already stale.
+ */
+@Component
+public class ProductAggregateCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProductAggregateCache.class);
+
+	static final String CACHE_NAME = "product-composite";
+
+	private record Loaded(ProductAggregate aggregate, boolean degraded, Map<String, Duration> staleParts, long loadedAt) {
+
+		Map<String, Duration> staleParts(long now) {
+			Map<String, Duration> aged = new HashMap<>();
+			staleParts.forEach((part, age) -> aged.put(part, age.plusNanos(now - loadedAt)));
+			return aged;
+		}
+	}
+
+	private final boolean enabled;
+	private final AsyncCache<Integer, Loaded> cache;
+
+	@Autowired
+	public ProductAggregateCache(ProductCacheProperties properties, StaleWhileRevalidateProperties staleWhileRevalidate, MeterRegistry meterRegistry) {
+		this(properties, meterRegistry);
+		if (properties.enabled() && staleWhileRevalidate.enabled() && properties.timeToLive().compareTo(staleWhileRevalidate.softTtl()) > 0) {
+			throw new IllegalArgumentException("Invalid product-composite cache time-to-live: " + properties.timeToLive()
+				+ ", must not exceed the stale-while-revalidate soft-ttl: " + staleWhileRevalidate.softTtl());
+		}
+	}
+
+	public ProductAggregateCache(ProductCacheProperties properties, MeterRegistry meterRegistry) {
+		this.enabled = properties.enabled();
+		this.cache = Caffeine.newBuilder()
+			.maximumSize(properties.maximumSize())
+			.expireAfterWrite(properties.timeToLive())
+			.recordStats()
+			.buildAsync();
+
+		CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+		LOG.info("Created product aggregate cache: {}", properties);
+	}
+
+	/**
+	 * Returns the cached product aggregate, or loads it with the loader and caches it.
+	 * Concurrent misses for the same productId share one load.
+	 */
+	public Mono<ProductAggregate> get(int productId, IntFunction<Mono<ProductAggregate>> loader) {
+		if (!enabled) {
+			return loader.apply(productId);
+		}
+
+		// the load is shared, so a cancelled subscriber must not cancel it for the others. It runs in the Reactor
+		// context of the request that started it, so its calls to the core services are part of that request's trace.
+		// A degraded aggregate is served to the requests that share its load, and removed once it is loaded.
+		return Mono.deferContextual(context -> Mono.fromFuture(() -> {
+				CompletableFuture<Loaded> load = cache.get(productId,
+					(id, executor) -> load(id, loader).contextWrite(context).toFuture());
+				return load.whenComplete((loaded, ex) -> {
+					if (loaded != null && loaded.degraded()) {
+						LOG.debug("Doesn't cache the degraded product aggregate for productId: {}", productId);
+						cache.asMap().remove(productId, load);
+					}
+				});
+			}, true))
+			.flatMap(loaded -> StalenessHeaders.report(loaded.staleParts(System.nanoTime())).thenReturn(loaded.aggregate()));
+	}
+
+	private static Mono<Loaded> load(int productId, IntFunction<Mono<ProductAggregate>> loader) {
+		return StalenessHeaders.capture(Degradation.track(loader.apply(productId)))
+			.map(captured -> new Loaded(
+				captured.value().value(), captured.value().degraded(), captured.staleParts(), System.nanoTime()));
+	}
+
+	/**
+	 * Replaces the cached product aggregate, e.g. one served from a snapshot by the one reloaded from the core services.
+	 * Does nothing if it isn't cached (anymore), so an invalidation in the meantime isn't undone.
+	 */
+	public void replace(ProductAggregate aggregate) {
+		if (enabled) {
+			cache.asMap().computeIfPresent(aggregate.productId(),
+				(id, cached) -> CompletableFuture.completedFuture(new Loaded(aggregate, false, Map.of(), System.nanoTime())));
+		}
+	}
+
+	public void invalidate(int productId) {
+		LOG.debug("Invalidates the cached product aggregate for productId: {}", productId);
+		cache.synchronous().invalidate(productId);
+	}
+
+	/**
+	 * @return up to limit productIds of cached product aggregates, the most frequently used first
+	 */
+	public List<Integer> hottest(int limit) {
+		return cache.synchronous().policy().eviction()
+			.map(eviction -> List.copyOf(eviction.hottest(limit).keySet()))
+			.orElse(List.of());
+	}
+}
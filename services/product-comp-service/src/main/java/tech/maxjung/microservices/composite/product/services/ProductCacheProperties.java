@@ -0,0 +1,20 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the product aggregate cache, bound from the {@code app.product-composite.cache.*} properties.
+ *
+ * @param enabled     if false, every request is passed on to the core services
+ * @param maximumSize max number of cached product aggregates, Caffeine evicts the least valuable ones beyond that
+ * @param timeToLive  a product aggregate is reloaded from the core services at the latest after this time
+ */
+@ConfigurationProperties(prefix = "app.product-composite.cache")
+public record ProductCacheProperties(
+	@DefaultValue("true") boolean enabled,
+	@DefaultValue("10000") long maximumSize,
+	@DefaultValue("5m") Duration timeToLive
+) {}
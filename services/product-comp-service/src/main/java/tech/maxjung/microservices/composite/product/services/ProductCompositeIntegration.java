@@ -1,200 +1,447 @@
 package tech.maxjung.microservices.composite.product.services;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import tech.maxjung.api.core.product.Product;
 import tech.maxjung.api.core.product.ProductService;
 import tech.maxjung.api.core.recommendation.Recommendation;
+import tech.maxjung.api.core.recommendation.RecommendationPage;
 import tech.maxjung.api.core.recommendation.RecommendationService;
 import tech.maxjung.api.core.review.Review;
+import tech.maxjung.api.core.review.ReviewPage;
 import tech.maxjung.api.core.review.ReviewService;
 import tech.maxjung.api.exceptions.InvalidInputException;
 import tech.maxjung.api.exceptions.NotFoundException;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.CoreService;
 import tech.maxjung.util.http.HttpErrorInfo;
 
-import java.io.IOException;
-import java.util.Collections;
+import java.net.URI;
 import java.util.List;
 import java.util.Objects;
-
-import static org.springframework.http.HttpMethod.GET;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Component
 public class ProductCompositeIntegration implements ProductService, RecommendationService, ReviewService {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ProductCompositeIntegration.class);
 
-	private final RestTemplate restTemplate;
-	private final ObjectMapper mapper;
+	private final WebClient productClient;
+	private final WebClient recommendationClient;
+	private final WebClient reviewClient;
+	private final WireFormat wireFormat;
 
-	private final String productServiceUrl;
-	private final String recommendationServiceUrl;
-	private final String reviewServiceUrl;
+	private final ServiceInstances productInstances;
+	private final ServiceInstances recommendationInstances;
+	private final ServiceInstances reviewInstances;
 
+	private final CoreServiceResilience productResilience;
+	private final CoreServiceResilience recommendationResilience;
+	private final CoreServiceResilience reviewResilience;
 
-	public ProductCompositeIntegration(
-		RestTemplate restTemplate,
-		ObjectMapper mapper,
+	private final RequestHedger productHedger;
+	private final RequestHedger recommendationHedger;
+	private final RequestHedger reviewHedger;
+
+	private final IntegrationMetrics productMetrics;
+	private final IntegrationMetrics recommendationMetrics;
+	private final IntegrationMetrics reviewMetrics;
+
+	private final RevalidatingCache productRevalidation;
+	private final RevalidatingCache recommendationRevalidation;
+	private final RevalidatingCache reviewRevalidation;
 
-		@Value("${app.product-service.host}") String productSvcHost,
-		@Value("${app.product-service.port}") int productSvcPort,
+	private final StaleWhileRevalidateCache<PageKey, RecommendationPage> recommendationPages;
+	private final StaleWhileRevalidateCache<PageKey, ReviewPage> reviewPages;
 
-		@Value("${app.recommendation-service.host}") String recommendationSvcHost,
-		@Value("${app.recommendation-service.port}") int recommendationSvcPort,
+	private record PageKey(int productId, int pageSize) {}
 
-		@Value("${app.review-service.host}") String reviewSvcHost,
-		@Value("${app.review-service.port}") int reviewSvcPort
+	public ProductCompositeIntegration(
+		WebClient.Builder webClientBuilder,
+		CoreServicesProperties coreServices,
+		CircuitBreakerRegistry circuitBreakerRegistry,
+		TimeLimiterRegistry timeLimiterRegistry,
+		BulkheadRegistry bulkheadRegistry,
+		HedgingProperties hedging,
+		RevalidationProperties revalidation,
+		StaleWhileRevalidateProperties staleWhileRevalidate,
+		MeterRegistry meterRegistry
 	) {
-		this.restTemplate = restTemplate;
-		this.mapper = mapper;
+		// Smile by default, the JSON APIs of the core services are left for curl and the like
+		this.wireFormat = coreServices.wireFormat();
+
+		// the lookups are protected per core service, so one slow or failing service can't hold up calls to the others.
+		// Hedged lookups count as one call for the bulkhead, the time limiter and the circuit breaker.
+		this.productResilience = new CoreServiceResilience("product", circuitBreakerRegistry, timeLimiterRegistry, bulkheadRegistry);
+		this.recommendationResilience = new CoreServiceResilience("recommendation", circuitBreakerRegistry, timeLimiterRegistry, bulkheadRegistry);
+		this.reviewResilience = new CoreServiceResilience("review", circuitBreakerRegistry, timeLimiterRegistry, bulkheadRegistry);
+
+		this.productHedger = new RequestHedger("product", hedging, meterRegistry);
+		this.recommendationHedger = new RequestHedger("recommendation", hedging, meterRegistry);
+		this.reviewHedger = new RequestHedger("review", hedging, meterRegistry);
+
+		// every method is timed per core service, tagged with its outcome and HTTP status, see IntegrationMetrics
+		this.productMetrics = new IntegrationMetrics("product", meterRegistry);
+		this.recommendationMetrics = new IntegrationMetrics("recommendation", meterRegistry);
+		this.reviewMetrics = new IntegrationMetrics("review", meterRegistry);
+
+		// products and pages of recommendations and reviews are fetched again only if they changed, see RevalidatingCache
+		this.productRevalidation = new RevalidatingCache("product", revalidation, meterRegistry);
+		this.recommendationRevalidation = new RevalidatingCache("recommendation", revalidation, meterRegistry);
+		this.reviewRevalidation = new RevalidatingCache("review", revalidation, meterRegistry);
+
+		// the last good first pages of recommendations and reviews are served instead of empty ones while a core
+		// service fails, if enabled, flagged as the stale parts "recommendations" and "reviews", see StaleWhileRevalidateCache
+		this.recommendationPages = new StaleWhileRevalidateCache<>("recommendation-pages", "recommendations", staleWhileRevalidate, meterRegistry);
+		this.reviewPages = new StaleWhileRevalidateCache<>("review-pages", "reviews", staleWhileRevalidate, meterRegistry);
+
+		this.productClient = createWebClient(webClientBuilder, "product-service", coreServices.productService(), productMetrics);
+		this.recommendationClient = createWebClient(webClientBuilder, "recommendation-service", coreServices.recommendationService(), recommendationMetrics);
+		this.reviewClient = createWebClient(webClientBuilder, "review-service", coreServices.reviewService(), reviewMetrics);
+
+		// every call chooses one of the instances of its core service, so also the attempts of a hedged lookup
+		this.productInstances = new ServiceInstances("product", coreServices.productService(), meterRegistry);
+		this.recommendationInstances = new ServiceInstances("recommendation", coreServices.recommendationService(), meterRegistry);
+		this.reviewInstances = new ServiceInstances("review", coreServices.reviewService(), meterRegistry);
+	}
 
-		this.productServiceUrl = "http://" + productSvcHost + ":" + productSvcPort + "/product";
-		this.recommendationServiceUrl = "http://" + recommendationSvcHost + ":" + recommendationSvcPort + "/recommendation";
-		this.reviewServiceUrl = "http://" + reviewSvcHost + ":" + reviewSvcPort + "/review";
+	/* Each core service gets a WebClient on top of its own, bounded Reactor Netty connection pool, shared by its instances.
+	   Requests that can't get a connection wait in the pending-acquire queue, when that is full they fail fast. */
+	private static WebClient createWebClient(WebClient.Builder webClientBuilder, String name, CoreService coreService, IntegrationMetrics metrics) {
+		CoreServicesProperties.ConnectionPool pool = coreService.connectionPool();
+		ConnectionProvider connectionProvider = ConnectionProvider.builder(name)
+			.maxConnections(pool.maxConnections())
+			.pendingAcquireMaxCount(pool.pendingAcquireMaxCount())
+			.pendingAcquireTimeout(pool.pendingAcquireTimeout())
+			.maxIdleTime(pool.maxIdleTime())
+			.evictInBackground(pool.evictionInterval())
+			.build();
+
+		LOG.info("Created connection pool for {} at {}: {}", name, coreService.baseUrls(), pool);
+		return webClientBuilder.clone()
+			.clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+			.filter(metrics.filter())
+			.build();
 	}
 
 
 	@Override
-	public Product getProduct(int productId) {
-		try {
-			String url = productServiceUrl + "/" + productId;
-			LOG.debug("Will call getProduct API on URL: {}", url);
-			Product product = restTemplate.getForObject(url, Product.class);
-			LOG.debug("Found a product with id: {}", product.productId());
-			return product;
-		} catch (HttpClientErrorException ex) {
-			throw handleHttpClientException(ex);
-		}
+	public Mono<Product> getProduct(int productId) {
+		// a 404 or 422 is mapped before the circuit breaker sees it, it ignores them as they are no failures of the service
+		return productMetrics.time("getProduct", productResilience.protect(productHedger.hedge(productInstances.attempts(baseUrl -> {
+				URI url = URI.create(baseUrl + "/product/" + productId);
+				LOG.debug("Will call getProduct API on URL: {}", url);
+
+				return productRevalidation.get(productClient, url, wireFormat.mediaType(), Product.class)
+					.onErrorMap(WebClientResponseException.class, this::handleException);
+			}))))
+			.doOnNext(product -> LOG.debug("Found a product with id: {}", product.productId()));
 	}
 
 	@Override
-	public Product createProduct(Product product) {
-		try {
-			LOG.debug("Will post a new product to URL: {}", productServiceUrl);
-			Product p = restTemplate.postForObject(productServiceUrl, product, Product.class);
-			LOG.debug("Created a product with id: {}", p.productId());
-			return p;
-		} catch (HttpClientErrorException ex) {
-			throw handleHttpClientException(ex);
-		}
+	public Flux<Product> getProducts(List<Integer> productIds) {
+		// like a single product lookup, a failing batch lookup fails the request
+		return productMetrics.time("getProducts", productResilience.protect(productInstances.callMany(baseUrl -> {
+			URI url = batchUri(baseUrl + "/product/batch", productIds);
+			LOG.debug("Will call getProducts API on URL: {}", url);
+
+			return productClient.get().uri(url)
+				.accept(wireFormat.mediaType())
+				.retrieve()
+				.bodyToFlux(Product.class)
+				.onErrorMap(WebClientResponseException.class, this::handleException);
+		})));
 	}
 
 	@Override
-	public void deleteProduct(int productId) {
-		try {
-			String url = productServiceUrl + "/" + productId;
+	public Mono<Product> createProduct(Product product) {
+		return productMetrics.time("createProduct", productInstances.call(baseUrl -> {
+			String url = baseUrl + "/product";
+			LOG.debug("Will post a new product to URL: {}", url);
+
+			return productClient.post().uri(url)
+				.contentType(wireFormat.mediaType())
+				.accept(wireFormat.mediaType())
+				.bodyValue(product)
+				.retrieve()
+				.bodyToMono(Product.class)
+				.doOnNext(p -> LOG.debug("Created a product with id: {}", p.productId()))
+				.onErrorMap(WebClientResponseException.class, this::handleException);
+		}));
+	}
+
+	@Override
+	public Mono<Void> deleteProduct(int productId) {
+		return productMetrics.time("deleteProduct", productInstances.call(baseUrl -> {
+			String url = baseUrl + "/product/" + productId;
 			LOG.debug("Will call the deleteProduct API on URL: {}", url);
-			restTemplate.delete(url);
-		} catch (HttpClientErrorException ex) {
-			throw handleHttpClientException(ex);
-		}
+
+			return productClient.delete().uri(url)
+				.accept(wireFormat.mediaType())
+				.retrieve()
+				.bodyToMono(Void.class)
+				.onErrorMap(WebClientResponseException.class, this::handleException);
+		}));
 	}
 
 	@Override
-	public List<Recommendation> getRecommendations(int productId) {
-		try {
-			String url = recommendationServiceUrl + "?productId=" + productId;
-			LOG.debug("Will call getRecommendations API on URL: {}", url);
-
-      /* Using exchange() over getForObject() because it handles JSON to List<Recommendation> conversion.
-         This is needed due to Java's type erasure with generics, which ParameterizedTypeReference helps resolve
-          by retaining type information at runtime for correct mapping. */
-			List<Recommendation> recommendations = restTemplate
-				.exchange(url, GET, null, new ParameterizedTypeReference<List<Recommendation>>() {
-				})
-				.getBody();
-
-			LOG.debug("Found {} recommendations for a product with id: {}", recommendations.size(), productId);
-			return recommendations;
-		} catch (Exception ex) {
-			LOG.warn("Got an exception while requesting recommendations, return empty list: {}", ex.getMessage());
-			return Collections.emptyList();
-		}
+	public Flux<Recommendation> getRecommendations(int productId) {
+		// return an empty result if something goes wrong (including a timeout, an open circuit or a full bulkhead),
+		// so the composite can still answer with partial content
+		// the recommendations are streamed (as NDJSON or a sequence of Smile values), i.e. decoded one by one instead of buffering a whole array
+		return recommendationMetrics.time("getRecommendations", recommendationResilience.protect(recommendationInstances.callMany(baseUrl -> {
+				String url = baseUrl + "/recommendation?productId=" + productId;
+				LOG.debug("Will call getRecommendations API on URL: {}", url);
+
+				return recommendationClient.get().uri(url)
+					.accept(wireFormat.streamMediaType())
+					.retrieve()
+					.bodyToFlux(Recommendation.class);
+			})))
+			.onErrorResume(ex -> {
+				LOG.warn("Got an exception while requesting recommendations, return empty list: {}", ex.getMessage());
+				return Degradation.report().thenMany(Flux.empty());
+			});
 	}
 
 	@Override
-	public Recommendation createRecommendation(Recommendation recommendation) {
-		try {
-			String url = recommendationServiceUrl;
+	public Flux<Recommendation> getRecommendationsOfProducts(List<Integer> productIds, int pageSize) {
+		return recommendationMetrics.time("getRecommendationsOfProducts", recommendationResilience.protect(recommendationInstances.callMany(baseUrl -> {
+				URI url = batchUri(baseUrl + "/recommendation/batch", productIds, pageSize);
+				LOG.debug("Will call getRecommendationsOfProducts API on URL: {}", url);
+
+				return recommendationClient.get().uri(url)
+					.accept(wireFormat.mediaType())
+					.retrieve()
+					.bodyToFlux(Recommendation.class);
+			})))
+			.onErrorResume(ex -> {
+				LOG.warn("Got an exception while requesting recommendations of products, return empty list: {}", ex.getMessage());
+				return Degradation.report().thenMany(Flux.empty());
+			});
+	}
+
+	@Override
+	public Mono<RecommendationPage> getRecommendationPage(int productId, String continuationToken, int pageSize) {
+		Supplier<Mono<RecommendationPage>> lookup = () -> recommendationMetrics.time("getRecommendationPage", recommendationResilience.protect(recommendationHedger.hedge(recommendationInstances.attempts(baseUrl -> {
+			URI url = pageUri(baseUrl + "/recommendation/page", productId, continuationToken, pageSize);
+			LOG.debug("Will call getRecommendationPage API on URL: {}", url);
+
+			return recommendationRevalidation.get(recommendationClient, url, wireFormat.mediaType(), RecommendationPage.class);
+		}))));
+
+		// only first pages are kept, the next ones are looked up with their continuation tokens
+		return (continuationToken == null ? recommendationPages.get(new PageKey(productId, pageSize), lookup) : lookup.get())
+			.onErrorResume(ex -> {
+				LOG.warn("Got an exception while requesting a page of recommendations, return an empty page: {}", ex.getMessage());
+				return Degradation.report().thenReturn(new RecommendationPage(List.of(), null));
+			});
+	}
+
+	@Override
+	public Mono<Recommendation> createRecommendation(Recommendation recommendation) {
+		return recommendationMetrics.time("createRecommendation", recommendationInstances.call(baseUrl -> {
+			String url = baseUrl + "/recommendation";
 			LOG.debug("Will post a new recommendation to URL: {}", url);
-			Recommendation rec = restTemplate.postForObject(url, recommendation, Recommendation.class);
-			LOG.debug("Created a recommendation with id: {}", rec.recommendationId());
-			return rec;
-		} catch (HttpClientErrorException ex) {
-			throw handleHttpClientException(ex);
-		}
+
+			return recommendationClient.post().uri(url)
+				.contentType(wireFormat.mediaType())
+				.accept(wireFormat.mediaType())
+				.bodyValue(recommendation)
+				.retrieve()
+				.bodyToMono(Recommendation.class)
+				.doOnNext(rec -> LOG.debug("Created a recommendation with id: {}", rec.recommendationId()))
+				.onErrorMap(WebClientResponseException.class, this::handleException);
+		}))
+			.doFinally(signal -> invalidatePages(recommendationPages, List.of(recommendation.productId())));
 	}
 
 
 	@Override
-	public void deleteRecommendations(int productId) {
-		try {
-			String url = recommendationServiceUrl + "?productId=" + productId;
+	public Flux<Recommendation> createRecommendations(List<Recommendation> recommendations) {
+		return recommendationMetrics.time("createRecommendations", recommendationInstances.callMany(baseUrl -> {
+			String url = baseUrl + "/recommendation/batch";
+			LOG.debug("Will post {} new recommendations to URL: {}", recommendations.size(), url);
+
+			return recommendationClient.post().uri(url)
+				.contentType(wireFormat.mediaType())
+				.accept(wireFormat.mediaType())
+				.bodyValue(recommendations)
+				.retrieve()
+				.bodyToFlux(Recommendation.class)
+				.onErrorMap(WebClientResponseException.class, this::handleException);
+		}))
+			.doFinally(signal -> invalidatePages(recommendationPages, recommendations.stream().map(Recommendation::productId).toList()));
+	}
+
+	@Override
+	public Mono<Void> deleteRecommendations(int productId) {
+		return recommendationMetrics.time("deleteRecommendations", recommendationInstances.call(baseUrl -> {
+			String url = baseUrl + "/recommendation?productId=" + productId;
 			LOG.debug("Will call the deleteRecommendations API on URL: {}", url);
-			restTemplate.delete(url);
-		} catch (HttpClientErrorException ex) {
-			throw handleHttpClientException(ex);
-		}
+
+			return recommendationClient.delete().uri(url)
+				.accept(wireFormat.mediaType())
+				.retrieve()
+				.bodyToMono(Void.class)
+				.onErrorMap(WebClientResponseException.class, this::handleException);
+		}))
+			.doFinally(signal -> invalidatePages(recommendationPages, List.of(productId)));
 	}
 
 	@Override
-	public List<Review> getReviews(int productId) {
-		try {
-			String url = reviewServiceUrl + "?productId=" + productId;
-			LOG.debug("Will call getReviews API on URL: {}", url);
-			List<Review> reviews = restTemplate
-				.exchange(url, GET, null, new ParameterizedTypeReference<List<Review>>() {
-				})
-				.getBody();
-			LOG.debug("Found {} reviews for a product with id: {}", reviews.size(), productId);
-			return reviews;
-		} catch (Exception ex) {
-			LOG.warn("Got an exception while requesting reviews, return empty list: {}", ex.getMessage());
-			return Collections.emptyList();
-		}
+	public Flux<Review> getReviews(int productId) {
+		return reviewMetrics.time("getReviews", reviewResilience.protect(reviewInstances.callMany(baseUrl -> {
+				String url = baseUrl + "/review?productId=" + productId;
+				LOG.debug("Will call getReviews API on URL: {}", url);
+
+				return reviewClient.get().uri(url)
+					.accept(wireFormat.streamMediaType())
+					.retrieve()
+					.bodyToFlux(Review.class);
+			})))
+			.onErrorResume(ex -> {
+				LOG.warn("Got an exception while requesting reviews, return empty list: {}", ex.getMessage());
+				return Degradation.report().thenMany(Flux.empty());
+			});
 	}
 
 	@Override
-	public Review createReview(Review review) {
-		try {
-			String url = reviewServiceUrl;
+	public Flux<Review> getReviewsOfProducts(List<Integer> productIds, int pageSize) {
+		return reviewMetrics.time("getReviewsOfProducts", reviewResilience.protect(reviewInstances.callMany(baseUrl -> {
+				URI url = batchUri(baseUrl + "/review/batch", productIds, pageSize);
+				LOG.debug("Will call getReviewsOfProducts API on URL: {}", url);
+
+				return reviewClient.get().uri(url)
+					.accept(wireFormat.mediaType())
+					.retrieve()
+					.bodyToFlux(Review.class);
+			})))
+			.onErrorResume(ex -> {
+				LOG.warn("Got an exception while requesting reviews of products, return empty list: {}", ex.getMessage());
+				return Degradation.report().thenMany(Flux.empty());
+			});
+	}
+
+	@Override
+	public Mono<ReviewPage> getReviewPage(int productId, String continuationToken, int pageSize) {
+		Supplier<Mono<ReviewPage>> lookup = () -> reviewMetrics.time("getReviewPage", reviewResilience.protect(reviewHedger.hedge(reviewInstances.attempts(baseUrl -> {
+			URI url = pageUri(baseUrl + "/review/page", productId, continuationToken, pageSize);
+			LOG.debug("Will call getReviewPage API on URL: {}", url);
+
+			return reviewRevalidation.get(reviewClient, url, wireFormat.mediaType(), ReviewPage.class);
+		}))));
+
+		return (continuationToken == null ? reviewPages.get(new PageKey(productId, pageSize), lookup) : lookup.get())
+			.onErrorResume(ex -> {
+				LOG.warn("Got an exception while requesting a page of reviews, return an empty page: {}", ex.getMessage());
+				return Degradation.report().thenReturn(new ReviewPage(List.of(), null));
+			});
+	}
+
+	@Override
+	public Mono<Review> createReview(Review review) {
+		return reviewMetrics.time("createReview", reviewInstances.call(baseUrl -> {
+			String url = baseUrl + "/review";
 			LOG.debug("Will post a new review to URL: {}", url);
-			Review rev = restTemplate.postForObject(url, review, Review.class);
-			LOG.debug("Created a review with id: {}", rev.reviewId());
-			return rev;
-		} catch (HttpClientErrorException ex) {
-			throw handleHttpClientException(ex);
-		}
+
+			return reviewClient.post().uri(url)
+				.contentType(wireFormat.mediaType())
+				.accept(wireFormat.mediaType())
+				.bodyValue(review)
+				.retrieve()
+				.bodyToMono(Review.class)
+				.doOnNext(rev -> LOG.debug("Created a review with id: {}", rev.reviewId()))
+				.onErrorMap(WebClientResponseException.class, this::handleException);
+		}))
+			.doFinally(signal -> invalidatePages(reviewPages, List.of(review.productId())));
 	}
 
 	@Override
-	public void deleteReviews(int productId) {
-		try {
-			String url = reviewServiceUrl + "?productId=" + productId;
+	public Flux<Review> createReviews(List<Review> reviews) {
+		return reviewMetrics.time("createReviews", reviewInstances.callMany(baseUrl -> {
+			String url = baseUrl + "/review/batch";
+			LOG.debug("Will post {} new reviews to URL: {}", reviews.size(), url);
+
+			return reviewClient.post().uri(url)
+				.contentType(wireFormat.mediaType())
+				.accept(wireFormat.mediaType())
+				.bodyValue(reviews)
+				.retrieve()
+				.bodyToFlux(Review.class)
+				.onErrorMap(WebClientResponseException.class, this::handleException);
+		}))
+			.doFinally(signal -> invalidatePages(reviewPages, reviews.stream().map(Review::productId).toList()));
+	}
+
+	@Override
+	public Mono<Void> deleteReviews(int productId) {
+		return reviewMetrics.time("deleteReviews", reviewInstances.call(baseUrl -> {
+			String url = baseUrl + "/review?productId=" + productId;
 			LOG.debug("Will call the deleteReviews API on URL: {}", url);
-			restTemplate.delete(url);
-		} catch (HttpClientErrorException ex) {
-			throw handleHttpClientException(ex);
+
+			return reviewClient.delete().uri(url)
+				.accept(wireFormat.mediaType())
+				.retrieve()
+				.bodyToMono(Void.class)
+				.onErrorMap(WebClientResponseException.class, this::handleException);
+		}))
+			.doFinally(signal -> invalidatePages(reviewPages, List.of(productId)));
+	}
+
+	// also after a failed write, which may have been applied all the same
+	private static void invalidatePages(StaleWhileRevalidateCache<PageKey, ?> pages, List<Integer> productIds) {
+		pages.invalidateIf(key -> productIds.contains(key.productId()));
+	}
+
+	private static URI pageUri(String url, int productId, String continuationToken, int pageSize) {
+		UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(url)
+			.queryParam("productId", productId)
+			.queryParam("pageSize", pageSize);
+		if (continuationToken != null) {
+			builder.queryParam("continuationToken", continuationToken);
 		}
+		return builder.encode().build().toUri();
 	}
 
+	private static URI batchUri(String url, List<Integer> productIds) {
+		return UriComponentsBuilder.fromHttpUrl(url)
+			.queryParam("productIds", productIds.stream().map(String::valueOf).collect(Collectors.joining(",")))
+			.encode().build().toUri();
+	}
+
+	private static URI batchUri(String url, List<Integer> productIds, int pageSize) {
+		return UriComponentsBuilder.fromHttpUrl(url)
+			.queryParam("productIds", productIds.stream().map(String::valueOf).collect(Collectors.joining(",")))
+			.queryParam("pageSize", pageSize)
+			.encode().build().toUri();
+	}
 
-	private String getErrorMessage(HttpClientErrorException ex) {
+	// the error body is decoded by the codec of its content type, i.e. also if it is Smile
+	private String getErrorMessage(WebClientResponseException ex) {
 		try {
-			return mapper.readValue(ex.getResponseBodyAsString(), HttpErrorInfo.class).message();
-		} catch (IOException ioex) {
+			HttpErrorInfo errorInfo = ex.getResponseBodyAs(HttpErrorInfo.class);
+			return errorInfo != null ? errorInfo.message() : ex.getMessage();
+		} catch (RuntimeException decodingException) {
 			return ex.getMessage();
 		}
 	}
 
-	private RuntimeException handleHttpClientException(HttpClientErrorException ex) {
+	private Throwable handleException(WebClientResponseException ex) {
 		// the reverse of GlobalControllerExceptionHandler's code
 		switch (Objects.requireNonNull(HttpStatus.resolve(ex.getStatusCode().value()))) {
 
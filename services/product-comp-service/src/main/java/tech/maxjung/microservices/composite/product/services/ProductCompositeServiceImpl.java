@@ -1,18 +1,28 @@
 package tech.maxjung.microservices.composite.product.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import tech.maxjung.api.composite.product.*;
 import tech.maxjung.api.core.product.Product;
 import tech.maxjung.api.core.recommendation.Recommendation;
+import tech.maxjung.api.core.recommendation.RecommendationPage;
 import tech.maxjung.api.core.review.Review;
+import tech.maxjung.api.core.review.ReviewPage;
+import tech.maxjung.api.exceptions.InvalidInputException;
 import tech.maxjung.api.exceptions.NotFoundException;
 import tech.maxjung.util.http.ServiceUtil;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
+import static tech.maxjung.api.BatchLimits.MAX_PRODUCT_IDS;
+
 @RestController
 public class ProductCompositeServiceImpl implements ProductCompositeService {
 
@@ -20,70 +30,151 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
 
 	private final ServiceUtil serviceUtil;
 	private final ProductCompositeIntegration integration;
-
-	public ProductCompositeServiceImpl(ServiceUtil serviceUtil, ProductCompositeIntegration integration) {
+	private final ProductAggregateCache productCache;
+	private final ProductSnapshotStore productSnapshots;
+	private final RequestCoalescer<Integer, StalenessHeaders.Captured<ProductAggregate>> productRequests;
+	private final int pageSize;
+	private final int createBatchSize;
+
+	public ProductCompositeServiceImpl(
+		ServiceUtil serviceUtil,
+		ProductCompositeIntegration integration,
+		ProductAggregateCache productCache,
+		ProductSnapshotStore productSnapshots,
+		MeterRegistry meterRegistry,
+		@Value("${app.product-composite.page-size}") int pageSize,
+		@Value("${app.product-composite.create-batch-size}") int createBatchSize
+	) {
 		this.serviceUtil = serviceUtil;
 		this.integration = integration;
+		this.productCache = productCache;
+		this.productSnapshots = productSnapshots;
+		this.productRequests = new RequestCoalescer<>("product-composite", meterRegistry);
+		this.pageSize = pageSize;
+		this.createBatchSize = createBatchSize;
 	}
 
 	@Override
-	public ProductAggregate getProduct(int productId) {
+	public Mono<ProductAggregate> getProduct(int productId) {
+		LOG.debug("getProduct: lookup a product aggregate for productId: {}", productId);
+
+		// concurrent requests for the same product share one cache lookup and, on a miss, one lookup of its snapshot and
+		// one load from the core services. A snapshot is replaced in the cache once it is reloaded. The stale parts of
+		// the shared result are captured, so each of the requests gets their headers.
+		return productRequests.execute(productId, id -> StalenessHeaders.capture(productCache.get(id,
+				key -> productSnapshots.get(key, this::loadProduct, productCache::replace))))
+			.flatMap(captured -> StalenessHeaders.report(captured.staleParts()).thenReturn(captured.value()));
+	}
 
-		var product = integration.getProduct(productId);
-		if (product == null) {
-			throw new NotFoundException("No product found for productId: " + productId);
+	private Mono<ProductAggregate> loadProduct(int productId) {
+		/* The three lookups are independent of each other, so they are subscribed to concurrently and zipped
+		   together. A failing product lookup (e.g. 404) cancels the other two, failing recommendations and
+		   reviews are already mapped to empty results by the integration.
+		   Only the first page of recommendations and reviews is fetched, however many a product has. */
+		return Mono.zip(
+				integration.getProduct(productId)
+					.switchIfEmpty(Mono.error(() -> new NotFoundException("No product found for productId: " + productId))),
+				integration.getRecommendationPage(productId, null, pageSize),
+				integration.getReviewPage(productId, null, pageSize))
+			.map(t -> createProductAggregate(t.getT1(), t.getT2(), t.getT3(), serviceUtil.getServiceAddress()))
+			.doOnError(ex -> LOG.debug("getProduct: failed for productId: {}: {}", productId, ex.toString()));
+	}
+
+	@Override
+	public Flux<ProductAggregate> getProducts(List<Integer> productIds) {
+		List<Integer> distinctProductIds = productIds.stream().distinct().toList();
+		if (distinctProductIds.isEmpty() || distinctProductIds.size() > MAX_PRODUCT_IDS) {
+			throw new InvalidInputException("Invalid number of ids: " + distinctProductIds.size());
 		}
 
-		List<Recommendation> recommendations = integration.getRecommendations(productId);
-		List<Review> reviews = integration.getReviews(productId);
-		return createProductAggregate(product, recommendations, reviews, serviceUtil.getServiceAddress());
+		LOG.debug("getProducts: lookup the product aggregates for productIds: {}", distinctProductIds);
+
+		/* One batch lookup per core service instead of three lookups per product. The core services return at most
+		   pageSize + 1 recommendations and reviews per product, they are grouped by productId while they arrive, then
+		   every product gets the first page of its own, with a continuation token if it has more. Products that don't
+		   exist are left out. */
+		return Mono.zip(
+				integration.getProducts(distinctProductIds).collectMap(Product::productId),
+				integration.getRecommendationsOfProducts(distinctProductIds, pageSize).collectMultimap(Recommendation::productId),
+				integration.getReviewsOfProducts(distinctProductIds, pageSize).collectMultimap(Review::productId))
+			.flatMapIterable(t -> {
+				String serviceAddress = serviceUtil.getServiceAddress();
+				return distinctProductIds.stream()
+					.filter(t.getT1()::containsKey)
+					.map(productId -> createProductAggregate(
+						t.getT1().get(productId),
+						recommendationPage(t.getT2().getOrDefault(productId, List.of())),
+						reviewPage(t.getT3().getOrDefault(productId, List.of())),
+						serviceAddress))
+					.toList();
+			});
+	}
+
+	// the same first page and continuation token as a page lookup in the recommendation service would return
+	private RecommendationPage recommendationPage(Collection<Recommendation> recommendations) {
+		List<Recommendation> list = List.copyOf(recommendations);
+		return list.size() <= pageSize
+			? new RecommendationPage(list, null)
+			: new RecommendationPage(list.subList(0, pageSize), String.valueOf(list.get(pageSize - 1).recommendationId()));
+	}
+
+	private ReviewPage reviewPage(Collection<Review> reviews) {
+		List<Review> list = List.copyOf(reviews);
+		return list.size() <= pageSize
+			? new ReviewPage(list, null)
+			: new ReviewPage(list.subList(0, pageSize), String.valueOf(list.get(pageSize - 1).reviewId()));
 	}
 
 	@Override
-	public void createProduct(ProductAggregate productAggr) {
-		try {
-			LOG.debug("createProduct: creates a new composite entity for productId: {}", productAggr.productId());
-
-			Product product = new Product(productAggr.productId(), productAggr.name(), productAggr.weight(), null);
-			integration.createProduct(product);
-
-			if (productAggr.recommendations() != null) {
-				for (RecommendationSummary r : productAggr.recommendations()) {
-					integration.createRecommendation(
-						new Recommendation(productAggr.productId(), r.recommendationId(), r.author(), r.rate(), r.content(), null)
-					);
-				}
-			}
-
-			if (productAggr.reviews() != null) {
-				for (ReviewSummary r : productAggr.reviews()) {
-					integration.createReview(
-						new Review(productAggr.productId(), r.reviewId(), r.author(), r.subject(), r.content(), null)
-					);
-				}
-			}
-
-			LOG.debug("createProduct: created a new composite entity for productId: {}", productAggr.productId());
-
-		} catch (RuntimeException re) {
-			LOG.warn("createCompositeProduct failed", re);
-			throw re;
-		}
+	public Mono<Void> createProduct(ProductAggregate productAggr) {
+		LOG.debug("createProduct: creates a new composite entity for productId: {}", productAggr.productId());
+
+		Product product = new Product(productAggr.productId(), productAggr.name(), productAggr.weight(), null);
+
+		// recommendations and reviews are posted in batches of create-batch-size, instead of one request each
+		Flux<Recommendation> recommendations = Flux.fromIterable(nullToEmpty(productAggr.recommendations()))
+			.map(r -> new Recommendation(productAggr.productId(), r.recommendationId(), r.author(), r.rate(), r.content(), null))
+			.buffer(createBatchSize)
+			.concatMap(integration::createRecommendations);
+
+		Flux<Review> reviews = Flux.fromIterable(nullToEmpty(productAggr.reviews()))
+			.map(r -> new Review(productAggr.productId(), r.reviewId(), r.author(), r.subject(), r.content(), null))
+			.buffer(createBatchSize)
+			.concatMap(integration::createReviews);
+
+		// the product is created first, so e.g. a duplicate product stops the creation before anything else is written
+		return integration.createProduct(product)
+			.thenMany(recommendations)
+			.thenMany(reviews)
+			.then()
+			.doOnSuccess(v -> LOG.debug("createProduct: created a new composite entity for productId: {}", productAggr.productId()))
+			.doOnError(ex -> LOG.warn("createCompositeProduct failed", ex))
+			.doFinally(signal -> invalidate(productAggr.productId()));
 	}
 
 	@Override
-	public void deleteProduct(int productId) {
-		integration.deleteProduct(productId);
-		integration.deleteRecommendations(productId);
-		integration.deleteReviews(productId);
+	public Mono<Void> deleteProduct(int productId) {
+		// the cached aggregate is invalidated even if a delete fails, as some parts of it may be gone already
+		return integration.deleteProduct(productId)
+			.then(integration.deleteRecommendations(productId))
+			.then(integration.deleteReviews(productId))
+			.doFinally(signal -> invalidate(productId));
 	}
 
-	private ProductAggregate createProductAggregate(
+	private void invalidate(int productId) {
+		productCache.invalidate(productId);
+		productSnapshots.invalidate(productId);
+	}
+
+	// static and package-private, like convertReviews, for the JMH benchmarks
+	static ProductAggregate createProductAggregate(
 		Product product,
-		List<Recommendation> recommendations,
-		List<Review> reviews,
+		RecommendationPage recommendationPage,
+		ReviewPage reviewPage,
 		String serviceAddress
 	) {
+		List<Recommendation> recommendations = recommendationPage.recommendations();
+		List<Review> reviews = reviewPage.reviews();
 		List<RecommendationSummary> recommendationSummaries = convertRecommendations(recommendations);
 		List<ReviewSummary> reviewSummaries = convertReviews(reviews);
 
@@ -95,12 +186,14 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
 			product.weight(),
 			recommendationSummaries,
 			reviewSummaries,
-			serviceAddresses
+			serviceAddresses,
+			recommendationPage.continuationToken(),
+			reviewPage.continuationToken()
 		);
 	}
 
 
-	private List<RecommendationSummary> convertRecommendations(List<Recommendation> recommendations) {
+	private static List<RecommendationSummary> convertRecommendations(List<Recommendation> recommendations) {
 		if (recommendations == null) {
 			return Collections.emptyList();
 		}
@@ -108,7 +201,7 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
 			.map(r -> new RecommendationSummary(r.recommendationId(), r.author(), r.rate(), r.content())).toList();
 	}
 
-	private List<ReviewSummary> convertReviews(List<Review> reviews) {
+	static List<ReviewSummary> convertReviews(List<Review> reviews) {
 		if (reviews == null) {
 			return Collections.emptyList();
 		}
@@ -116,7 +209,11 @@ public class ProductCompositeServiceImpl implements ProductCompositeService {
 			.map(r -> new ReviewSummary(r.reviewId(), r.author(), r.subject(), r.content())).toList();
 	}
 
-	private ServiceAddresses createServiceAddresses(Product product, List<Review> reviews, List<Recommendation> recommendations, String serviceAddress) {
+	private static <T> List<T> nullToEmpty(List<T> list) {
+		return list == null ? Collections.emptyList() : list;
+	}
+
+	private static ServiceAddresses createServiceAddresses(Product product, List<Review> reviews, List<Recommendation> recommendations, String serviceAddress) {
 		String productAddress = product.serviceAddress();
 		String reviewAddress = !reviews.isEmpty() ? reviews.get(0).serviceAddress() : "";
 		String recommendationAddress = !recommendations.isEmpty() ? recommendations.get(0).serviceAddress() : "";
@@ -0,0 +1,30 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings of the snapshots of product aggregates kept over restarts, bound from the
+ * {@code app.product-composite.snapshot.*} properties, see ProductSnapshotStore.
+ *
+ * @param enabled           if false, no file is written and a restarted service loads every product aggregate again
+ * @param file              the memory-mapped file of the snapshots, created if it doesn't exist
+ * @param maximumSize       the size of the file, the oldest snapshots are overwritten beyond that
+ * @param timeToLive        an older snapshot isn't served anymore, but loaded again from the core services
+ * @param warmUpWindow      snapshots are only served within this time after the file is opened, i.e. after a
+ *                          restart, later on they are only written
+ * @param reloadConcurrency max number of served snapshots reloaded from the core services at a time
+ */
+@ConfigurationProperties(prefix = "app.product-composite.snapshot")
+public record ProductSnapshotProperties(
+	@DefaultValue("false") boolean enabled,
+	@DefaultValue("build/snapshots/product-composite.snapshot") Path file,
+	@DefaultValue("64MB") DataSize maximumSize,
+	@DefaultValue("1h") Duration timeToLive,
+	@DefaultValue("5m") Duration warmUpWindow,
+	@DefaultValue("4") int reloadConcurrency
+) {}
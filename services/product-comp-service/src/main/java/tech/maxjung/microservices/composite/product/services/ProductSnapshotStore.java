@@ -0,0 +1,216 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import tech.maxjung.api.composite.product.ProductAggregate;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Snapshots of product aggregates in a memory-mapped file (see SnapshotFile), kept over restarts, so a restarted
+ * service warms its empty product aggregate cache from them instead of loading its whole working set from the core
+ * services at once. Off the heap, bounded by the size of the file.
+ * <p>
+ * Every product aggregate loaded from the core services is written as a snapshot, in Smile, unless it is degraded
+ * (see Degradation). The invalidations of the composite's own writes are written to the file too.
+ * Snapshots are only served within the warm-up window after the file is opened, i.e. after a restart, and only if
+ * they are younger than the time to live. A served snapshot is reloaded from the core services in the background,
+ * at most reload-concurrency at a time, and the reloaded aggregate replaces it in the cache and in the file.
+ * Responses served from a snapshot get the header X-Snapshot-Age, see StalenessHeaders. The product aggregate cache keeps
+ * the age with the snapshot, so every request served from it gets the header, until the reload replaces it.
+ * <p>
+ * The file is opened, and its records are scanned, on the first lookup, the snapshots are read when they are asked
+ * for. If it can't be opened, the service goes on without snapshots. The file is read on the boundedElastic
+ * scheduler and written on a single thread of its own, in order.
+ * <p>
+ * Publishes the counter snapshot.lookups, tagged with result=hit, miss or expired, and the gauge snapshot.entries.
+ */
+@Component
+public class ProductSnapshotStore {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProductSnapshotStore.class);
+
+	private final ObjectMapper mapper = SmileMapper.builder().build();
+
+	private final boolean enabled;
+	private final Duration timeToLive;
+	private final Duration warmUpWindow;
+	private final Clock clock;
+	private final Scheduler writer;
+	private final Mono<SnapshotFile> file;
+	private volatile SnapshotFile openedFile;
+	private volatile long openedAt;
+
+	private final Sinks.Many<Mono<Void>> reloads = Sinks.many().unicast().onBackpressureBuffer();
+	private final Disposable reloading;
+
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter expired;
+
+	@Autowired
+	public ProductSnapshotStore(ProductSnapshotProperties properties, MeterRegistry meterRegistry) {
+		this(properties, meterRegistry, Clock.systemUTC());
+	}
+
+	// the snapshots are kept over restarts, so their age is measured with the wall clock
+	public ProductSnapshotStore(ProductSnapshotProperties properties, MeterRegistry meterRegistry, Clock clock) {
+		this.enabled = properties.enabled();
+		this.timeToLive = properties.timeToLive();
+		this.warmUpWindow = properties.warmUpWindow();
+		this.clock = clock;
+		this.writer = Schedulers.newSingle("snapshot-writer", true);
+		this.file = Mono.fromCallable(() -> SnapshotFile.open(properties.file(), properties.maximumSize().toBytes()))
+			.subscribeOn(Schedulers.boundedElastic())
+			.doOnNext(opened -> {
+				openedAt = clock.millis();
+				openedFile = opened;
+			})
+			.doOnError(ex -> LOG.warn("Failed to open the snapshot file: {}, continues without snapshots: {}", properties.file(), ex.toString()))
+			.onErrorResume(ex -> Mono.empty())
+			.cache();
+		this.reloading = reloads.asFlux().flatMap(Function.identity(), properties.reloadConcurrency()).subscribe();
+
+		this.hits = counter("hit", meterRegistry);
+		this.misses = counter("miss", meterRegistry);
+		this.expired = counter("expired", meterRegistry);
+		Gauge.builder("snapshot.entries", this, store -> store.openedFile == null ? 0 : store.openedFile.size())
+			.description("Product aggregates in the snapshot file")
+			.register(meterRegistry);
+
+		LOG.info("Created product snapshot store: {}", properties);
+	}
+
+	private Counter counter(String result, MeterRegistry meterRegistry) {
+		return Counter.builder("snapshot.lookups")
+			.description("Lookups of product aggregates in the snapshot file")
+			.tag("result", result)
+			.register(meterRegistry);
+	}
+
+	/**
+	 * Returns the snapshot of the product aggregate within the warm-up window, and reloads it in the background,
+	 * handing the reloaded aggregate to reloaded. Otherwise loads it with the loader and writes a snapshot of it.
+	 */
+	public Mono<ProductAggregate> get(int productId, IntFunction<Mono<ProductAggregate>> loader, Consumer<ProductAggregate> reloaded) {
+		if (!enabled) {
+			return loader.apply(productId);
+		}
+
+		return file.filter(opened -> clock.millis() - openedAt <= warmUpWindow.toMillis())
+			.publishOn(Schedulers.boundedElastic())
+			.mapNotNull(opened -> read(opened, productId))
+			.flatMap(snapshot -> {
+				reload(productId, loader, reloaded);
+				return StalenessHeaders.report(Map.of("snapshot", snapshot.age())).thenReturn(snapshot.aggregate());
+			})
+			.switchIfEmpty(Mono.defer(() -> load(productId, loader)));
+	}
+
+	public void invalidate(int productId) {
+		if (enabled) {
+			file.publishOn(writer).subscribe(opened -> opened.remove(productId));
+		}
+	}
+
+	// the pending writes are done first, pending reloads are dropped
+	@PreDestroy
+	public void close() {
+		reloading.dispose();
+		if (openedFile != null) {
+			Mono.fromRunnable(() -> {
+					try {
+						openedFile.close();
+					} catch (IOException ex) {
+						LOG.warn("Failed to close the snapshot file: {}", ex.toString());
+					}
+				})
+				.subscribeOn(writer)
+				.block(Duration.ofSeconds(10));
+		}
+		writer.dispose();
+	}
+
+	// a degraded aggregate isn't written, the snapshot of the last complete one is kept
+	private Mono<ProductAggregate> load(int productId, IntFunction<Mono<ProductAggregate>> loader) {
+		return Degradation.track(loader.apply(productId))
+			.doOnNext(loaded -> {
+				if (!loaded.degraded()) {
+					write(loaded.value());
+				}
+			})
+			.map(Degradation.Tracked::value);
+	}
+
+	// a failed or degraded reload leaves the snapshot in the cache until it expires there
+	private void reload(int productId, IntFunction<Mono<ProductAggregate>> loader, Consumer<ProductAggregate> reloaded) {
+		Mono<Void> reload = Degradation.track(Mono.defer(() -> loader.apply(productId)))
+			.filter(loaded -> !loaded.degraded())
+			.doOnNext(loaded -> {
+				write(loaded.value());
+				reloaded.accept(loaded.value());
+			})
+			.doOnError(ex -> LOG.debug("Failed to reload the snapshot of productId: {}: {}", productId, ex.toString()))
+			.onErrorResume(ex -> Mono.empty())
+			.then();
+		reloads.emitNext(reload, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+	}
+
+	private Snapshot read(SnapshotFile opened, int productId) {
+		Optional<SnapshotFile.Entry> entry = opened.get(productId);
+		if (entry.isEmpty()) {
+			misses.increment();
+			return null;
+		}
+		long age = clock.millis() - entry.get().writtenAt();
+		if (age > timeToLive.toMillis()) {
+			expired.increment();
+			return null;
+		}
+
+		try {
+			ProductAggregate aggregate = mapper.readValue(entry.get().value(), ProductAggregate.class);
+			hits.increment();
+			return new Snapshot(aggregate, Duration.ofMillis(age));
+		} catch (IOException ex) {
+			// e.g. written by a version with another ProductAggregate, it is overwritten by the next load
+			LOG.debug("Failed to read the snapshot of productId: {}: {}", productId, ex.toString());
+			misses.increment();
+			return null;
+		}
+	}
+
+	private void write(ProductAggregate aggregate) {
+		file.publishOn(writer).subscribe(opened -> {
+			try {
+				if (!opened.put(aggregate.productId(), mapper.writeValueAsBytes(aggregate), clock.millis())) {
+					LOG.debug("The product aggregate of productId: {} is too large for the snapshot file", aggregate.productId());
+				}
+			} catch (IOException ex) {
+				LOG.warn("Failed to write a snapshot of productId: {}: {}", aggregate.productId(), ex.toString());
+			}
+		});
+	}
+
+	private record Snapshot(ProductAggregate aggregate, Duration age) {}
+}
@@ -0,0 +1,159 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tech.maxjung.api.composite.product.ProductCompositeService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.util.function.Predicate.not;
+
+/**
+ * Warms up the caches on startup, so a rollout doesn't send every first request of a product to the core services.
+ * <p>
+ * Prefetches the product aggregates of the configured productIds, and of the most used ones recorded in a file on
+ * the last shutdown, through the same path as GET /product-composite/{productId}. That fills the product aggregate
+ * cache, the snapshots and the caches of the core services. At most concurrency of them are prefetched at a time.
+ * As an ApplicationRunner it runs before the readiness state is set to ACCEPTING_TRAFFIC, i.e. the service gets
+ * ready once the warm-up is done, or after its timeout. Failed prefetches, e.g. of deleted products, are skipped.
+ * <p>
+ * The most used productIds are the hottest ones of the product aggregate cache, by Caffeine's frequency sketch.
+ * <p>
+ * Publishes the counter warmup.products, tagged with result=success or failure, the gauge warmup.progress,
+ * the share of the productIds that is done, and the timer warmup.duration.
+ */
+@Component
+public class ProductWarmUp implements ApplicationRunner {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ProductWarmUp.class);
+
+	private final WarmUpProperties properties;
+	private final ProductCompositeService compositeService;
+	private final ProductAggregateCache productCache;
+
+	private volatile int planned;
+	private final AtomicInteger done = new AtomicInteger();
+
+	private final Counter prefetched;
+	private final Counter failed;
+	private final Timer duration;
+
+	public ProductWarmUp(
+		WarmUpProperties properties,
+		ProductCompositeService compositeService,
+		ProductAggregateCache productCache,
+		MeterRegistry meterRegistry
+	) {
+		this.properties = properties;
+		this.compositeService = compositeService;
+		this.productCache = productCache;
+
+		this.prefetched = counter("success", meterRegistry);
+		this.failed = counter("failure", meterRegistry);
+		this.duration = Timer.builder("warmup.duration")
+			.description("Time taken by the warm-up of the caches on startup")
+			.register(meterRegistry);
+		Gauge.builder("warmup.progress", this, ProductWarmUp::progress)
+			.description("Share of the product aggregates of the warm-up that are prefetched or failed")
+			.register(meterRegistry);
+	}
+
+	private Counter counter(String result, MeterRegistry meterRegistry) {
+		return Counter.builder("warmup.products")
+			.description("Product aggregates prefetched on startup")
+			.tag("result", result)
+			.register(meterRegistry);
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		if (!properties.enabled()) {
+			return;
+		}
+
+		List<Integer> productIds = hotProductIds();
+		planned = productIds.size();
+		LOG.info("Warms up the caches with {} product aggregates", planned);
+
+		long start = System.nanoTime();
+		Flux.fromIterable(productIds)
+			.flatMap(productId -> compositeService.getProduct(productId)
+				.doOnNext(aggregate -> prefetched.increment())
+				.onErrorResume(ex -> {
+					LOG.debug("Failed to prefetch the product aggregate of productId: {}: {}", productId, ex.toString());
+					failed.increment();
+					return Mono.empty();
+				})
+				.doOnTerminate(done::incrementAndGet), properties.concurrency())
+			.then()
+			.timeout(properties.timeout(), Mono.fromRunnable(() ->
+				LOG.warn("The warm-up timed out after {}, gets ready with {} of {} product aggregates", properties.timeout(), done.get(), planned)))
+			.block();
+
+		Duration took = Duration.ofNanos(System.nanoTime() - start);
+		duration.record(took);
+		LOG.info("Warmed up the caches in {} ms, {} prefetched, {} failed", took.toMillis(), (long) prefetched.count(), (long) failed.count());
+	}
+
+	// the most used productIds are recorded before the product aggregate cache is gone
+	@PreDestroy
+	public void recordHotProductIds() {
+		if (!properties.enabled() || properties.recordedProductIds() <= 0) {
+			return;
+		}
+
+		// without any use, e.g. with the cache disabled, the recorded productIds are kept for the next startup
+		List<Integer> hottest = productCache.hottest(properties.recordedProductIds());
+		if (hottest.isEmpty()) {
+			return;
+		}
+
+		Path file = properties.hotProductIdsFile();
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			Files.write(file, hottest.stream().map(String::valueOf).toList());
+			LOG.info("Recorded {} hot productIds in: {}", hottest.size(), file);
+		} catch (IOException ex) {
+			LOG.warn("Failed to record the hot productIds in: {}: {}", file, ex.toString());
+		}
+	}
+
+	// the configured productIds first, then the recorded ones, one per line
+	private List<Integer> hotProductIds() {
+		Set<Integer> productIds = new LinkedHashSet<>(properties.productIds());
+
+		Path file = properties.hotProductIdsFile();
+		if (Files.exists(file)) {
+			try (Stream<String> lines = Files.lines(file)) {
+				lines.map(String::strip).filter(not(String::isEmpty)).map(Integer::valueOf).forEach(productIds::add);
+			} catch (IOException | NumberFormatException ex) {
+				LOG.warn("Failed to read the hot productIds from: {}: {}", file, ex.toString());
+			}
+		}
+		return List.copyOf(productIds);
+	}
+
+	private double progress() {
+		return planned == 0 ? 0 : (double) done.get() / planned;
+	}
+}
@@ -0,0 +1,65 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Single-flight execution of calls by key: while a call for a key is in flight, further requests for the same key
+ * don't start a call of their own but get the result (or error) of the one in flight. Once it has completed,
+ * the next request starts a new call.
+ * <p>
+ * Publishes the counter coalescer.requests, tagged with result=executed or result=coalesced,
+ * and the gauge coalescer.in.flight with the number of keys having a call in flight.
+ */
+public class RequestCoalescer<K, V> {
+
+	private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+	private final Counter executedRequests;
+	private final Counter coalescedRequests;
+
+	public RequestCoalescer(String name, MeterRegistry meterRegistry) {
+		this.executedRequests = Counter.builder("coalescer.requests")
+			.description("Requests that started a call of their own")
+			.tags("name", name, "result", "executed")
+			.register(meterRegistry);
+		this.coalescedRequests = Counter.builder("coalescer.requests")
+			.description("Requests that got the result of a call already in flight")
+			.tags("name", name, "result", "coalesced")
+			.register(meterRegistry);
+		Gauge.builder("coalescer.in.flight", inFlight, ConcurrentMap::size)
+			.description("Keys having a call in flight")
+			.tag("name", name)
+			.register(meterRegistry);
+	}
+
+	public Mono<V> execute(K key, Function<? super K, Mono<V>> call) {
+		return Mono.defer(() -> {
+			AtomicBoolean started = new AtomicBoolean();
+			Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+				started.set(true);
+				return share(k, call);
+			});
+			(started.get() ? executedRequests : coalescedRequests).increment();
+			return shared;
+		});
+	}
+
+	// cache() subscribes the call once and replays its outcome to every subscriber, the call removes itself when done
+	private Mono<V> share(K key, Function<? super K, Mono<V>> call) {
+		AtomicReference<Mono<V>> self = new AtomicReference<>();
+		Mono<V> shared = call.apply(key)
+			.doFinally(signal -> inFlight.remove(key, self.get()))
+			.cache();
+		self.set(shared);
+		return shared;
+	}
+}
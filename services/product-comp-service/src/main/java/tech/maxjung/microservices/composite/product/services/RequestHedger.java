@@ -0,0 +1,151 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Signal;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Hedged requests to one core service, for idempotent lookups only.
+ * <p>
+ * If the first attempt hasn't answered after the configured latency percentile of the service's recent attempts,
+ * a second attempt is sent, to another instance (see ServiceInstances.attempts), and whichever answers first wins,
+ * the other one is cancelled. An answer is a value, an empty result or the error of a healthy instance, e.g. a 404.
+ * A failure of the instance, e.g. a 5xx or a connection error, doesn't win while the other attempt may still answer,
+ * and sends the second attempt at once. The lookup only fails if both attempts fail. Second attempts are
+ * paid for from a budget that every lookup adds maxExtraLoadPercent / 100 to, so hedging never adds more than
+ * that share of extra load, not even when the whole service is slow.
+ * <p>
+ * The latency percentile is based on all attempts, also the failed ones and the losing ones, which are timed until
+ * they are cancelled, so slow attempts aren't left out of it.
+ * <p>
+ * Publishes the timer hedging.attempt.duration and the counter hedging.requests, tagged with
+ * result=hedged or result=over-budget, both tagged with the service name.
+ */
+public class RequestHedger {
+
+	// no hedging before the latency percentile is based on a reasonable number of attempts
+	private static final long MIN_SAMPLES = 20;
+
+	// max unspent budget, limits the burst of second attempts after a long quiet period
+	private static final double MAX_BUDGET = 10;
+
+	private final boolean enabled;
+	private final double percentile;
+	private final Duration minDelay;
+	private final double budgetPerRequest;
+
+	private final Timer attemptDuration;
+	private final Counter hedgedRequests;
+	private final Counter overBudgetRequests;
+
+	private double budget;
+
+	public RequestHedger(String service, HedgingProperties properties, MeterRegistry meterRegistry) {
+		this.enabled = properties.enabled();
+		this.percentile = properties.percentile();
+		this.minDelay = properties.minDelay();
+		this.budgetPerRequest = properties.maxExtraLoadPercent() / 100;
+
+		this.attemptDuration = Timer.builder("hedging.attempt.duration")
+			.description("Duration of the attempts, until they answered, failed or were cancelled")
+			.tag("service", service)
+			.publishPercentiles(percentile)
+			.register(meterRegistry);
+		this.hedgedRequests = Counter.builder("hedging.requests")
+			.description("Lookups that sent a second attempt")
+			.tags("service", service, "result", "hedged")
+			.register(meterRegistry);
+		this.overBudgetRequests = Counter.builder("hedging.requests")
+			.description("Lookups that would have sent a second attempt but the budget was spent")
+			.tags("service", service, "result", "over-budget")
+			.register(meterRegistry);
+	}
+
+	/**
+	 * @param attempt creates a new attempt of the lookup, called once or twice, e.g. ServiceInstances.attempts
+	 */
+	public <T> Mono<T> hedge(Supplier<Mono<T>> attempt) {
+		if (!enabled) {
+			return attempt.get();
+		}
+
+		return Mono.defer(() -> {
+			addBudget();
+			if (attemptDuration.count() < MIN_SAMPLES) {
+				return timed(attempt.get());
+			}
+
+			// a failed first attempt sends the second one before the hedging delay
+			Sinks.One<Long> firstFailed = Sinks.one();
+			Mono<Signal<T>> first = timed(attempt.get())
+				.materialize()
+				.doOnNext(signal -> {
+					if (signal.isOnError() && ServiceInstances.isInstanceFailure(signal.getThrowable())) {
+						firstFailed.tryEmitValue(0L);
+					}
+				});
+			Mono<Signal<T>> second = Mono.firstWithValue(Mono.delay(hedgeDelay()), firstFailed.asMono()).flatMap(tick -> {
+				if (!tryTakeBudget()) {
+					overBudgetRequests.increment();
+					return Mono.empty();
+				}
+				hedgedRequests.increment();
+				return timed(attempt.get()).materialize();
+			});
+
+			// the first answer wins, failures are passed on once neither attempt can answer anymore
+			AtomicReference<Throwable> failure = new AtomicReference<>();
+			return Flux.merge(first, second)
+				.filter(signal -> {
+					if (signal.isOnError() && ServiceInstances.isInstanceFailure(signal.getThrowable())) {
+						failure.compareAndSet(null, signal.getThrowable());
+						return false;
+					}
+					return true;
+				})
+				.next()
+				.switchIfEmpty(Mono.error(failure::get))
+				.dematerialize();
+		});
+	}
+
+	// also failed and cancelled attempts, the slowest ones are the cancelled losers of hedged lookups
+	private <T> Mono<T> timed(Mono<T> attempt) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			return attempt.doFinally(signal -> attemptDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+		});
+	}
+
+	private Duration hedgeDelay() {
+		for (ValueAtPercentile value : attemptDuration.takeSnapshot().percentileValues()) {
+			if (value.percentile() == percentile) {
+				Duration delay = Duration.ofNanos((long) value.value(TimeUnit.NANOSECONDS));
+				return delay.compareTo(minDelay) > 0 ? delay : minDelay;
+			}
+		}
+		return minDelay;
+	}
+
+	private synchronized void addBudget() {
+		budget = Math.min(MAX_BUDGET, budget + budgetPerRequest);
+	}
+
+	private synchronized boolean tryTakeBudget() {
+		if (budget < 1) {
+			return false;
+		}
+		budget -= 1;
+		return true;
+	}
+}
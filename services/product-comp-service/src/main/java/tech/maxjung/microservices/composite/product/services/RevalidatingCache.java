@@ -0,0 +1,91 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+
+/**
+ * The last response of each lookup URL of a core service, with its ETag, to revalidate it with If-None-Match
+ * instead of fetching it again. A 304 - Not Modified answer is a few bytes instead of the whole body, and nothing
+ * to decode. Keyed by the whole URL, i.e. per instance, so a revalidated response carries the serviceAddress of
+ * the instance that confirmed it.
+ * <p>
+ * Nothing is served without asking the core service, so the responses never get stale and need no time to live.
+ * Revalidations are counted in integration.revalidations, tagged with the service and the result:
+ * not-modified or modified.
+ */
+public class RevalidatingCache {
+
+	public static final String REVALIDATIONS = "integration.revalidations";
+
+	private record Validated(String etag, Object body) {}
+
+	private final boolean enabled;
+	private final Cache<String, Validated> cache;
+	private final Counter notModified;
+	private final Counter modified;
+
+	public RevalidatingCache(String service, RevalidationProperties properties, MeterRegistry meterRegistry) {
+		this.enabled = properties.enabled();
+		this.cache = Caffeine.newBuilder()
+			.maximumSize(properties.maximumSize())
+			.build();
+		this.notModified = counter(service, "not-modified", meterRegistry);
+		this.modified = counter(service, "modified", meterRegistry);
+	}
+
+	private static Counter counter(String service, String result, MeterRegistry meterRegistry) {
+		return Counter.builder(REVALIDATIONS)
+			.description("Conditional GETs of previously fetched responses of the core services")
+			.tags("service", service, "result", result)
+			.register(meterRegistry);
+	}
+
+	/**
+	 * GETs the body of the url, or the cached one if the core service confirms it is still current.
+	 * Error responses fail like with retrieve(), with a WebClientResponseException.
+	 */
+	public <T> Mono<T> get(WebClient client, URI url, MediaType accept, Class<T> type) {
+		if (!enabled) {
+			return client.get().uri(url).accept(accept).retrieve().bodyToMono(type);
+		}
+
+		String key = url.toString();
+		Validated cached = cache.getIfPresent(key);
+		return client.get().uri(url)
+			.accept(accept)
+			.headers(headers -> {
+				if (cached != null) {
+					headers.setIfNoneMatch(cached.etag());
+				}
+			})
+			.exchangeToMono(response -> {
+				if (cached != null && response.statusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+					notModified.increment();
+					return response.releaseBody().thenReturn(type.cast(cached.body()));
+				}
+				if (!response.statusCode().is2xxSuccessful()) {
+					return response.createError();
+				}
+
+				if (cached != null) {
+					modified.increment();
+				}
+				String etag = response.headers().asHttpHeaders().getETag();
+				return response.bodyToMono(type).doOnNext(body -> {
+					if (etag != null) {
+						cache.put(key, new Validated(etag, body));
+					} else {
+						cache.invalidate(key);
+					}
+				});
+			});
+	}
+}
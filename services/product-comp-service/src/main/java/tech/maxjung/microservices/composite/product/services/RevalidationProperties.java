@@ -0,0 +1,18 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the conditional GETs of products and of pages of recommendations and reviews, bound from the
+ * {@code app.revalidation.*} properties.
+ *
+ * @param enabled     if false, every lookup fetches the whole response
+ * @param maximumSize max number of responses kept per core service for revalidation, Caffeine evicts the least
+ *                    valuable ones beyond that
+ */
+@ConfigurationProperties(prefix = "app.revalidation")
+public record RevalidationProperties(
+	@DefaultValue("true") boolean enabled,
+	@DefaultValue("10000") long maximumSize
+) {}
@@ -0,0 +1,65 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One instance of a core service, with the number of its outstanding requests and its passive health,
+ * i.e. whether it has been ejected after too many failed calls in a row.
+ */
+public class ServiceInstance {
+
+	private final String baseUrl;
+	private final AtomicInteger outstandingRequests = new AtomicInteger();
+	private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+	private volatile boolean ejected;
+	private volatile long ejectedUntil;
+
+	ServiceInstance(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	public String baseUrl() {
+		return baseUrl;
+	}
+
+	public int outstandingRequests() {
+		return outstandingRequests.get();
+	}
+
+	// an ejected instance comes back by itself once its ejection time is over
+	public boolean isEjected() {
+		return ejected && ejectedUntil - System.nanoTime() > 0;
+	}
+
+	void requestStarted() {
+		outstandingRequests.incrementAndGet();
+	}
+
+	void requestFinished() {
+		outstandingRequests.decrementAndGet();
+	}
+
+	void recordSuccess() {
+		consecutiveFailures.set(0);
+	}
+
+	/**
+	 * @return true if this failure ejected the instance
+	 */
+	boolean recordFailure(int consecutiveFailuresToEject, Duration ejectionTime) {
+		if (consecutiveFailures.incrementAndGet() < consecutiveFailuresToEject) {
+			return false;
+		}
+		consecutiveFailures.set(0);
+		ejectedUntil = System.nanoTime() + ejectionTime.toNanos();
+		ejected = true;
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return baseUrl;
+	}
+}
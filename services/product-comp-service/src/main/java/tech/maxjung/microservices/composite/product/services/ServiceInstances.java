@@ -0,0 +1,162 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import tech.maxjung.api.exceptions.InvalidInputException;
+import tech.maxjung.api.exceptions.NotFoundException;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.CoreService;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.LoadBalancing;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.function.Predicate.not;
+
+/**
+ * The instances of one core service, configured by {@code app.<service>.instances}, and the client-side load
+ * balancing of the calls over them.
+ * <p>
+ * Every call, and every attempt of a hedged call, chooses its instance on subscription with the configured strategy.
+ * The second attempt of a hedged call goes to another instance than the first one, if there is another one.
+ * Instances are ejected passively: after consecutive-failures-to-eject failed calls in a row an instance gets no
+ * calls for ejection-time. A failed call is a connection error or a 5xx, a 404 or 422 is the answer of a healthy
+ * instance, and a cancelled call (e.g. by the time limiter or as the losing attempt of a hedged call) counts as
+ * neither. If all instances are ejected, calls are spread over all of them rather than failing without a try.
+ * <p>
+ * Publishes the gauges loadbalancer.outstanding.requests and loadbalancer.instance.ejected per instance and
+ * the counter loadbalancer.ejections, all tagged with the service name.
+ */
+public class ServiceInstances {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ServiceInstances.class);
+
+	private final String service;
+	private final List<ServiceInstance> instances;
+	private final LoadBalancingStrategy strategy;
+	private final int consecutiveFailuresToEject;
+	private final Duration ejectionTime;
+
+	private final Counter ejections;
+
+	public ServiceInstances(String service, CoreService coreService, MeterRegistry meterRegistry) {
+		if (coreService.instances() == null || coreService.instances().isEmpty()) {
+			throw new IllegalArgumentException("No instances configured for the " + service + " service");
+		}
+
+		LoadBalancing loadBalancing = coreService.loadBalancing();
+		this.service = service;
+		this.instances = coreService.baseUrls().stream().map(ServiceInstance::new).toList();
+		this.strategy = LoadBalancingStrategy.of(loadBalancing.strategy());
+		this.consecutiveFailuresToEject = loadBalancing.consecutiveFailuresToEject();
+		this.ejectionTime = loadBalancing.ejectionTime();
+
+		this.ejections = Counter.builder("loadbalancer.ejections")
+			.description("Instances ejected after failed calls in a row")
+			.tag("service", service)
+			.register(meterRegistry);
+		for (ServiceInstance instance : instances) {
+			Gauge.builder("loadbalancer.outstanding.requests", instance, ServiceInstance::outstandingRequests)
+				.tags("service", service, "instance", instance.baseUrl())
+				.register(meterRegistry);
+			Gauge.builder("loadbalancer.instance.ejected", instance, i -> i.isEjected() ? 1 : 0)
+				.tags("service", service, "instance", instance.baseUrl())
+				.register(meterRegistry);
+		}
+
+		LOG.info("Balances the calls to the {} service over {} with strategy {}", service, instances, loadBalancing.strategy());
+	}
+
+	public List<ServiceInstance> instances() {
+		return instances;
+	}
+
+	public ServiceInstance choose() {
+		return choose(Set.of());
+	}
+
+	// the excluded instances are only chosen if there is no other one
+	private ServiceInstance choose(Set<ServiceInstance> excluded) {
+		List<ServiceInstance> available = instances.stream().filter(instance -> !instance.isEjected()).toList();
+		List<ServiceInstance> untried = available.stream().filter(not(excluded::contains)).toList();
+		if (!untried.isEmpty()) {
+			return strategy.choose(untried);
+		}
+		return strategy.choose(available.isEmpty() ? instances : available);
+	}
+
+	/**
+	 * @param request creates the call to the instance with the given base URL
+	 */
+	public <T> Mono<T> call(Function<String, Mono<T>> request) {
+		return call(request, Set.of(), instance -> {});
+	}
+
+	/**
+	 * The attempts of one hedged call, see RequestHedger: every attempt goes to another instance than the ones
+	 * before it, as long as there is one.
+	 *
+	 * @param request creates the call to the instance with the given base URL
+	 */
+	public <T> Supplier<Mono<T>> attempts(Function<String, Mono<T>> request) {
+		Set<ServiceInstance> tried = ConcurrentHashMap.newKeySet();
+		return () -> call(request, tried, tried::add);
+	}
+
+	private <T> Mono<T> call(Function<String, Mono<T>> request, Set<ServiceInstance> excluded, Consumer<ServiceInstance> chosen) {
+		return Mono.defer(() -> {
+			ServiceInstance instance = choose(excluded);
+			chosen.accept(instance);
+			instance.requestStarted();
+			return request.apply(instance.baseUrl())
+				.doOnSuccess(result -> instance.recordSuccess())
+				.doOnError(ex -> recordError(instance, ex))
+				.doFinally(signal -> instance.requestFinished());
+		});
+	}
+
+	/**
+	 * @param request creates the call to the instance with the given base URL
+	 */
+	public <T> Flux<T> callMany(Function<String, Flux<T>> request) {
+		return Flux.defer(() -> {
+			ServiceInstance instance = choose();
+			instance.requestStarted();
+			return request.apply(instance.baseUrl())
+				.doOnComplete(instance::recordSuccess)
+				.doOnError(ex -> recordError(instance, ex))
+				.doFinally(signal -> instance.requestFinished());
+		});
+	}
+
+	private void recordError(ServiceInstance instance, Throwable ex) {
+		if (!isInstanceFailure(ex)) {
+			instance.recordSuccess();
+		} else if (instance.recordFailure(consecutiveFailuresToEject, ejectionTime)) {
+			ejections.increment();
+			LOG.warn("Ejected {} instance {} for {} after {} failed calls in a row, last error: {}",
+				service, instance, ejectionTime, consecutiveFailuresToEject, ex.toString());
+		}
+	}
+
+	// a 404 or 422 is the answer of a healthy instance
+	static boolean isInstanceFailure(Throwable ex) {
+		if (ex instanceof NotFoundException || ex instanceof InvalidInputException) {
+			return false;
+		}
+		if (ex instanceof WebClientResponseException responseException) {
+			return responseException.getStatusCode().is5xxServerError();
+		}
+		return true;
+	}
+}
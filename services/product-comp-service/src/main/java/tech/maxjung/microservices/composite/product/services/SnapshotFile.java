@@ -0,0 +1,285 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Values keyed by an int, e.g. a productId, in a memory-mapped file of a fixed size, i.e. off the heap and kept over
+ * restarts of the service.
+ * <p>
+ * The file is a ring of records, appended one after the other. Once the end of the file is reached the next record
+ * is written at its start again, over the oldest records, which are evicted with that (FIFO). A value that is put
+ * again is appended again, the older record of it is left until it is overwritten. A removal is appended as a
+ * tombstone record, so it holds over a restart too. Only the offsets of the records are kept on the heap, the values
+ * are read from the mapping when they are asked for, the OS pages them in and out.
+ * <p>
+ * Every record has a sequence number and a CRC32 checksum. On opening, the file is scanned from its start up to the
+ * first record that isn't valid, e.g. one that was torn by a crash, and the newest record of every key wins.
+ * Anything after that record is lost, as is a file of another size or layout, which is cleared. That is fine for
+ * a cache. The records are written to the page cache of the OS, i.e. they survive a restart of the service but
+ * not necessarily one of the host, until {@link #close()} forces them to the disk.
+ * <p>
+ * Thread safe, all methods are synchronized. They may page in, i.e. block on the disk.
+ */
+public class SnapshotFile implements Closeable {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SnapshotFile.class);
+
+	private static final long FILE_MAGIC = 0x534e415053484f54L;	// "SNAPSHOT"
+	private static final int FILE_VERSION = 1;
+	private static final int FILE_HEADER_SIZE = 16;
+
+	// record types, an unwritten (zeroed) part of the file ends the records like END
+	private static final int VALUE = 0x56414c55;
+	private static final int TOMBSTONE = 0x544f4d42;
+	private static final int PADDING = 0x50414444;
+	private static final int END = 0x454e4421;
+
+	/* A record: type (4), length of the value (4), CRC32 of the rest (4), key (4), sequence (8), writtenAt (8),
+	   value (length). Records are aligned to 8 bytes, so there is always room for a padding record (type and size)
+	   or an END in front of the next one. */
+	private static final int RECORD_HEADER_SIZE = 32;
+	private static final int CRC_OFFSET = 8;
+	private static final int KEY_OFFSET = 12;
+	private static final int SEQUENCE_OFFSET = 16;
+	private static final int WRITTEN_AT_OFFSET = 24;
+
+	public record Entry(byte[] value, long writtenAt) {}
+
+	private record Slot(int type, int key, int size) {}
+
+	private final Path path;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int capacity;
+
+	// every record in [FILE_HEADER_SIZE, limit), by offset, and the offset of the current value of every key
+	private final TreeMap<Integer, Slot> slots = new TreeMap<>();
+	private final Map<Integer, Integer> index = new HashMap<>();
+
+	private int head;
+	private int limit;
+	private long sequence;
+
+	private SnapshotFile(Path path, FileChannel channel, MappedByteBuffer buffer, int capacity) {
+		this.path = path;
+		this.channel = channel;
+		this.buffer = buffer;
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Opens the file and recovers its values, or creates it, with the given size.
+	 *
+	 * @param size the size of the file in bytes, the values take a little less
+	 */
+	public static SnapshotFile open(Path path, long size) throws IOException {
+		if (size < FILE_HEADER_SIZE + RECORD_HEADER_SIZE || size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Invalid size of a snapshot file: " + size);
+		}
+		int capacity = (int) size & ~7;
+
+		if (path.getParent() != null) {
+			Files.createDirectories(path.getParent());
+		}
+		FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE);
+		try {
+			boolean resized = channel.size() != capacity;
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+			SnapshotFile file = new SnapshotFile(path, channel, buffer, capacity);
+			if (resized || buffer.getLong(0) != FILE_MAGIC || buffer.getInt(8) != FILE_VERSION) {
+				file.clear();
+			} else {
+				file.recover();
+			}
+			return file;
+		} catch (IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+
+	public synchronized Optional<Entry> get(int key) {
+		Integer offset = index.get(key);
+		if (offset == null) {
+			return Optional.empty();
+		}
+		byte[] value = new byte[buffer.getInt(offset + 4)];
+		buffer.get(offset + RECORD_HEADER_SIZE, value);
+		return Optional.of(new Entry(value, buffer.getLong(offset + WRITTEN_AT_OFFSET)));
+	}
+
+	/**
+	 * @return false if the value doesn't fit into the file at all
+	 */
+	public synchronized boolean put(int key, byte[] value, long writtenAt) {
+		if (RECORD_HEADER_SIZE + value.length > capacity - FILE_HEADER_SIZE) {
+			return false;
+		}
+		int offset = append(VALUE, key, value, writtenAt);
+		index.put(key, offset);
+		return true;
+	}
+
+	public synchronized void remove(int key) {
+		if (index.remove(key) != null) {
+			append(TOMBSTONE, key, new byte[0], 0);
+		}
+	}
+
+	public synchronized int size() {
+		return index.size();
+	}
+
+	// the values are read from the mapping until it is garbage collected, as it can't be unmapped explicitly
+	@Override
+	public synchronized void close() throws IOException {
+		buffer.force();
+		channel.close();
+	}
+
+	private int append(int type, int key, byte[] value, long writtenAt) {
+		int size = align(RECORD_HEADER_SIZE + value.length);
+		if (head + size > capacity) {
+			// wraps around, the records behind the end of this lap are the oldest ones and are dropped
+			if (head < capacity) {
+				buffer.putInt(head, END);
+			}
+			drop(slots.tailMap(head, true));
+			limit = head;
+			head = FILE_HEADER_SIZE;
+		}
+
+		int offset = head;
+		int end = offset + size;
+
+		// the records that are overwritten are dropped, the rest of the last one becomes a padding record
+		Map<Integer, Slot> overwritten = slots.subMap(offset, true, end, false);
+		int cut = overwritten.entrySet().stream().mapToInt(e -> e.getKey() + e.getValue().size()).max().orElse(end);
+		drop(overwritten);
+
+		// what follows the record is valid before the record is, in case the service stops in between
+		if (cut > end) {
+			buffer.putInt(end, PADDING);
+			buffer.putInt(end + 4, cut - end);
+			slots.put(end, new Slot(PADDING, 0, cut - end));
+		} else if (end >= limit) {
+			limit = end;
+			if (end < capacity) {
+				buffer.putInt(end, END);
+			}
+		}
+
+		// the type is written last, so a torn record is never taken for a valid one
+		buffer.putInt(offset, 0);
+		buffer.putInt(offset + 4, value.length);
+		buffer.putInt(offset + KEY_OFFSET, key);
+		buffer.putLong(offset + SEQUENCE_OFFSET, sequence++);
+		buffer.putLong(offset + WRITTEN_AT_OFFSET, writtenAt);
+		buffer.put(offset + RECORD_HEADER_SIZE, value);
+		buffer.putInt(offset + CRC_OFFSET, crc(offset, value.length));
+		buffer.putInt(offset, type);
+
+		slots.put(offset, new Slot(type, key, size));
+		head = end;
+		return offset;
+	}
+
+	private void drop(Map<Integer, Slot> dropped) {
+		for (Iterator<Map.Entry<Integer, Slot>> it = dropped.entrySet().iterator(); it.hasNext(); ) {
+			Map.Entry<Integer, Slot> slot = it.next();
+			if (slot.getValue().type() == VALUE) {
+				index.remove(slot.getValue().key(), slot.getKey());
+			}
+			it.remove();
+		}
+	}
+
+	private void clear() {
+		LOG.info("Clears the snapshot file: {}", path);
+		buffer.putLong(0, FILE_MAGIC);
+		buffer.putInt(8, FILE_VERSION);
+		buffer.putInt(FILE_HEADER_SIZE, END);
+		head = FILE_HEADER_SIZE;
+		limit = FILE_HEADER_SIZE;
+		sequence = 0;
+	}
+
+	private void recover() {
+		Map<Integer, Long> newest = new HashMap<>();
+		long maxSequence = -1;
+		int offset = FILE_HEADER_SIZE;
+		head = FILE_HEADER_SIZE;
+
+		while (offset <= capacity - 8) {
+			int type = buffer.getInt(offset);
+			if (type == PADDING) {
+				int size = buffer.getInt(offset + 4);
+				if (size < 8 || size % 8 != 0 || size > capacity - offset) {
+					break;
+				}
+				slots.put(offset, new Slot(PADDING, 0, size));
+				offset += size;
+				continue;
+			}
+			if (type != VALUE && type != TOMBSTONE || offset > capacity - RECORD_HEADER_SIZE) {
+				break;
+			}
+			int length = buffer.getInt(offset + 4);
+			if (length < 0 || length > capacity - offset - RECORD_HEADER_SIZE || buffer.getInt(offset + CRC_OFFSET) != crc(offset, length)) {
+				break;
+			}
+
+			int key = buffer.getInt(offset + KEY_OFFSET);
+			long recordSequence = buffer.getLong(offset + SEQUENCE_OFFSET);
+			int size = align(RECORD_HEADER_SIZE + length);
+			slots.put(offset, new Slot(type, key, size));
+
+			if (recordSequence > newest.getOrDefault(key, -1L)) {
+				newest.put(key, recordSequence);
+				if (type == VALUE) {
+					index.put(key, offset);
+				} else {
+					index.remove(key);
+				}
+			}
+			// the newest record overall is the one the next record follows
+			if (recordSequence > maxSequence) {
+				maxSequence = recordSequence;
+				head = offset + size;
+			}
+			offset += size;
+		}
+
+		limit = offset;
+		sequence = maxSequence + 1;
+		LOG.info("Recovered {} values from the snapshot file: {}", index.size(), path);
+	}
+
+	private int crc(int offset, int length) {
+		CRC32 crc = new CRC32();
+		crc.update(buffer.slice(offset + KEY_OFFSET, RECORD_HEADER_SIZE - KEY_OFFSET + length));
+		return (int) crc.getValue();
+	}
+
+	private static int align(int size) {
+		return (size + 7) & ~7;
+	}
+}
@@ -0,0 +1,135 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * The last good result of a lookup per key, served instead of calling the core service (stale-while-revalidate).
+ * <p>
+ * A result younger than the soft TTL is served as it is. An older one is still served at once, while a single
+ * background lookup refreshes it. If that fails, e.g. during an outage of the core service, the old result is
+ * served on until it is older than the hard TTL. Then, like for a key without a result, the lookup is made
+ * in the request and its errors are passed on.
+ * <p>
+ * A stale result is reported as a stale part of the response, with its age, see StalenessHeaders, and as degraded,
+ * see Degradation, so a product aggregate built from it isn't cached beyond the request.
+ * <p>
+ * Publishes the counters swr.lookups, tagged with result=fresh, stale or miss, and swr.refreshes, tagged with
+ * result=success or failure, both also tagged with the cache name.
+ */
+public class StaleWhileRevalidateCache<K, V> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(StaleWhileRevalidateCache.class);
+
+	private record Entry<V>(V value, long loadedAt, AtomicBoolean refreshing) {}
+
+	private final String name;
+	private final String part;
+	private final boolean enabled;
+	private final long softTtlNanos;
+	private final Ticker ticker;
+	private final Cache<K, Entry<V>> cache;
+
+	private final Counter freshLookups;
+	private final Counter staleLookups;
+	private final Counter missedLookups;
+	private final Counter refreshes;
+	private final Counter failedRefreshes;
+
+	/**
+	 * @param part the name of the stale part of a response, e.g. "reviews" for the header X-Reviews-Age
+	 */
+	public StaleWhileRevalidateCache(String name, String part, StaleWhileRevalidateProperties properties, MeterRegistry meterRegistry) {
+		this(name, part, properties, meterRegistry, Ticker.systemTicker());
+	}
+
+	public StaleWhileRevalidateCache(String name, String part, StaleWhileRevalidateProperties properties, MeterRegistry meterRegistry, Ticker ticker) {
+		this.name = name;
+		this.part = part;
+		this.enabled = properties.enabled();
+		this.softTtlNanos = properties.softTtl().toNanos();
+		this.ticker = ticker;
+		this.cache = Caffeine.newBuilder()
+			.maximumSize(properties.maximumSize())
+			.expireAfterWrite(properties.hardTtl())
+			.ticker(ticker)
+			.build();
+
+		this.freshLookups = counter("swr.lookups", "Lookups served from the cache", "fresh", meterRegistry);
+		this.staleLookups = counter("swr.lookups", "Lookups served from the cache while it is refreshed", "stale", meterRegistry);
+		this.missedLookups = counter("swr.lookups", "Lookups passed on to the core service", "miss", meterRegistry);
+		this.refreshes = counter("swr.refreshes", "Background refreshes of stale results", "success", meterRegistry);
+		this.failedRefreshes = counter("swr.refreshes", "Background refreshes of stale results", "failure", meterRegistry);
+	}
+
+	private Counter counter(String metric, String description, String result, MeterRegistry meterRegistry) {
+		return Counter.builder(metric)
+			.description(description)
+			.tags("name", name, "result", result)
+			.register(meterRegistry);
+	}
+
+	/**
+	 * @param lookup the lookup in the core service, without a fallback, as only its good results are kept
+	 */
+	public Mono<V> get(K key, Supplier<Mono<V>> lookup) {
+		if (!enabled) {
+			return lookup.get();
+		}
+
+		return Mono.deferContextual(context -> {
+			Entry<V> entry = cache.getIfPresent(key);
+			if (entry == null) {
+				missedLookups.increment();
+				return lookup.get().doOnNext(value -> put(key, value));
+			}
+			long age = ticker.read() - entry.loadedAt();
+			if (age < softTtlNanos) {
+				freshLookups.increment();
+				return Mono.just(entry.value());
+			}
+
+			staleLookups.increment();
+			// the refresh runs detached from the request, bounded by the time limiter of the lookup
+			if (entry.refreshing().compareAndSet(false, true)) {
+				LOG.debug("Refreshes the stale {} of key: {}", name, key);
+				lookup.get()
+					.contextWrite(context)
+					.doFinally(signal -> entry.refreshing().set(false))
+					.subscribe(
+						value -> {
+							refreshes.increment();
+							put(key, value);
+						},
+						ex -> {
+							failedRefreshes.increment();
+							LOG.warn("Failed to refresh the {} of key: {}, serves the stale ones: {}", name, key, ex.toString());
+						});
+			}
+			return Degradation.report()
+				.then(StalenessHeaders.report(Map.of(part, Duration.ofNanos(age))))
+				.thenReturn(entry.value());
+		});
+	}
+
+	// scans all keys, meant for the rare writes
+	public void invalidateIf(Predicate<K> predicate) {
+		cache.asMap().keySet().removeIf(predicate);
+	}
+
+	private void put(K key, V value) {
+		cache.put(key, new Entry<>(value, ticker.read(), new AtomicBoolean()));
+	}
+}
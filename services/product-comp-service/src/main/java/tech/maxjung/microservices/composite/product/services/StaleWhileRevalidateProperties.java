@@ -0,0 +1,30 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the last good first pages of recommendations and reviews, bound from the
+ * {@code app.stale-while-revalidate.*} properties, see StaleWhileRevalidateCache.
+ *
+ * @param enabled     if false, a failing recommendation or review lookup falls back to an empty page
+ * @param softTtl     a page older than this is still served, but refreshed in the background
+ * @param hardTtl     a page older than this is dropped, also if the core service can't be reached
+ * @param maximumSize max number of pages kept per core service, Caffeine evicts the least valuable ones beyond that
+ */
+@ConfigurationProperties(prefix = "app.stale-while-revalidate")
+public record StaleWhileRevalidateProperties(
+	@DefaultValue("false") boolean enabled,
+	@DefaultValue("30s") Duration softTtl,
+	@DefaultValue("10m") Duration hardTtl,
+	@DefaultValue("10000") long maximumSize
+) {
+
+	public StaleWhileRevalidateProperties {
+		if (softTtl.compareTo(hardTtl) >= 0) {
+			throw new IllegalArgumentException("Invalid stale-while-revalidate soft-ttl: " + softTtl + ", must be below hard-ttl: " + hardTtl);
+		}
+	}
+}
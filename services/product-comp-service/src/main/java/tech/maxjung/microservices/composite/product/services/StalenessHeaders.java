@@ -0,0 +1,69 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells the clients which parts of a product aggregate are served stale, see StaleWhileRevalidateCache:
+ * for each of them the response gets a header with its age in seconds, X-Recommendations-Age and X-Reviews-Age.
+ * A whole product aggregate served from a snapshot gets X-Snapshot-Age, see ProductSnapshotStore.
+ * Parts that are fresh get none.
+ * <p>
+ * The filter passes a map of the stale parts down to the endpoints in the Reactor context,
+ * and sets the headers from it when the response is committed. A result that is shared by several requests, e.g. a
+ * cached one, captures its stale parts with {@link #capture(Mono)}, so each of the requests can report them.
+ */
+@Component
+public class StalenessHeaders implements WebFilter {
+
+	private static final Class<StalenessHeaders> STALE_PARTS = StalenessHeaders.class;
+
+	public record Captured<T>(T value, Map<String, Duration> staleParts) {}
+
+	@Override
+	public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+		Map<String, Duration> staleParts = new ConcurrentHashMap<>();
+		exchange.getResponse().beforeCommit(() -> {
+			staleParts.forEach((part, age) ->
+				exchange.getResponse().getHeaders().set(header(part), String.valueOf(age.toSeconds())));
+			return Mono.empty();
+		});
+		return chain.filter(exchange)
+			.contextWrite(context -> context.put(STALE_PARTS, staleParts));
+	}
+
+	/**
+	 * @param staleParts the ages of the stale parts of the response, by their names, e.g. "reviews"
+	 */
+	public static Mono<Void> report(Map<String, Duration> staleParts) {
+		return Mono.deferContextual(context -> {
+			context.<Map<String, Duration>>getOrEmpty(STALE_PARTS).ifPresent(parts -> parts.putAll(staleParts));
+			return Mono.empty();
+		});
+	}
+
+	/**
+	 * Runs the load with a map of stale parts of its own, instead of the one of the request, and returns them
+	 * together with its result.
+	 */
+	public static <T> Mono<Captured<T>> capture(Mono<T> load) {
+		return Mono.defer(() -> {
+			Map<String, Duration> staleParts = new ConcurrentHashMap<>();
+			return load
+				.map(value -> new Captured<>(value, Map.copyOf(staleParts)))
+				.contextWrite(context -> context.put(STALE_PARTS, staleParts));
+		});
+	}
+
+	private static String header(String part) {
+		return "X-" + StringUtils.capitalize(part) + "-Age";
+	}
+}
@@ -0,0 +1,29 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings of the warm-up of the caches on startup, bound from the {@code app.warm-up.*} properties, see ProductWarmUp.
+ *
+ * @param enabled             if false, the service starts with cold caches and records no hot productIds
+ * @param productIds          productIds that are always prefetched, before the recorded ones
+ * @param hotProductIdsFile   the most used productIds are recorded in this file on shutdown, and prefetched from it
+ *                            on the next startup
+ * @param recordedProductIds  max number of productIds recorded on shutdown, 0 records none
+ * @param concurrency         max number of product aggregates prefetched at a time
+ * @param timeout             the service gets ready after this time, even if the warm-up isn't done
+ */
+@ConfigurationProperties(prefix = "app.warm-up")
+public record WarmUpProperties(
+	@DefaultValue("false") boolean enabled,
+	@DefaultValue List<Integer> productIds,
+	@DefaultValue("build/warm-up/hot-product-ids.txt") Path hotProductIdsFile,
+	@DefaultValue("1000") int recordedProductIds,
+	@DefaultValue("8") int concurrency,
+	@DefaultValue("60s") Duration timeout
+) {}
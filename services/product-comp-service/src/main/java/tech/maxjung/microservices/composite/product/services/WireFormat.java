@@ -0,0 +1,31 @@
+package tech.maxjung.microservices.composite.product.services;
+
+import org.springframework.http.MediaType;
+
+/**
+ * The format of the request and response bodies exchanged with the core services, configured by
+ * {@code app.wire-format}. Smile is a binary form of JSON, mapped by the same Jackson annotations, that is
+ * smaller and cheaper to write and parse, mostly as it doesn't repeat the property names of the objects in a list.
+ */
+public enum WireFormat {
+
+	JSON(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON),
+	SMILE(new MediaType("application", "x-jackson-smile"), new MediaType("application", "stream+x-jackson-smile"));
+
+	private final MediaType mediaType;
+	private final MediaType streamMediaType;
+
+	WireFormat(MediaType mediaType, MediaType streamMediaType) {
+		this.mediaType = mediaType;
+		this.streamMediaType = streamMediaType;
+	}
+
+	public MediaType mediaType() {
+		return mediaType;
+	}
+
+	// the media type of a stream of single values, decoded one by one
+	public MediaType streamMediaType() {
+		return streamMediaType;
+	}
+}
@@ -0,0 +1,119 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tech.maxjung.api.exceptions.NotFoundException;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.ConnectionPool;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.CoreService;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.LoadBalancing;
+import tech.maxjung.microservices.composite.product.services.HedgingProperties;
+import tech.maxjung.microservices.composite.product.services.IntegrationMetrics;
+import tech.maxjung.microservices.composite.product.services.LoadBalancingStrategy;
+import tech.maxjung.microservices.composite.product.services.ProductCompositeIntegration;
+import tech.maxjung.microservices.composite.product.services.RevalidationProperties;
+import tech.maxjung.microservices.composite.product.services.StaleWhileRevalidateProperties;
+import tech.maxjung.microservices.composite.product.services.WireFormat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+class IntegrationMetricsTests {
+
+	private static final String PRODUCT_JSON = "{\"productId\":1,\"name\":\"name\",\"weight\":1,\"serviceAddress\":\"address\"}";
+
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	void successfulCallIsTimedWithItsStatusAndResponseSize() {
+		ProductCompositeIntegration integration = integration(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+			.header(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON_VALUE)
+			.body(PRODUCT_JSON)
+			.build()));
+
+		StepVerifier.create(integration.getProduct(1)).expectNextCount(1).verifyComplete();
+
+		assertEquals(1, timer("product", "getProduct", "SUCCESS", "200").count());
+		DistributionSummary responseSize = meterRegistry.find(IntegrationMetrics.RESPONSE_SIZE)
+			.tags("service", "product", "method", "getProduct")
+			.summary();
+		assertNotNull(responseSize);
+		assertEquals(PRODUCT_JSON.length(), responseSize.totalAmount());
+	}
+
+	@Test
+	void errorResponseIsTimedWithItsStatusAndException() {
+		ProductCompositeIntegration integration = integration(request -> Mono.just(
+			ClientResponse.create(HttpStatus.NOT_FOUND).build()));
+
+		StepVerifier.create(integration.getProduct(13)).expectError(NotFoundException.class).verify();
+
+		Timer timer = timer("product", "getProduct", "CLIENT_ERROR", "404");
+		assertEquals(1, timer.count());
+		assertEquals("NotFoundException", timer.getId().getTag("exception"));
+	}
+
+	@Test
+	void timeoutIsTimedAlthoughTheLookupFallsBack() {
+		ProductCompositeIntegration integration = integration(request -> Mono.never());
+
+		StepVerifier.create(integration.getReviewPage(1, null, 20)).expectNextCount(1).verifyComplete();
+
+		Timer timer = timer("review", "getReviewPage", "UNKNOWN", "NONE");
+		assertEquals(1, timer.count());
+		assertEquals("TimeoutException", timer.getId().getTag("exception"));
+	}
+
+	private Timer timer(String service, String method, String outcome, String status) {
+		Timer timer = meterRegistry.find(IntegrationMetrics.CALLS)
+			.tags("service", service, "method", method, "outcome", outcome, "status", status)
+			.timer();
+		assertNotNull(timer, "no timer for " + method + " with outcome " + outcome + " and status " + status);
+		return timer;
+	}
+
+	private ProductCompositeIntegration integration(Function<ClientRequest, Mono<ClientResponse>> exchange) {
+		ConnectionPool pool = new ConnectionPool(10, 10, Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofSeconds(60));
+		LoadBalancing loadBalancing = new LoadBalancing(LoadBalancingStrategy.Type.ROUND_ROBIN, 5, Duration.ofSeconds(30));
+		CoreServicesProperties coreServices = new CoreServicesProperties(
+			new CoreService(List.of("product:7001"), pool, loadBalancing),
+			new CoreService(List.of("recommendation:7002"), pool, loadBalancing),
+			new CoreService(List.of("review:7003"), pool, loadBalancing),
+			WireFormat.SMILE);
+
+		return new ProductCompositeIntegration(
+			WebClient.builder().exchangeFunction(exchange::apply),
+			coreServices,
+			CircuitBreakerRegistry.ofDefaults(),
+			TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofMillis(200)).build()),
+			BulkheadRegistry.ofDefaults(),
+			new HedgingProperties(false, 0.95, Duration.ofMillis(10), 10),
+			new RevalidationProperties(true, 100),
+			new StaleWhileRevalidateProperties(false, Duration.ofSeconds(30), Duration.ofMinutes(10), 100),
+			meterRegistry);
+	}
+}
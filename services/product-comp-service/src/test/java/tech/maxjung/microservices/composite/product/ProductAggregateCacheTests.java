@@ -0,0 +1,133 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tech.maxjung.api.composite.product.ProductAggregate;
+import tech.maxjung.api.exceptions.NotFoundException;
+import tech.maxjung.microservices.composite.product.services.Degradation;
+import tech.maxjung.microservices.composite.product.services.ProductAggregateCache;
+import tech.maxjung.microservices.composite.product.services.ProductCacheProperties;
+import tech.maxjung.microservices.composite.product.services.StaleWhileRevalidateProperties;
+import tech.maxjung.microservices.composite.product.services.StalenessHeaders;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductAggregateCacheTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private ProductAggregateCache cache;
+	private AtomicInteger loads;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		cache = new ProductAggregateCache(new ProductCacheProperties(true, 100, Duration.ofMinutes(5)), meterRegistry);
+		loads = new AtomicInteger();
+	}
+
+	@Test
+	void loadsOnceAndServesHitsFromTheCache() {
+		StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+
+		assertEquals(1, loads.get());
+		assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "product-composite").tag("result", "hit").functionCounter().count());
+		assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "product-composite").tag("result", "miss").functionCounter().count());
+	}
+
+	@Test
+	void invalidateForcesAReload() {
+		StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+		cache.invalidate(1);
+		StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void doesNotCacheErrors() {
+		StepVerifier.create(cache.get(1, id -> Mono.error(new NotFoundException("No product found for productId: " + id))))
+			.expectError(NotFoundException.class)
+			.verify();
+
+		StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void doesNotCacheDegradedAggregates() {
+		// e.g. the reviews fell back to an empty page in the integration
+		IntFunction<Mono<ProductAggregate>> degradedLoad = id -> Degradation.report().then(load(id));
+
+		StepVerifier.create(cache.get(1, degradedLoad)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void reportsTheStalePartsOfACachedAggregateOnEveryLookup() {
+		// e.g. an aggregate served from a snapshot
+		IntFunction<Mono<ProductAggregate>> staleLoad = id -> StalenessHeaders.report(Map.of("snapshot", Duration.ofMinutes(1))).then(load(id));
+
+		StepVerifier.create(StalenessHeaders.capture(cache.get(1, staleLoad)))
+			.assertNext(captured -> assertEquals(60, captured.staleParts().get("snapshot").toSeconds()))
+			.verifyComplete();
+		StepVerifier.create(StalenessHeaders.capture(cache.get(1, this::load)))
+			.assertNext(captured -> assertTrue(captured.staleParts().get("snapshot").compareTo(Duration.ofMinutes(1)) >= 0))
+			.verifyComplete();
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void timeToLiveMustNotExceedTheSoftTtlOfStaleWhileRevalidate() {
+		assertThrows(IllegalArgumentException.class, () -> new ProductAggregateCache(
+			new ProductCacheProperties(true, 100, Duration.ofMinutes(5)),
+			new StaleWhileRevalidateProperties(true, Duration.ofSeconds(30), Duration.ofMinutes(10), 100),
+			meterRegistry));
+	}
+
+	@Test
+	void replacesOnlyACachedAggregate() {
+		IntFunction<Mono<ProductAggregate>> snapshotLoad = id -> StalenessHeaders.report(Map.of("snapshot", Duration.ofMinutes(1))).then(load(id));
+		ProductAggregate renamed = new ProductAggregate(1, "renamed", 1, List.of(), List.of(), null, null, null);
+		cache.replace(renamed);
+		StepVerifier.create(cache.get(1, snapshotLoad)).expectNextMatches(aggregate -> aggregate.name().equals("name")).verifyComplete();
+
+		// e.g. by the reload of a snapshot, which is fresh
+		cache.replace(renamed);
+		StepVerifier.create(StalenessHeaders.capture(cache.get(1, this::load)))
+			.expectNext(new StalenessHeaders.Captured<>(renamed, Map.of()))
+			.verifyComplete();
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void passesThroughWhenDisabled() {
+		cache = new ProductAggregateCache(new ProductCacheProperties(false, 100, Duration.ofMinutes(5)), meterRegistry);
+
+		StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(cache.get(1, this::load)).expectNextCount(1).verifyComplete();
+
+		assertEquals(2, loads.get());
+	}
+
+	private Mono<ProductAggregate> load(int productId) {
+		return Mono.fromSupplier(() -> {
+			loads.incrementAndGet();
+			return new ProductAggregate(productId, "name", 1, List.of(), List.of(), null, null, null);
+		});
+	}
+}
@@ -7,29 +7,50 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import tech.maxjung.api.composite.product.ProductAggregate;
 import tech.maxjung.api.composite.product.RecommendationSummary;
 import tech.maxjung.api.composite.product.ReviewSummary;
 import tech.maxjung.api.core.product.Product;
 import tech.maxjung.api.core.recommendation.Recommendation;
+import tech.maxjung.api.core.recommendation.RecommendationPage;
 import tech.maxjung.api.core.review.Review;
+import tech.maxjung.api.core.review.ReviewPage;
 import tech.maxjung.api.exceptions.InvalidInputException;
 import tech.maxjung.api.exceptions.NotFoundException;
 import tech.maxjung.microservices.composite.product.services.ProductCompositeIntegration;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.intThat;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static reactor.core.publisher.Mono.just;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+// the product aggregate cache is covered by ProductAggregateCacheTests, here every request should reach the mocks
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"app.product-composite.cache.enabled=false"})
 class ProductCompositeServiceApplicationTests {
 
 	private static final int PRODUCT_ID_OK = 1;
 	private static final int PRODUCT_ID_NOT_FOUND = 2;
 	private static final int PRODUCT_ID_INVALID = 3;
+	private static final int PRODUCT_ID_CONCURRENT = 4;
 
 	@Autowired
 	private WebTestClient client;
@@ -40,17 +61,33 @@ class ProductCompositeServiceApplicationTests {
 	@BeforeEach
 	void setUp() {
 		when(compositeIntegration.getProduct(PRODUCT_ID_OK))
-			.thenReturn(new Product(PRODUCT_ID_OK, "name", 1, "mock-address"));
-		when(compositeIntegration.getRecommendations(PRODUCT_ID_OK))
-			.thenReturn(singletonList(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")));
-		when(compositeIntegration.getReviews(PRODUCT_ID_OK))
-			.thenReturn(singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")));
+			.thenReturn(Mono.just(new Product(PRODUCT_ID_OK, "name", 1, "mock-address")));
+		when(compositeIntegration.getRecommendationPage(eq(PRODUCT_ID_OK), isNull(), anyInt()))
+			.thenReturn(Mono.just(new RecommendationPage(
+				singletonList(new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")), null)));
+		when(compositeIntegration.getReviewPage(eq(PRODUCT_ID_OK), isNull(), anyInt()))
+			.thenReturn(Mono.just(new ReviewPage(
+				singletonList(new Review(PRODUCT_ID_OK, 1, "author", "subject", "content", "mock address")), "1")));
 
 		when(compositeIntegration.getProduct(PRODUCT_ID_NOT_FOUND))
-			.thenThrow(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND));
+			.thenReturn(Mono.error(new NotFoundException("NOT FOUND: " + PRODUCT_ID_NOT_FOUND)));
 
 		when(compositeIntegration.getProduct(PRODUCT_ID_INVALID))
-			.thenThrow(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID));
+			.thenReturn(Mono.error(new InvalidInputException("INVALID: " + PRODUCT_ID_INVALID)));
+
+		// lookups of other products find nothing
+		when(compositeIntegration.getRecommendationPage(intThat(id -> id != PRODUCT_ID_OK), any(), anyInt()))
+			.thenReturn(Mono.just(new RecommendationPage(List.of(), null)));
+		when(compositeIntegration.getReviewPage(intThat(id -> id != PRODUCT_ID_OK), any(), anyInt()))
+			.thenReturn(Mono.just(new ReviewPage(List.of(), null)));
+
+		when(compositeIntegration.createProduct(any())).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+		when(compositeIntegration.createRecommendations(any())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+		when(compositeIntegration.createReviews(any())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+		when(compositeIntegration.deleteProduct(anyInt())).thenReturn(Mono.empty());
+		when(compositeIntegration.deleteRecommendations(anyInt())).thenReturn(Mono.empty());
+		when(compositeIntegration.deleteReviews(anyInt())).thenReturn(Mono.empty());
 	}
 
 	@Test
@@ -62,7 +99,9 @@ class ProductCompositeServiceApplicationTests {
 		getAndVerifyProduct(PRODUCT_ID_OK, OK)
 			.jsonPath("$.productId").isEqualTo(PRODUCT_ID_OK)
 			.jsonPath("$.recommendations.length()").isEqualTo(1)
-			.jsonPath("$.reviews.length()").isEqualTo(1);
+			.jsonPath("$.reviews.length()").isEqualTo(1)
+			.jsonPath("$.recommendationsContinuationToken").isEmpty()
+			.jsonPath("$.reviewsContinuationToken").isEqualTo("1");
 	}
 
 	@Test
@@ -79,9 +118,86 @@ class ProductCompositeServiceApplicationTests {
 			.jsonPath("$.message").isEqualTo("INVALID: " + PRODUCT_ID_INVALID);
 	}
 
+	@Test
+	void getProductCallsCoreServicesConcurrently() {
+		// each lookup only emits once all three of them are in flight, i.e. a sequential call chain would time out
+		AtomicInteger startedCalls = new AtomicInteger();
+		CompletableFuture<Void> allCallsStarted = new CompletableFuture<>();
+
+		when(compositeIntegration.getProduct(PRODUCT_ID_CONCURRENT)).thenReturn(
+			afterAllCallsStarted(startedCalls, allCallsStarted, new Product(PRODUCT_ID_CONCURRENT, "name", 1, "mock-address")));
+		when(compositeIntegration.getRecommendationPage(eq(PRODUCT_ID_CONCURRENT), any(), anyInt())).thenReturn(
+			afterAllCallsStarted(startedCalls, allCallsStarted, new RecommendationPage(
+				singletonList(new Recommendation(PRODUCT_ID_CONCURRENT, 1, "author", 1, "content", "mock address")), null)));
+		when(compositeIntegration.getReviewPage(eq(PRODUCT_ID_CONCURRENT), any(), anyInt())).thenReturn(
+			afterAllCallsStarted(startedCalls, allCallsStarted, new ReviewPage(
+				singletonList(new Review(PRODUCT_ID_CONCURRENT, 1, "author", "subject", "content", "mock address")), null)));
+
+		getAndVerifyProduct(PRODUCT_ID_CONCURRENT, OK)
+			.jsonPath("$.productId").isEqualTo(PRODUCT_ID_CONCURRENT)
+			.jsonPath("$.recommendations.length()").isEqualTo(1)
+			.jsonPath("$.reviews.length()").isEqualTo(1);
+	}
+
+	@Test
+	void getProductNotFoundWhenIntegrationReturnsNothing() {
+		int productIdMissing = 5;
+		when(compositeIntegration.getProduct(productIdMissing)).thenReturn(Mono.empty());
+
+		getAndVerifyProduct(productIdMissing, NOT_FOUND)
+			.jsonPath("$.message").isEqualTo("No product found for productId: " + productIdMissing);
+	}
+
+	@Test
+	void getProductsByIds() {
+		int productIdMany = 7;
+		int productIdMissing = 8;
+		when(compositeIntegration.getProducts(List.of(productIdMany, productIdMissing, PRODUCT_ID_OK))).thenReturn(Flux.just(
+			new Product(PRODUCT_ID_OK, "name", 1, "mock-address"),
+			new Product(productIdMany, "name", 1, "mock-address")));
+		// the core services return one more than a page per product, so the composite can tell that there are more
+		when(compositeIntegration.getRecommendationsOfProducts(any(), eq(20))).thenReturn(Flux.just(
+			new Recommendation(PRODUCT_ID_OK, 1, "author", 1, "content", "mock address")));
+		when(compositeIntegration.getReviewsOfProducts(any(), eq(20))).thenReturn(Flux.range(1, 21)
+			.map(reviewId -> new Review(productIdMany, reviewId, "author", "subject", "content", "mock address")));
+
+		// duplicate ids are looked up once, missing products are left out, the rest is in the order of the ids
+		client.get()
+			.uri("/product-composite?ids=" + productIdMany + "," + productIdMissing + "," + PRODUCT_ID_OK + "," + productIdMany)
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(2)
+			.jsonPath("$[0].productId").isEqualTo(productIdMany)
+			.jsonPath("$[0].recommendations.length()").isEqualTo(0)
+			.jsonPath("$[0].reviews.length()").isEqualTo(20)
+			.jsonPath("$[0].reviewsContinuationToken").isEqualTo("20")
+			.jsonPath("$[1].productId").isEqualTo(PRODUCT_ID_OK)
+			.jsonPath("$[1].recommendations.length()").isEqualTo(1)
+			.jsonPath("$[1].reviews.length()").isEqualTo(0)
+			.jsonPath("$[1].reviewsContinuationToken").isEmpty();
+
+		verify(compositeIntegration, never()).getProduct(anyInt());
+	}
+
+	@Test
+	void getProductsByTooManyIds() {
+		String ids = IntStream.rangeClosed(1, 101).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+		client.get()
+			.uri("/product-composite?ids=" + ids)
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isEqualTo(UNPROCESSABLE_ENTITY)
+			.expectBody()
+			.jsonPath("$.message").isEqualTo("Invalid number of ids: 101");
+	}
+
 	@Test
 	void createCompositeProductSimple() {
-		ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1, null, null, null);
+		ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1, null, null, null, null, null);
 		postAndVerifyProduct(compositeProduct, OK);
 	}
 
@@ -90,15 +206,29 @@ class ProductCompositeServiceApplicationTests {
 		ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
 			singletonList(new RecommendationSummary(1, "a", 1, "c")),
 			singletonList(new ReviewSummary(1, "a", "s", "c")),
-			null);
+			null, null, null);
 		postAndVerifyProduct(compositeProduct, OK);
 	}
 
+	@Test
+	void createCompositeProductPostsRecommendationsAndReviewsInBatches() {
+		ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
+			List.of(new RecommendationSummary(1, "a", 1, "c"), new RecommendationSummary(2, "a", 2, "c")),
+			List.of(new ReviewSummary(1, "a", "s", "c"), new ReviewSummary(2, "a", "s", "c"), new ReviewSummary(3, "a", "s", "c")),
+			null, null, null);
+		postAndVerifyProduct(compositeProduct, OK);
+
+		verify(compositeIntegration).createRecommendations(argThat(recommendations -> recommendations.size() == 2));
+		verify(compositeIntegration).createReviews(argThat(reviews -> reviews.size() == 3));
+		verify(compositeIntegration, never()).createRecommendation(any());
+		verify(compositeIntegration, never()).createReview(any());
+	}
+
 	@Test
 	void deleteCompositeProduct() {
 		ProductAggregate compositeProduct = new ProductAggregate(1, "name", 1,
 			singletonList(new RecommendationSummary(1, "a", 1, "c")),
-			singletonList(new ReviewSummary(1, "a", "s", "c")), null);
+			singletonList(new ReviewSummary(1, "a", "s", "c")), null, null, null);
 		postAndVerifyProduct(compositeProduct, OK);
 
 		deleteAndVerifyProduct(compositeProduct.productId(), OK);
@@ -106,6 +236,15 @@ class ProductCompositeServiceApplicationTests {
 	}
 
 
+	private static <T> Mono<T> afterAllCallsStarted(AtomicInteger startedCalls, CompletableFuture<Void> allCallsStarted, T value) {
+		return Mono.defer(() -> {
+			if (startedCalls.incrementAndGet() == 3) {
+				allCallsStarted.complete(null);
+			}
+			return Mono.fromFuture(allCallsStarted).timeout(Duration.ofSeconds(5)).thenReturn(value);
+		});
+	}
+
 	private WebTestClient.BodyContentSpec getAndVerifyProduct(int productId, HttpStatus expectedStatus) {
 		return client.get()
 			.uri("/product-composite/" + productId)
@@ -0,0 +1,141 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tech.maxjung.api.exceptions.NotFoundException;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.ConnectionPool;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.CoreService;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.LoadBalancing;
+import tech.maxjung.microservices.composite.product.services.HedgingProperties;
+import tech.maxjung.microservices.composite.product.services.LoadBalancingStrategy;
+import tech.maxjung.microservices.composite.product.services.ProductCompositeIntegration;
+import tech.maxjung.microservices.composite.product.services.RevalidationProperties;
+import tech.maxjung.microservices.composite.product.services.StaleWhileRevalidateProperties;
+import tech.maxjung.microservices.composite.product.services.WireFormat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductCompositeIntegrationResilienceTests {
+
+	private static final Duration TIMEOUT = Duration.ofMillis(200);
+
+	private CircuitBreakerRegistry circuitBreakerRegistry;
+	private AtomicInteger reviewRequests;
+
+	@BeforeEach
+	void setUp() {
+		circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+			.slidingWindowSize(4)
+			.minimumNumberOfCalls(4)
+			.failureRateThreshold(50)
+			.waitDurationInOpenState(Duration.ofMinutes(1))
+			.ignoreExceptions(NotFoundException.class)
+			.build());
+		reviewRequests = new AtomicInteger();
+	}
+
+	@Test
+	void slowReviewServiceFallsBackToAnEmptyPage() {
+		ProductCompositeIntegration integration = integration(request -> Mono.never());
+
+		StepVerifier.create(integration.getReviewPage(1, null, 20))
+			.assertNext(page -> assertTrue(page.reviews().isEmpty()))
+			.expectComplete()
+			.verify(TIMEOUT.multipliedBy(5));
+	}
+
+	@Test
+	void circuitOpensAfterRepeatedTimeoutsAndFailsFast() {
+		ProductCompositeIntegration integration = integration(request -> Mono.never());
+
+		for (int i = 0; i < 4; i++) {
+			StepVerifier.create(integration.getReviewPage(1, null, 20)).expectNextCount(1).verifyComplete();
+		}
+		assertEquals(CircuitBreaker.State.OPEN, circuitBreakerRegistry.circuitBreaker("review").getState());
+
+		StepVerifier.create(integration.getReviewPage(1, null, 20))
+			.assertNext(page -> assertTrue(page.reviews().isEmpty()))
+			.expectComplete()
+			.verify(TIMEOUT.dividedBy(2));
+		assertEquals(4, reviewRequests.get());
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.circuitBreaker("recommendation").getState());
+	}
+
+	@Test
+	void bulkheadRejectsCallsBeyondTheConcurrencyLimit() {
+		ProductCompositeIntegration integration = integration(request -> Mono.never());
+
+		Disposable first = integration.getReviewPage(1, null, 20).subscribe();
+		Disposable second = integration.getReviewPage(2, null, 20).subscribe();
+
+		StepVerifier.create(integration.getReviewPage(3, null, 20))
+			.assertNext(page -> assertTrue(page.reviews().isEmpty()))
+			.expectComplete()
+			.verify(TIMEOUT.dividedBy(2));
+		assertEquals(2, reviewRequests.get());
+
+		first.dispose();
+		second.dispose();
+	}
+
+	@Test
+	void unknownProductsDontOpenTheCircuit() {
+		ProductCompositeIntegration integration = integration(request -> Mono.just(
+			ClientResponse.create(HttpStatus.NOT_FOUND).build()));
+
+		for (int i = 0; i < 5; i++) {
+			StepVerifier.create(integration.getProduct(13)).expectError(NotFoundException.class).verify();
+		}
+		assertEquals(CircuitBreaker.State.CLOSED, circuitBreakerRegistry.circuitBreaker("product").getState());
+	}
+
+	private ProductCompositeIntegration integration(Function<ClientRequest, Mono<ClientResponse>> exchange) {
+		WebClient.Builder webClientBuilder = WebClient.builder().exchangeFunction(request -> {
+			if (request.url().getPath().startsWith("/review")) {
+				reviewRequests.incrementAndGet();
+			}
+			return exchange.apply(request);
+		});
+
+		ConnectionPool pool = new ConnectionPool(10, 10, Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofSeconds(60));
+		LoadBalancing loadBalancing = new LoadBalancing(LoadBalancingStrategy.Type.ROUND_ROBIN, 5, Duration.ofSeconds(30));
+		CoreServicesProperties coreServices = new CoreServicesProperties(
+			new CoreService(List.of("product:7001"), pool, loadBalancing),
+			new CoreService(List.of("recommendation:7002"), pool, loadBalancing),
+			new CoreService(List.of("review:7003"), pool, loadBalancing),
+			WireFormat.SMILE);
+
+		return new ProductCompositeIntegration(
+			webClientBuilder,
+			coreServices,
+			circuitBreakerRegistry,
+			TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(TIMEOUT).build()),
+			BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(2).maxWaitDuration(Duration.ZERO).build()),
+			new HedgingProperties(false, 0.95, Duration.ofMillis(10), 10),
+			new RevalidationProperties(true, 100),
+			new StaleWhileRevalidateProperties(false, Duration.ofSeconds(30), Duration.ofMinutes(10), 100),
+			new SimpleMeterRegistry());
+	}
+}
@@ -0,0 +1,204 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tech.maxjung.api.composite.product.ProductAggregate;
+import tech.maxjung.api.composite.product.RecommendationSummary;
+import tech.maxjung.api.composite.product.ReviewSummary;
+import tech.maxjung.api.composite.product.ServiceAddresses;
+import tech.maxjung.microservices.composite.product.services.Degradation;
+import tech.maxjung.microservices.composite.product.services.ProductSnapshotProperties;
+import tech.maxjung.microservices.composite.product.services.ProductSnapshotStore;
+import tech.maxjung.microservices.composite.product.services.StalenessHeaders;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductSnapshotStoreTests {
+
+	private static final Duration TIME_TO_LIVE = Duration.ofHours(1);
+	private static final Duration WARM_UP_WINDOW = Duration.ofMinutes(5);
+	private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+	private static final Consumer<ProductAggregate> NO_RELOAD = aggregate -> {};
+
+	@TempDir
+	Path dir;
+
+	private final AtomicReference<Instant> now = new AtomicReference<>(NOW);
+	private final AtomicInteger loads = new AtomicInteger();
+	private SimpleMeterRegistry meterRegistry;
+	private ProductSnapshotStore store;
+
+	@BeforeEach
+	void setUp() {
+		store = restart();
+	}
+
+	@AfterEach
+	void tearDown() {
+		store.close();
+	}
+
+	@Test
+	void snapshotIsServedAfterARestart() {
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNext(aggregate(1, "name")).verifyComplete();
+
+		now.set(NOW.plusSeconds(60));
+		store = restart();
+		Map<String, Duration> staleParts = new ConcurrentHashMap<>();
+		StepVerifier.create(store.get(1, this::failingLoad, NO_RELOAD).contextWrite(context -> context.put(StalenessHeaders.class, staleParts)))
+			.expectNext(aggregate(1, "name"))
+			.verifyComplete();
+
+		assertEquals(1, loads.get());
+		assertEquals(1.0, meterRegistry.get("snapshot.lookups").tag("result", "hit").counter().count());
+		assertEquals(Duration.ofSeconds(60), staleParts.get("snapshot"));
+	}
+
+	@Test
+	void servedSnapshotIsReloadedInTheBackground() throws Exception {
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+
+		store = restart();
+		CompletableFuture<ProductAggregate> reloaded = new CompletableFuture<>();
+		StepVerifier.create(store.get(1, id -> Mono.just(aggregate(id, "renamed")), reloaded::complete))
+			.expectNext(aggregate(1, "name"))
+			.verifyComplete();
+		assertEquals(aggregate(1, "renamed"), reloaded.get(10, TimeUnit.SECONDS));
+
+		// the reloaded aggregate replaces the snapshot in the file too
+		store = restart();
+		StepVerifier.create(store.get(1, this::failingLoad, NO_RELOAD)).expectNext(aggregate(1, "renamed")).verifyComplete();
+	}
+
+	@Test
+	void snapshotIsNotServedAfterTheWarmUpWindow() {
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+
+		store = restart();
+		StepVerifier.create(store.get(2, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+		now.set(NOW.plus(WARM_UP_WINDOW).plusSeconds(1));
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+
+		assertEquals(3, loads.get());
+		assertEquals(0.0, meterRegistry.get("snapshot.lookups").tag("result", "hit").counter().count());
+	}
+
+	@Test
+	void expiredSnapshotIsLoadedAgain() {
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+
+		now.set(NOW.plus(TIME_TO_LIVE).plusSeconds(1));
+		store = restart();
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+
+		assertEquals(2, loads.get());
+		assertEquals(1.0, meterRegistry.get("snapshot.lookups").tag("result", "expired").counter().count());
+	}
+
+	@Test
+	void degradedAggregateIsNotSnapshotted() {
+		// e.g. the reviews fell back to an empty page in the integration
+		StepVerifier.create(store.get(1, id -> Degradation.report().then(load(id)), NO_RELOAD)).expectNextCount(1).verifyComplete();
+
+		store = restart();
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+
+		assertEquals(2, loads.get());
+		assertEquals(1.0, meterRegistry.get("snapshot.lookups").tag("result", "miss").counter().count());
+	}
+
+	@Test
+	void invalidatedSnapshotIsLoadedAgainAfterARestart() {
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+		store.invalidate(1);
+
+		store = restart();
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	void passesThroughWhenDisabled() {
+		store.close();
+		store = new ProductSnapshotStore(
+			new ProductSnapshotProperties(false, dir.resolve("test.snapshot"), DataSize.ofMegabytes(1), TIME_TO_LIVE, WARM_UP_WINDOW, 1),
+			new SimpleMeterRegistry());
+
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+		StepVerifier.create(store.get(1, this::load, NO_RELOAD)).expectNextCount(1).verifyComplete();
+
+		assertEquals(2, loads.get());
+	}
+
+	// closing the store waits for its pending writes
+	private ProductSnapshotStore restart() {
+		if (store != null) {
+			store.close();
+		}
+		meterRegistry = new SimpleMeterRegistry();
+		return new ProductSnapshotStore(
+			new ProductSnapshotProperties(true, dir.resolve("test.snapshot"), DataSize.ofMegabytes(1), TIME_TO_LIVE, WARM_UP_WINDOW, 1),
+			meterRegistry,
+			new TestClock());
+	}
+
+	private Mono<ProductAggregate> load(int productId) {
+		return Mono.fromSupplier(() -> {
+			loads.incrementAndGet();
+			return aggregate(productId, "name");
+		});
+	}
+
+	private Mono<ProductAggregate> failingLoad(int productId) {
+		return Mono.error(new IllegalStateException("the core services are down"));
+	}
+
+	private static ProductAggregate aggregate(int productId, String name) {
+		return new ProductAggregate(productId, name, 1,
+			List.of(new RecommendationSummary(1, "author", 5, "content")),
+			List.of(new ReviewSummary(1, "author", "subject", "content")),
+			new ServiceAddresses("composite", "product", "review", "recommendation"),
+			null, "1");
+	}
+
+	// the time moves on only when a test sets it
+	private class TestClock extends Clock {
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now.get();
+		}
+	}
+}
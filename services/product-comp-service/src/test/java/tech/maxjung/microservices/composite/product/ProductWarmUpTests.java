@@ -0,0 +1,100 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Mono;
+import tech.maxjung.api.composite.product.ProductAggregate;
+import tech.maxjung.api.composite.product.ProductCompositeService;
+import tech.maxjung.api.exceptions.NotFoundException;
+import tech.maxjung.microservices.composite.product.services.ProductAggregateCache;
+import tech.maxjung.microservices.composite.product.services.ProductCacheProperties;
+import tech.maxjung.microservices.composite.product.services.ProductWarmUp;
+import tech.maxjung.microservices.composite.product.services.WarmUpProperties;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductWarmUpTests {
+
+	private static final int PRODUCT_ID_NOT_FOUND = 13;
+
+	@TempDir
+	Path dir;
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ProductCompositeService compositeService = mock(ProductCompositeService.class);
+	private ProductAggregateCache productCache;
+	private Path hotProductIdsFile;
+
+	@BeforeEach
+	void setUp() {
+		productCache = new ProductAggregateCache(new ProductCacheProperties(true, 100, Duration.ofMinutes(5)), meterRegistry);
+		hotProductIdsFile = dir.resolve("hot-product-ids.txt");
+
+		// the warm-up goes through the product aggregate cache like a request would
+		when(compositeService.getProduct(anyInt())).thenAnswer(invocation -> {
+			int productId = invocation.getArgument(0);
+			return productCache.get(productId, id -> id == PRODUCT_ID_NOT_FOUND
+				? Mono.error(new NotFoundException("No product found for productId: " + id))
+				: Mono.just(new ProductAggregate(id, "name", 1, List.of(), List.of(), null, null, null)));
+		});
+	}
+
+	@Test
+	void prefetchesTheConfiguredAndTheRecordedProductIds() throws IOException {
+		Files.write(hotProductIdsFile, List.of("2", "3", PRODUCT_ID_NOT_FOUND + "", "1"));
+
+		warmUp(true).run(null);
+
+		verify(compositeService).getProduct(1);
+		verify(compositeService).getProduct(2);
+		verify(compositeService).getProduct(3);
+		assertEquals(3.0, meterRegistry.get("warmup.products").tag("result", "success").counter().count());
+		assertEquals(1.0, meterRegistry.get("warmup.products").tag("result", "failure").counter().count());
+		assertEquals(1.0, meterRegistry.get("warmup.progress").gauge().value());
+		assertEquals(1, meterRegistry.get("warmup.duration").timer().count());
+	}
+
+	@Test
+	void recordsTheHottestProductIdsOnShutdown() throws IOException {
+		ProductWarmUp warmUp = warmUp(true);
+		for (int productId = 1; productId <= 3; productId++) {
+			compositeService.getProduct(productId).block();
+		}
+
+		warmUp.recordHotProductIds();
+
+		List<String> recorded = Files.readAllLines(hotProductIdsFile);
+		assertEquals(2, recorded.size());
+	}
+
+	@Test
+	void doesNothingWhenDisabled() {
+		ProductWarmUp warmUp = warmUp(false);
+		warmUp.run(null);
+		compositeService.getProduct(1).block();
+		warmUp.recordHotProductIds();
+
+		verify(compositeService, never()).getProduct(2);
+		assertFalse(Files.exists(hotProductIdsFile));
+	}
+
+	private ProductWarmUp warmUp(boolean enabled) {
+		return new ProductWarmUp(
+			new WarmUpProperties(enabled, List.of(1, 2), hotProductIdsFile, 2, 2, Duration.ofSeconds(10)),
+			compositeService, productCache, meterRegistry);
+	}
+}
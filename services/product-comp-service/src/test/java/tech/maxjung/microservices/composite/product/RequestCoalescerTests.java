@@ -0,0 +1,100 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+import tech.maxjung.api.exceptions.NotFoundException;
+import tech.maxjung.microservices.composite.product.services.RequestCoalescer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestCoalescerTests {
+
+	private SimpleMeterRegistry meterRegistry;
+	private RequestCoalescer<Integer, String> coalescer;
+	private AtomicInteger calls;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		coalescer = new RequestCoalescer<>("test", meterRegistry);
+		calls = new AtomicInteger();
+	}
+
+	@Test
+	void concurrentRequestsShareOneCall() {
+		Sinks.One<String> response = Sinks.one();
+
+		Mono<String> first = coalescer.execute(1, key -> call(response.asMono()));
+		Mono<String> second = coalescer.execute(1, key -> call(response.asMono()));
+		Mono<String> third = coalescer.execute(1, key -> call(response.asMono()));
+
+		StepVerifier.create(Mono.zip(first, second, third))
+			.then(() -> response.tryEmitValue("product"))
+			.assertNext(results -> {
+				assertEquals("product", results.getT1());
+				assertEquals("product", results.getT2());
+				assertEquals("product", results.getT3());
+			})
+			.verifyComplete();
+
+		assertEquals(1, calls.get());
+		assertEquals(1.0, requests("executed"));
+		assertEquals(2.0, requests("coalesced"));
+		assertEquals(0.0, meterRegistry.get("coalescer.in.flight").gauge().value());
+	}
+
+	@Test
+	void requestsAfterCompletionStartANewCall() {
+		StepVerifier.create(coalescer.execute(1, key -> call(Mono.just("v1")))).expectNext("v1").verifyComplete();
+		StepVerifier.create(coalescer.execute(1, key -> call(Mono.just("v2")))).expectNext("v2").verifyComplete();
+
+		assertEquals(2, calls.get());
+		assertEquals(0.0, requests("coalesced"));
+	}
+
+	@Test
+	void differentKeysAreNotCoalesced() {
+		Sinks.One<String> response = Sinks.one();
+
+		StepVerifier.create(Mono.zip(
+				coalescer.execute(1, key -> call(response.asMono())),
+				coalescer.execute(2, key -> call(response.asMono()))))
+			.then(() -> response.tryEmitValue("product"))
+			.expectNextCount(1)
+			.verifyComplete();
+
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	void errorsAreSharedButNotRetained() {
+		Sinks.One<String> response = Sinks.one();
+
+		StepVerifier.create(Mono.zip(
+				coalescer.execute(1, key -> call(response.asMono())),
+				coalescer.execute(1, key -> call(response.asMono()))))
+			.then(() -> response.tryEmitError(new NotFoundException("not found")))
+			.expectError(NotFoundException.class)
+			.verify();
+
+		StepVerifier.create(coalescer.execute(1, key -> call(Mono.just("product")))).expectNext("product").verifyComplete();
+		assertEquals(2, calls.get());
+	}
+
+	private Mono<String> call(Mono<String> response) {
+		return Mono.defer(() -> {
+			calls.incrementAndGet();
+			return response;
+		});
+	}
+
+	private double requests(String result) {
+		return meterRegistry.get("coalescer.requests").tag("name", "test").tag("result", result).counter().count();
+	}
+}
@@ -0,0 +1,137 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tech.maxjung.api.exceptions.NotFoundException;
+import tech.maxjung.microservices.composite.product.services.HedgingProperties;
+import tech.maxjung.microservices.composite.product.services.RequestHedger;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestHedgerTests {
+
+	private static final Duration SLOW = Duration.ofSeconds(2);
+
+	private SimpleMeterRegistry meterRegistry;
+	private AtomicInteger attempts;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		attempts = new AtomicInteger();
+	}
+
+	@Test
+	void disabledHedgerSendsOneAttempt() {
+		RequestHedger hedger = hedger(false, 100);
+		warmUp(hedger);
+
+		StepVerifier.create(hedger.hedge(() -> attempt(SLOW.dividedBy(20), "first")))
+			.expectNext("first")
+			.verifyComplete();
+		assertEquals(21, attempts.get());
+	}
+
+	@Test
+	void slowFirstAttemptIsOvertakenBySecondAttempt() {
+		RequestHedger hedger = hedger(true, 100);
+		warmUp(hedger);
+		attempts.set(0);
+
+		// the first attempt is slow, the second one answers at once
+		StepVerifier.create(hedger.hedge(() -> attempts.get() == 0 ? attempt(SLOW, "slow") : attempt(Duration.ZERO, "fast")))
+			.expectNext("fast")
+			.expectComplete()
+			.verify(SLOW.dividedBy(2));
+
+		assertEquals(2, attempts.get());
+		assertEquals(1.0, hedgingRequests("hedged"));
+	}
+
+	@Test
+	void fastFailureDoesNotWinOverThePendingAttempt() {
+		RequestHedger hedger = hedger(true, 100);
+		warmUp(hedger);
+		attempts.set(0);
+
+		// the first attempt fails at once, e.g. with a 503 of its instance, and sends the second one at once
+		StepVerifier.create(hedger.hedge(() -> attempts.incrementAndGet() == 1
+				? Mono.<String>error(new IllegalStateException("Service Unavailable"))
+				: attempt(Duration.ZERO, "answer")))
+			.expectNext("answer")
+			.verifyComplete();
+		assertEquals(2, attempts.get());
+	}
+
+	@Test
+	void failsOnlyIfBothAttemptsFail() {
+		RequestHedger hedger = hedger(true, 100);
+		warmUp(hedger);
+
+		StepVerifier.create(hedger.hedge(() -> Mono.error(new IllegalStateException("Connection refused"))))
+			.expectErrorMessage("Connection refused")
+			.verify();
+	}
+
+	@Test
+	void errorOfAHealthyInstanceIsAnAnswer() {
+		RequestHedger hedger = hedger(true, 100);
+		warmUp(hedger);
+		attempts.set(0);
+
+		StepVerifier.create(hedger.hedge(() -> {
+				attempts.incrementAndGet();
+				return Mono.error(new NotFoundException("No product found"));
+			}))
+			.expectError(NotFoundException.class)
+			.verify();
+		assertEquals(1, attempts.get());
+	}
+
+	@Test
+	void budgetCapsTheExtraLoad() {
+		// 10% of the 20 warm-up lookups and the lookups below buys two second attempts
+		RequestHedger hedger = hedger(true, 10);
+		warmUp(hedger);
+		attempts.set(0);
+
+		for (int i = 0; i < 3; i++) {
+			StepVerifier.create(hedger.hedge(() -> attempt(Duration.ofMillis(100), "answer")))
+				.expectNext("answer")
+				.verifyComplete();
+		}
+
+		assertEquals(5, attempts.get());
+		assertEquals(2.0, hedgingRequests("hedged"));
+		assertEquals(1.0, hedgingRequests("over-budget"));
+	}
+
+	// hedges at the median, which stays at the min delay however many slow attempts the tests add
+	private RequestHedger hedger(boolean enabled, double maxExtraLoadPercent) {
+		return new RequestHedger("test", new HedgingProperties(enabled, 0.5, Duration.ofMillis(10), maxExtraLoadPercent), meterRegistry);
+	}
+
+	// enough fast attempts to base the hedging delay on, i.e. it will be the min delay
+	private void warmUp(RequestHedger hedger) {
+		for (int i = 0; i < 20; i++) {
+			hedger.hedge(() -> attempt(Duration.ZERO, "warm-up")).block();
+		}
+	}
+
+	private Mono<String> attempt(Duration latency, String answer) {
+		return Mono.defer(() -> {
+			attempts.incrementAndGet();
+			return Mono.delay(latency).thenReturn(answer);
+		});
+	}
+
+	private double hedgingRequests(String result) {
+		return meterRegistry.get("hedging.requests").tag("service", "test").tag("result", result).counter().count();
+	}
+}
@@ -0,0 +1,88 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tech.maxjung.api.core.product.Product;
+import tech.maxjung.microservices.composite.product.services.RevalidatingCache;
+import tech.maxjung.microservices.composite.product.services.RevalidationProperties;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+class RevalidatingCacheTests {
+
+	private static final URI URL = URI.create("http://product:7001/product/1");
+	private static final String ETAG = "\"1a2b-3c\"";
+	private static final Product PRODUCT = new Product(1, "name", 1, "address");
+
+	private SimpleMeterRegistry meterRegistry;
+	private List<ClientRequest> requests;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+		requests = new ArrayList<>();
+	}
+
+	@Test
+	void unchangedResponseIsRevalidated() {
+		WebClient client = client(request -> request.headers().getIfNoneMatch().contains(ETAG)
+			? ClientResponse.create(HttpStatus.NOT_MODIFIED).header(HttpHeaders.ETAG, ETAG).build()
+			: productResponse(ETAG));
+		RevalidatingCache cache = new RevalidatingCache("product", new RevalidationProperties(true, 100), meterRegistry);
+
+		StepVerifier.create(cache.get(client, URL, APPLICATION_JSON, Product.class)).expectNext(PRODUCT).verifyComplete();
+		StepVerifier.create(cache.get(client, URL, APPLICATION_JSON, Product.class)).expectNext(PRODUCT).verifyComplete();
+
+		assertNull(requests.get(0).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+		assertEquals(ETAG, requests.get(1).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+		assertEquals(1, revalidations("not-modified"));
+		assertEquals(0, revalidations("modified"));
+	}
+
+	@Test
+	void responseWithoutETagIsNotRevalidated() {
+		WebClient client = client(request -> productResponse(null));
+		RevalidatingCache cache = new RevalidatingCache("product", new RevalidationProperties(true, 100), meterRegistry);
+
+		StepVerifier.create(cache.get(client, URL, APPLICATION_JSON, Product.class)).expectNext(PRODUCT).verifyComplete();
+		StepVerifier.create(cache.get(client, URL, APPLICATION_JSON, Product.class)).expectNext(PRODUCT).verifyComplete();
+
+		assertNull(requests.get(1).headers().getFirst(HttpHeaders.IF_NONE_MATCH));
+	}
+
+	private ClientResponse productResponse(String etag) {
+		ClientResponse.Builder response = ClientResponse.create(HttpStatus.OK)
+			.header(HttpHeaders.CONTENT_TYPE, APPLICATION_JSON_VALUE)
+			.body("{\"productId\":1,\"name\":\"name\",\"weight\":1,\"serviceAddress\":\"address\"}");
+		return etag == null ? response.build() : response.header(HttpHeaders.ETAG, etag).build();
+	}
+
+	private WebClient client(Function<ClientRequest, ClientResponse> server) {
+		return WebClient.builder()
+			.exchangeFunction(request -> {
+				requests.add(request);
+				return Mono.just(server.apply(request));
+			})
+			.build();
+	}
+
+	private double revalidations(String result) {
+		return meterRegistry.get(RevalidatingCache.REVALIDATIONS).tags("service", "product", "result", result).counter().count();
+	}
+}
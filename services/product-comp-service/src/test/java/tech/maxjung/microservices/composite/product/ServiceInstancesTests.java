@@ -0,0 +1,148 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import tech.maxjung.api.exceptions.NotFoundException;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.ConnectionPool;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.CoreService;
+import tech.maxjung.microservices.composite.product.services.CoreServicesProperties.LoadBalancing;
+import tech.maxjung.microservices.composite.product.services.LoadBalancingStrategy;
+import tech.maxjung.microservices.composite.product.services.ServiceInstances;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ServiceInstancesTests {
+
+	private static final String FIRST = "http://review-1:7003";
+	private static final String SECOND = "http://review-2:7003";
+	private static final String THIRD = "http://review-3:7003";
+
+	private static final Duration EJECTION_TIME = Duration.ofMillis(200);
+
+	private SimpleMeterRegistry meterRegistry;
+
+	@BeforeEach
+	void setUp() {
+		meterRegistry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	void roundRobinTakesTheInstancesInTurn() {
+		ServiceInstances instances = instances(LoadBalancingStrategy.Type.ROUND_ROBIN, "review-1:7003", "review-2:7003", "review-3:7003");
+
+		List<String> calledInstances = List.of(call(instances), call(instances), call(instances), call(instances));
+
+		assertEquals(List.of(FIRST, SECOND, THIRD, FIRST), calledInstances);
+	}
+
+	@Test
+	void leastOutstandingAvoidsTheBusyInstance() {
+		verifyBusyInstanceIsAvoided(LoadBalancingStrategy.Type.LEAST_OUTSTANDING);
+	}
+
+	@Test
+	void powerOfTwoChoicesAvoidsTheBusyInstance() {
+		// with two instances both are always picked, so the idle one always wins
+		verifyBusyInstanceIsAvoided(LoadBalancingStrategy.Type.POWER_OF_TWO_CHOICES);
+	}
+
+	@Test
+	void failingInstanceIsEjectedAndComesBackAfterTheEjectionTime() throws InterruptedException {
+		ServiceInstances instances = instances(LoadBalancingStrategy.Type.ROUND_ROBIN, "review-1:7003", "review-2:7003");
+		Function<String, Mono<String>> firstInstanceFails = baseUrl -> FIRST.equals(baseUrl)
+			? Mono.error(new IllegalStateException("Connection refused"))
+			: Mono.just(baseUrl);
+
+		// two failed calls in a row on the first instance eject it
+		for (int i = 0; i < 4; i++) {
+			instances.call(firstInstanceFails).onErrorResume(ex -> Mono.empty()).block();
+		}
+		assertTrue(instances.instances().get(0).isEjected());
+		assertEquals(1, meterRegistry.get("loadbalancer.ejections").counter().count());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(SECOND, call(instances));
+		}
+
+		Thread.sleep(EJECTION_TIME.multipliedBy(2).toMillis());
+		assertFalse(instances.instances().get(0).isEjected());
+	}
+
+	@Test
+	void notFoundIsNoInstanceFailure() {
+		ServiceInstances instances = instances(LoadBalancingStrategy.Type.ROUND_ROBIN, "review-1:7003");
+
+		for (int i = 0; i < 5; i++) {
+			assertThrows(NotFoundException.class,
+				() -> instances.call(baseUrl -> Mono.error(new NotFoundException("No product found"))).block());
+		}
+
+		assertFalse(instances.instances().get(0).isEjected());
+	}
+
+	@Test
+	void callsGoToEjectedInstancesIfAllAreEjected() {
+		ServiceInstances instances = instances(LoadBalancingStrategy.Type.ROUND_ROBIN, "review-1:7003");
+		for (int i = 0; i < 2; i++) {
+			instances.call(baseUrl -> Mono.error(new IllegalStateException("Connection refused"))).onErrorResume(ex -> Mono.empty()).block();
+		}
+		assertTrue(instances.instances().get(0).isEjected());
+
+		assertEquals(FIRST, call(instances));
+	}
+
+	@Test
+	void secondAttemptOfAHedgedCallGoesToAnotherInstance() {
+		// least-outstanding would take the same idle instance for both attempts
+		ServiceInstances instances = instances(LoadBalancingStrategy.Type.LEAST_OUTSTANDING, "review-1:7003", "review-2:7003");
+
+		for (int i = 0; i < 10; i++) {
+			Supplier<Mono<String>> attempts = instances.attempts(Mono::just);
+			String first = attempts.get().block();
+			String second = attempts.get().block();
+			assertFalse(first.equals(second));
+		}
+	}
+
+	@Test
+	void secondAttemptOfAHedgedCallGoesToTheOnlyInstance() {
+		ServiceInstances instances = instances(LoadBalancingStrategy.Type.ROUND_ROBIN, "review-1:7003");
+
+		Supplier<Mono<String>> attempts = instances.attempts(Mono::just);
+		assertEquals(FIRST, attempts.get().block());
+		assertEquals(FIRST, attempts.get().block());
+	}
+
+	private void verifyBusyInstanceIsAvoided(LoadBalancingStrategy.Type strategy) {
+		ServiceInstances instances = instances(strategy, "review-1:7003", "review-2:7003");
+		Disposable busyCall = instances.call(baseUrl -> Mono.never()).subscribe();
+		String busyInstance = instances.instances().get(0).outstandingRequests() == 1 ? FIRST : SECOND;
+
+		for (int i = 0; i < 10; i++) {
+			assertFalse(busyInstance.equals(call(instances)));
+		}
+
+		busyCall.dispose();
+		assertEquals(0, instances.instances().get(0).outstandingRequests() + instances.instances().get(1).outstandingRequests());
+	}
+
+	private static String call(ServiceInstances instances) {
+		return instances.call(Mono::just).block();
+	}
+
+	private ServiceInstances instances(LoadBalancingStrategy.Type strategy, String... instances) {
+		ConnectionPool pool = new ConnectionPool(10, 10, Duration.ofSeconds(1), Duration.ofSeconds(30), Duration.ofSeconds(60));
+		CoreService coreService = new CoreService(List.of(instances), pool, new LoadBalancing(strategy, 2, EJECTION_TIME));
+		return new ServiceInstances("review", coreService, meterRegistry);
+	}
+}
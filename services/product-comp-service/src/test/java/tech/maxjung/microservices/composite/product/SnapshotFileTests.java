@@ -0,0 +1,111 @@
+package tech.maxjung.microservices.composite.product;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import tech.maxjung.microservices.composite.product.services.SnapshotFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotFileTests {
+
+	private static final long SIZE = 4096;
+
+	@TempDir
+	Path dir;
+
+	@Test
+	void valuesAreKeptOverAReopen() throws IOException {
+		Path path = dir.resolve("test.snapshot");
+		try (SnapshotFile file = SnapshotFile.open(path, SIZE)) {
+			file.put(1, bytes("v1"), 100);
+			file.put(2, bytes("v2"), 200);
+			file.put(1, bytes("v1 again"), 300);
+		}
+
+		try (SnapshotFile file = SnapshotFile.open(path, SIZE)) {
+			assertEquals(2, file.size());
+			assertEquals("v1 again", value(file, 1));
+			assertEquals(300, file.get(1).orElseThrow().writtenAt());
+			assertEquals("v2", value(file, 2));
+		}
+	}
+
+	@Test
+	void removalsAreKeptOverAReopen() throws IOException {
+		Path path = dir.resolve("test.snapshot");
+		try (SnapshotFile file = SnapshotFile.open(path, SIZE)) {
+			file.put(1, bytes("v1"), 100);
+			file.put(2, bytes("v2"), 100);
+			file.remove(1);
+			assertEquals(Optional.empty(), file.get(1));
+		}
+
+		try (SnapshotFile file = SnapshotFile.open(path, SIZE)) {
+			assertEquals(Optional.empty(), file.get(1));
+			assertEquals("v2", value(file, 2));
+		}
+	}
+
+	@Test
+	void oldestValuesAreOverwrittenWhenFull() throws IOException {
+		Path path = dir.resolve("test.snapshot");
+		byte[] value = new byte[200];
+		try (SnapshotFile file = SnapshotFile.open(path, SIZE)) {
+			for (int key = 0; key < 100; key++) {
+				file.put(key, value, key);
+			}
+			assertTrue(file.size() < 100);
+			assertTrue(file.get(99).isPresent());
+			assertFalse(file.get(0).isPresent());
+		}
+
+		// the newest values and their keys are recovered after many laps, with values of another size
+		try (SnapshotFile file = SnapshotFile.open(path, SIZE)) {
+			int recovered = file.size();
+			assertTrue(recovered > 0);
+			for (int key = 100; key < 200; key++) {
+				file.put(key, new byte[key % 50], key);
+			}
+			assertTrue(file.get(199).isPresent());
+		}
+		try (SnapshotFile file = SnapshotFile.open(path, SIZE)) {
+			assertEquals(199, file.get(199).orElseThrow().writtenAt());
+			assertEquals(49, file.get(199).orElseThrow().value().length);
+		}
+	}
+
+	@Test
+	void tooLargeValuesAreRejected() throws IOException {
+		try (SnapshotFile file = SnapshotFile.open(dir.resolve("test.snapshot"), SIZE)) {
+			assertFalse(file.put(1, new byte[(int) SIZE], 100));
+			assertEquals(0, file.size());
+		}
+	}
+
+	@Test
+	void fileOfAnotherSizeIsCleared() throws IOException {
+		Path path = dir.resolve("test.snapshot");
+		try (SnapshotFile file = SnapshotFile.open(path, SIZE)) {
+			file.put(1, bytes("v1"), 100);
+		}
+
+		try (SnapshotFile file = SnapshotFile.open(path, 2 * SIZE)) {
+			assertEquals(0, file.size());
+		}
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String value(SnapshotFile file, int key) {
+		return new String(file.get(key).orElseThrow().value(), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,104 @@
+package tech.maxjung.microservices.composite.product;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import tech.maxjung.microservices.composite.product.services.Degradation;
+import tech.maxjung.microservices.composite.product.services.StaleWhileRevalidateCache;
+import tech.maxjung.microservices.composite.product.services.StaleWhileRevalidateProperties;
+import tech.maxjung.microservices.composite.product.services.StalenessHeaders;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StaleWhileRevalidateCacheTests {
+
+	private static final Duration SOFT_TTL = Duration.ofSeconds(30);
+	private static final Duration HARD_TTL = Duration.ofMinutes(10);
+
+	private final AtomicLong now = new AtomicLong();
+	private final AtomicInteger lookups = new AtomicInteger();
+	private StaleWhileRevalidateCache<Integer, String> cache;
+
+	@BeforeEach
+	void setUp() {
+		cache = new StaleWhileRevalidateCache<>("test", "tests",
+			new StaleWhileRevalidateProperties(true, SOFT_TTL, HARD_TTL, 100), new SimpleMeterRegistry(), now::get);
+	}
+
+	@Test
+	void freshResultIsServedWithoutLookup() {
+		StepVerifier.create(cache.get(1, () -> lookup("v1"))).expectNext("v1").verifyComplete();
+		advance(SOFT_TTL.minusSeconds(1));
+
+		StepVerifier.create(StalenessHeaders.capture(Degradation.track(cache.get(1, () -> lookup("v2")))))
+			.expectNext(new StalenessHeaders.Captured<>(new Degradation.Tracked<>("v1", false), Map.of()))
+			.verifyComplete();
+		assertEquals(1, lookups.get());
+	}
+
+	@Test
+	void staleResultIsServedAndRefreshedInTheBackground() {
+		StepVerifier.create(cache.get(1, () -> lookup("v1"))).expectNext("v1").verifyComplete();
+		advance(SOFT_TTL);
+
+		// served as a degraded result with a stale part
+		StepVerifier.create(StalenessHeaders.capture(Degradation.track(cache.get(1, () -> lookup("v2")))))
+			.expectNext(new StalenessHeaders.Captured<>(new Degradation.Tracked<>("v1", true), Map.of("tests", SOFT_TTL)))
+			.verifyComplete();
+		StepVerifier.create(cache.get(1, () -> lookup("v3"))).expectNext("v2").verifyComplete();
+		assertEquals(2, lookups.get());
+	}
+
+	@Test
+	void staleResultIsServedWhileTheLookupFails() {
+		StepVerifier.create(cache.get(1, () -> lookup("v1"))).expectNext("v1").verifyComplete();
+		advance(SOFT_TTL);
+
+		StepVerifier.create(cache.get(1, () -> Mono.error(new IllegalStateException("down")))).expectNext("v1").verifyComplete();
+		advance(Duration.ofMinutes(1));
+		StepVerifier.create(cache.get(1, () -> Mono.error(new IllegalStateException("down")))).expectNext("v1").verifyComplete();
+	}
+
+	@Test
+	void resultPastTheHardTtlIsLookedUpInTheRequest() {
+		StepVerifier.create(cache.get(1, () -> lookup("v1"))).expectNext("v1").verifyComplete();
+		advance(HARD_TTL);
+
+		StepVerifier.create(cache.get(1, () -> Mono.error(new IllegalStateException("down"))))
+			.expectError(IllegalStateException.class)
+			.verify();
+		StepVerifier.create(cache.get(1, () -> lookup("v2"))).expectNext("v2").verifyComplete();
+	}
+
+	@Test
+	void invalidatedResultIsLookedUpAgain() {
+		StepVerifier.create(cache.get(1, () -> lookup("v1"))).expectNext("v1").verifyComplete();
+
+		cache.invalidateIf(key -> key == 1);
+		StepVerifier.create(cache.get(1, () -> lookup("v2"))).expectNext("v2").verifyComplete();
+	}
+
+	@Test
+	void softTtlMustBeBelowTheHardTtl() {
+		assertThrows(IllegalArgumentException.class, () -> new StaleWhileRevalidateProperties(true, HARD_TTL, HARD_TTL, 100));
+	}
+
+	private Mono<String> lookup(String value) {
+		return Mono.fromSupplier(() -> {
+			lookups.incrementAndGet();
+			return value;
+		});
+	}
+
+	private void advance(Duration duration) {
+		now.addAndGet(duration.toNanos());
+	}
+}
@@ -4,15 +4,34 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import tech.maxjung.microservices.core.product.persistence.ProductEntity;
+import tech.maxjung.microservices.core.product.services.ProductCacheProperties;
 
 @SpringBootApplication
 @ComponentScan("tech.maxjung")
+@EnableConfigurationProperties(ProductCacheProperties.class)
 public class ProductServiceApplication {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ProductServiceApplication.class);
 
+	private final ReactiveMongoOperations mongoTemplate;
+
+	public ProductServiceApplication(ReactiveMongoOperations mongoTemplate) {
+		this.mongoTemplate = mongoTemplate;
+	}
+
 	public static void main(String[] args) {
 
 		ConfigurableApplicationContext context = SpringApplication.run(ProductServiceApplication.class, args);
@@ -24,4 +43,15 @@ public class ProductServiceApplication {
 
 	}
 
+	/* With reactive repositories, 'auto-index-creation' runs asynchronously, so requests may arrive before the
+	   unique indexes exist. Creating them explicitly, and blocking once at startup, guarantees duplicate key errors. */
+	@EventListener(ContextRefreshedEvent.class)
+	public void initIndicesAfterStartup() {
+		MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext =
+			mongoTemplate.getConverter().getMappingContext();
+		IndexResolver resolver = new MongoPersistentEntityIndexResolver(mappingContext);
+
+		ReactiveIndexOperations indexOps = mongoTemplate.indexOps(ProductEntity.class);
+		resolver.resolveIndexFor(ProductEntity.class).forEach(index -> indexOps.ensureIndex(index).block());
+	}
 }
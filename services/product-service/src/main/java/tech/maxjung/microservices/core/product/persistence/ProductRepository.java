@@ -1,10 +1,18 @@
 package tech.maxjung.microservices.core.product.persistence;
 
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.Optional;
+import java.util.Collection;
 
-public interface ProductRepository extends PagingAndSortingRepository<ProductEntity, String>, CrudRepository<ProductEntity, String> {
-  Optional<ProductEntity> findByProductId(int productId);
+public interface ProductRepository extends ReactiveCrudRepository<ProductEntity, String> {
+  Mono<ProductEntity> findByProductId(int productId);
+
+  // a single query with $in on the unique productId index
+  Flux<ProductEntity> findByProductIdIn(Collection<Integer> productIds);
+
+  // reactive repositories have no Page support, the page is streamed from the cursor instead
+  Flux<ProductEntity> findAllBy(Pageable pageable);
 }
@@ -0,0 +1,21 @@
+package tech.maxjung.microservices.core.product.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the product cache, bound from the {@code app.product.cache.*} properties.
+ *
+ * @param enabled     if false, every lookup reads from MongoDB
+ * @param maximumSize max estimated size of the cached products, Caffeine evicts the least valuable ones beyond that
+ * @param timeToLive  a product is reread at the latest after this time, also if another instance changed it
+ */
+@ConfigurationProperties(prefix = "app.product.cache")
+public record ProductCacheProperties(
+	@DefaultValue("true") boolean enabled,
+	@DefaultValue("16MB") DataSize maximumSize,
+	@DefaultValue("5m") Duration timeToLive
+) {}
@@ -1,17 +1,28 @@
 package tech.maxjung.microservices.core.product.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import tech.maxjung.api.core.product.Product;
 import tech.maxjung.api.core.product.ProductService;
 import tech.maxjung.api.exceptions.InvalidInputException;
 import tech.maxjung.api.exceptions.NotFoundException;
-import tech.maxjung.microservices.core.product.persistence.ProductEntity;
 import tech.maxjung.microservices.core.product.persistence.ProductRepository;
+import tech.maxjung.util.cache.ProductIdCache;
+import tech.maxjung.util.cache.SizeEstimates;
+import tech.maxjung.util.http.ConditionalGetFilter;
+import tech.maxjung.util.http.ETags;
 import tech.maxjung.util.http.ServiceUtil;
 
+import java.util.List;
+
+import static tech.maxjung.api.BatchLimits.MAX_PRODUCT_IDS;
+
 @RestController
 public class ProductServiceImpl implements ProductService {
 
@@ -23,43 +34,81 @@ public class ProductServiceImpl implements ProductService {
 
 	private final ServiceUtil serviceUtil;
 
+	private final ProductIdCache<CachedProduct> cache;
 
-	public ProductServiceImpl(ProductRepository repository, ProductMapper mapper, ServiceUtil serviceUtil) {
+
+	public ProductServiceImpl(
+		ProductRepository repository,
+		ProductMapper mapper,
+		ServiceUtil serviceUtil,
+		ProductCacheProperties cacheProperties,
+		ObjectProvider<MeterRegistry> meterRegistry
+	) {
 		this.repository = repository;
 		this.mapper = mapper;
 		this.serviceUtil = serviceUtil;
+		this.cache = new ProductIdCache<>("products", cacheProperties.enabled(), cacheProperties.maximumSize(),
+			cacheProperties.timeToLive(), CachedProduct::sizeEstimate, meterRegistry);
+	}
+
+	// with the tag of the entity's id and version, for the ETag
+	private record CachedProduct(Product product, long tag) {
+
+		// the long counts as two fields. The serviceAddress is shared by all products, so it isn't counted
+		int sizeEstimate() {
+			return SizeEstimates.object(3) + SizeEstimates.object(4) + SizeEstimates.string(product.name());
+		}
 	}
 
 	@Override
-	public Product getProduct(int productId) {
+	public Mono<Product> getProduct(int productId) {
 		if (productId < 1) throw new InvalidInputException("Invalid productId: " + productId);
 
 		LOG.debug("/product return the found product for productId={}", productId);
 
 		String serviceAddress = serviceUtil.getServiceAddress();
 
-		return mapper.entityToApi(
-			repository.findByProductId(productId)
-				.orElseThrow(() -> new NotFoundException("No product found for productId: " + productId)), serviceAddress);
+		return cache.get(productId, id -> repository.findByProductId(id).map(entity ->
+				new CachedProduct(mapper.entityToApi(entity, serviceAddress), ETags.tag(entity.getId(), entity.getVersion()))))
+			.switchIfEmpty(Mono.error(() -> new NotFoundException("No product found for productId: " + productId)))
+			.flatMap(cached -> ConditionalGetFilter.unlessNotModified(ETags.of(cached.tag()), Mono.just(cached.product())));
 	}
 
 	@Override
-	public Product createProduct(Product product) {
-		try {
-			ProductEntity productEntity = repository.save(mapper.apiToEntity(product));
-
-			LOG.debug("createProduct: entity created for productId: {}", product.productId());
-			String serviceAddress = serviceUtil.getServiceAddress();
-			return mapper.entityToApi(productEntity, serviceAddress);
-		} catch (DuplicateKeyException dke) {
-			throw new InvalidInputException("Duplicate key, Product Id: " + product.productId());
+	public Flux<Product> getProducts(List<Integer> productIds) {
+		if (productIds.isEmpty() || productIds.size() > MAX_PRODUCT_IDS) {
+			throw new InvalidInputException("Invalid number of productIds: " + productIds.size());
 		}
+		productIds.stream().filter(productId -> productId < 1).findFirst().ifPresent(productId -> {
+			throw new InvalidInputException("Invalid productId: " + productId);
+		});
+
+		LOG.debug("/product/batch return the found products for productIds={}", productIds);
+
+		String serviceAddress = serviceUtil.getServiceAddress();
+
+		return repository.findByProductIdIn(productIds)
+			.map(entity -> mapper.entityToApi(entity, serviceAddress));
+	}
+
+	@Override
+	public Mono<Product> createProduct(Product product) {
+		String serviceAddress = serviceUtil.getServiceAddress();
+
+		return repository.save(mapper.apiToEntity(product))
+			.onErrorMap(
+				DuplicateKeyException.class,
+				ex -> new InvalidInputException("Duplicate key, Product Id: " + product.productId()))
+			.doOnNext(entity -> LOG.debug("createProduct: entity created for productId: {}", product.productId()))
+			.map(entity -> mapper.entityToApi(entity, serviceAddress))
+			.doFinally(signal -> cache.invalidate(product.productId()));
 	}
 
 	@Override
-	public void deleteProduct(int productId) {
+	public Mono<Void> deleteProduct(int productId) {
 		LOG.debug("deleteProduct: tries to delete product for productId: {}", productId);
-		repository.findByProductId(productId)
-			.ifPresent(repository::delete);
+		return repository.findByProductId(productId)
+			.flatMap(repository::delete)
+			.doFinally(signal -> cache.invalidate(productId));
 	}
 }
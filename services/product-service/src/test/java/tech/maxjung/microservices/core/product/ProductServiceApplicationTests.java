@@ -1,15 +1,26 @@
 package tech.maxjung.microservices.core.product;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import tech.maxjung.api.core.product.Product;
 import tech.maxjung.microservices.core.product.persistence.ProductRepository;
+import tech.maxjung.util.http.PayloadSizeMetricsFilter;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
@@ -25,9 +36,12 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
 	@Autowired
 	private ProductRepository repository;
 
+	@Autowired
+	private MeterRegistry meterRegistry;
+
 	@BeforeEach
 	void setupDb() {
-		repository.deleteAll();
+		repository.deleteAll().block();
 	}
 
 	@Test
@@ -36,7 +50,7 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
 		int productId = 1;
 
 		postAndVerifyProduct(productId, OK);
-		assertTrue(repository.findByProductId(productId).isPresent());
+		assertNotNull(repository.findByProductId(productId).block());
 	}
 
 	@Test
@@ -57,7 +71,7 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
 
 		postAndVerifyProduct(productId, OK);
 		deleteAndVerifyProduct(productId, OK);
-		assertFalse(repository.findByProductId(productId).isPresent());
+		assertNull(repository.findByProductId(productId).block());
 
 		deleteAndVerifyProduct(productId, OK); // idempotence
 	}
@@ -71,6 +85,109 @@ class ProductServiceApplicationTests extends MongoDbTestBase {
 		getAndVerifyProduct(productId, OK).jsonPath("$.productId").isEqualTo(productId);
 	}
 
+	@Test
+	void getProductsByIds() {
+
+		postAndVerifyProduct(1, OK);
+		postAndVerifyProduct(2, OK);
+		postAndVerifyProduct(3, OK);
+
+		client.get()
+			.uri("/product/batch?productIds=1,3,13")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBodyList(Product.class)
+			.value(products -> assertEquals(Set.of(1, 3), products.stream().map(Product::productId).collect(Collectors.toSet())));
+	}
+
+	@Test
+	void getProductByIdAsSmile() {
+
+		int productId = 1;
+		postAndVerifyProduct(productId, OK);
+
+		MediaType smile = MediaType.parseMediaType("application/x-jackson-smile");
+		Product product = client.get()
+			.uri("/product/" + productId)
+			.accept(smile)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(smile)
+			.expectBody(Product.class)
+			.returnResult().getResponseBody();
+
+		assertNotNull(product);
+		assertEquals(productId, product.productId());
+	}
+
+	@Test
+	void productIsCachedUntilDeleted() {
+
+		int productId = 1;
+		postAndVerifyProduct(productId, OK);
+		getAndVerifyProduct(productId, OK);
+
+		// bypasses the service, as another instance would
+		repository.deleteAll().block();
+		getAndVerifyProduct(productId, OK)
+			.jsonPath("$.productId").isEqualTo(productId);
+
+		deleteAndVerifyProduct(productId, OK);
+		getAndVerifyProduct(productId, NOT_FOUND);
+	}
+
+	@Test
+	void getProductIsConditional() {
+
+		int productId = 1;
+		postAndVerifyProduct(productId, OK);
+
+		String etag = getAndVerifyProduct(productId, OK).returnResult().getResponseHeaders().getETag();
+		assertNotNull(etag);
+
+		client.get()
+			.uri("/product/" + productId)
+			.accept(APPLICATION_JSON)
+			.ifNoneMatch(etag)
+			.exchange()
+			.expectStatus().isNotModified()
+			.expectBody().isEmpty();
+
+		// a recreated product is a new entity, starting over at version 0
+		deleteAndVerifyProduct(productId, OK);
+		postAndVerifyProduct(productId, OK);
+		client.get()
+			.uri("/product/" + productId)
+			.accept(APPLICATION_JSON)
+			.ifNoneMatch(etag)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().value(HttpHeaders.ETAG, newEtag -> assertNotEquals(etag, newEtag));
+	}
+
+	@Test
+	void repositoryCallsAndPayloadSizesAreMeasured() throws InterruptedException {
+
+		int productId = 1;
+		postAndVerifyProduct(productId, OK);
+		getAndVerifyProduct(productId, OK);
+
+		Timer findByProductId = meterRegistry.find("spring.data.repository.invocations")
+			.tags("repository", "ProductRepository", "method", "findByProductId")
+			.timer();
+		assertNotNull(findByProductId);
+		assertTrue(findByProductId.count() > 0);
+
+		// the sizes are recorded once the response is written, which may be just after the client has read it
+		for (int i = 0; i < 50 && meterRegistry.find(PayloadSizeMetricsFilter.RESPONSE_SIZE).tag("uri", "/product/{productId}").summary() == null; i++) {
+			Thread.sleep(20);
+		}
+		assertNotNull(meterRegistry.find(PayloadSizeMetricsFilter.RESPONSE_SIZE).tags("method", "GET", "uri", "/product/{productId}").summary());
+		assertNotNull(meterRegistry.find(PayloadSizeMetricsFilter.REQUEST_SIZE).tags("method", "POST", "uri", "/product").summary());
+	}
+
 	@Test
 	void getProductInvalidParameterString() {
 
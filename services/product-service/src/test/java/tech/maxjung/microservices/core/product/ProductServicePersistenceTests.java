@@ -6,15 +6,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.OptimisticLockingFailureException;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import reactor.test.StepVerifier;
 import tech.maxjung.microservices.core.product.persistence.ProductEntity;
 import tech.maxjung.microservices.core.product.persistence.ProductRepository;
 
 
 import java.util.List;
-import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static java.util.stream.IntStream.rangeClosed;
@@ -31,12 +30,15 @@ class ProductServicePersistenceTests extends MongoDbTestBase {
 
   @BeforeEach
   void setupDb() {
-    repository.deleteAll();
+    StepVerifier.create(repository.deleteAll()).verifyComplete();
 
     ProductEntity entity = new ProductEntity(1, "n", 1);
-    savedEntity = repository.save(entity);
-
-    assertEqualsProduct(entity, savedEntity);
+    StepVerifier.create(repository.save(entity))
+      .assertNext(createdEntity -> {
+        savedEntity = createdEntity;
+        assertEqualsProduct(entity, savedEntity);
+      })
+      .verifyComplete();
   }
 
 
@@ -44,79 +46,85 @@ class ProductServicePersistenceTests extends MongoDbTestBase {
   void create() {
 
     ProductEntity newEntity = new ProductEntity(2, "n", 2);
-    repository.save(newEntity);
+    StepVerifier.create(repository.save(newEntity))
+      .expectNextMatches(createdEntity -> newEntity.getProductId() == createdEntity.getProductId())
+      .verifyComplete();
 
-    ProductEntity foundEntity = repository.findById(newEntity.getId()).get();
-    assertEqualsProduct(newEntity, foundEntity);
+    StepVerifier.create(repository.findById(newEntity.getId()))
+      .assertNext(foundEntity -> assertEqualsProduct(newEntity, foundEntity))
+      .verifyComplete();
 
-    assertEquals(2, repository.count());
+    StepVerifier.create(repository.count()).expectNext(2L).verifyComplete();
   }
 
   @Test
   void update() {
     savedEntity.setName("n2");
-    repository.save(savedEntity);
-
-    ProductEntity foundEntity = repository.findById(savedEntity.getId()).get();
-    assertEquals(1, (long)foundEntity.getVersion());
-    assertEquals("n2", foundEntity.getName());
+    StepVerifier.create(repository.save(savedEntity))
+      .expectNextMatches(updatedEntity -> updatedEntity.getName().equals("n2"))
+      .verifyComplete();
+
+    StepVerifier.create(repository.findById(savedEntity.getId()))
+      .assertNext(foundEntity -> {
+        assertEquals(1, (long)foundEntity.getVersion());
+        assertEquals("n2", foundEntity.getName());
+      })
+      .verifyComplete();
   }
 
   @Test
   void delete() {
-    repository.delete(savedEntity);
-    assertFalse(repository.existsById(savedEntity.getId()));
+    StepVerifier.create(repository.delete(savedEntity)).verifyComplete();
+    StepVerifier.create(repository.existsById(savedEntity.getId())).expectNext(false).verifyComplete();
   }
 
   @Test
   void getByProductId() {
-    Optional<ProductEntity> entity = repository.findByProductId(savedEntity.getProductId());
-
-    assertTrue(entity.isPresent());
-    assertEqualsProduct(savedEntity, entity.get());
+    StepVerifier.create(repository.findByProductId(savedEntity.getProductId()))
+      .assertNext(foundEntity -> assertEqualsProduct(savedEntity, foundEntity))
+      .verifyComplete();
   }
 
   @Test
   void duplicateError() {
-    assertThrows(DuplicateKeyException.class, () -> {
-      ProductEntity entity = new ProductEntity(savedEntity.getProductId(), "n", 1);
-      repository.save(entity);
-    });
+    ProductEntity entity = new ProductEntity(savedEntity.getProductId(), "n", 1);
+    StepVerifier.create(repository.save(entity)).expectError(DuplicateKeyException.class).verify();
   }
 
   @Test
   void optimisticLockError() {
 
     // Store the saved entity in two separate entity objects
-    ProductEntity entity1 = repository.findById(savedEntity.getId()).get();
-    ProductEntity entity2 = repository.findById(savedEntity.getId()).get();
+    ProductEntity entity1 = repository.findById(savedEntity.getId()).block();
+    ProductEntity entity2 = repository.findById(savedEntity.getId()).block();
 
     // Update the entity using the first entity object
     entity1.setName("n1");
-    repository.save(entity1);
+    repository.save(entity1).block();
 
     // Update the entity using the second entity object.
     // This should fail since the second entity now holds an old version number, i.e. an Optimistic Lock Error
-    assertThrows(OptimisticLockingFailureException.class, () -> {
-      entity2.setName("n2");
-      repository.save(entity2);
-    }); 
+    entity2.setName("n2");
+    StepVerifier.create(repository.save(entity2)).expectError(OptimisticLockingFailureException.class).verify();
 
     // Get the updated entity from the database and verify its new sate
-    ProductEntity updatedEntity = repository.findById(savedEntity.getId()).get();
-    assertEquals(1, (int)updatedEntity.getVersion());
-    assertEquals("n1", updatedEntity.getName());
+    StepVerifier.create(repository.findById(savedEntity.getId()))
+      .assertNext(updatedEntity -> {
+        assertEquals(1, (int)updatedEntity.getVersion());
+        assertEquals("n1", updatedEntity.getName());
+      })
+      .verifyComplete();
   }
 
   @Test
   void paging() {
 
-    repository.deleteAll();
+    repository.deleteAll().block();
 
     List<ProductEntity> newProducts = rangeClosed(1001, 1010)
       .mapToObj(i -> new ProductEntity(i, "name " + i, i))
       .collect(Collectors.toList());
-    repository.saveAll(newProducts);
+    repository.saveAll(newProducts).blockLast();
 
     Pageable nextPage = PageRequest.of(0, 4, ASC, "productId");
     nextPage = testNextPage(nextPage, "[1001, 1002, 1003, 1004]", true);
@@ -125,10 +133,10 @@ class ProductServicePersistenceTests extends MongoDbTestBase {
   }
 
   private Pageable testNextPage(Pageable nextPage, String expectedProductIds, boolean expectsNextPage) {
-    Page<ProductEntity> productPage = repository.findAll(nextPage);
-    assertEquals(expectedProductIds, productPage.getContent().stream().map(ProductEntity::getProductId).toList().toString());
-    assertEquals(expectsNextPage, productPage.hasNext());
-    return productPage.nextPageable();
+    List<ProductEntity> productPage = repository.findAllBy(nextPage).collectList().block();
+    assertEquals(expectedProductIds, productPage.stream().map(ProductEntity::getProductId).toList().toString());
+    assertEquals(expectsNextPage, repository.findAllBy(nextPage.next()).hasElements().block());
+    return nextPage.next();
   }
 
   private void assertEqualsProduct(ProductEntity expectedEntity, ProductEntity actualEntity) {
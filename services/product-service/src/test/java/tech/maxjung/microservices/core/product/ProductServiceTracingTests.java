@@ -0,0 +1,76 @@
+package tech.maxjung.microservices.core.product;
+
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import tech.maxjung.microservices.core.product.persistence.ProductEntity;
+import tech.maxjung.microservices.core.product.persistence.ProductRepository;
+import tech.maxjung.util.tracing.InMemorySpanExporter;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+// tracing is disabled in tests unless asked for
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"app.tracing.exporter=in-memory"})
+@AutoConfigureObservability(metrics = false)
+class ProductServiceTracingTests extends MongoDbTestBase {
+
+	private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+	private static final String CALLER_SPAN_ID = "00f067aa0ba902b7";
+
+	@Autowired
+	private WebTestClient client;
+
+	@Autowired
+	private ProductRepository repository;
+
+	@Autowired
+	private InMemorySpanExporter spans;
+
+	@BeforeEach
+	void setupDb() {
+		repository.deleteAll().block();
+		repository.save(new ProductEntity(1, "name", 1)).block();
+	}
+
+	@Test
+	void repositoryCallIsAChildOfTheRequestSpan() throws InterruptedException {
+
+		client.get()
+			.uri("/product/1")
+			.header("traceparent", "00-" + TRACE_ID + "-" + CALLER_SPAN_ID + "-01")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk();
+
+		SpanData server = awaitSpan(span -> span.getKind() == SpanKind.SERVER);
+		SpanData repositoryCall = awaitSpan(span -> span.getName().equals("ProductRepository.findByProductId"));
+
+		assertEquals(CALLER_SPAN_ID, server.getParentSpanId());
+		assertEquals(server.getSpanId(), repositoryCall.getParentSpanId());
+	}
+
+	// the spans are exported in batches, every few seconds
+	private SpanData awaitSpan(Predicate<SpanData> predicate) throws InterruptedException {
+		for (int i = 0; i < 150; i++) {
+			List<SpanData> trace = spans.getSpans(TRACE_ID);
+			Optional<SpanData> span = trace.stream().filter(predicate).findFirst();
+			if (span.isPresent()) {
+				return span.get();
+			}
+			Thread.sleep(100);
+		}
+		return fail("span not exported: " + spans.getSpans(TRACE_ID));
+	}
+}
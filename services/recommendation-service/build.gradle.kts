@@ -26,8 +26,11 @@ dependencies {
 	implementation(project(":util"))
 
 	implementation("org.springframework.boot:spring-boot-starter-actuator")
+	runtimeOnly("io.micrometer:micrometer-registry-prometheus")
+	implementation("io.micrometer:micrometer-tracing-bridge-otel")
 	implementation("org.springframework.boot:spring-boot-starter-webflux")
-	implementation("org.springframework.boot:spring-boot-starter-data-mongodb")
+	implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
+	implementation("org.springframework.boot:spring-boot-starter-data-mongodb-reactive")
 	implementation("org.mapstruct:mapstruct:$mapstructVersion")
 
 	compileOnly("org.mapstruct:mapstruct-processor:$mapstructVersion")
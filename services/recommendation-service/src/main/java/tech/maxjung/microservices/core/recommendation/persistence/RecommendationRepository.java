@@ -1,13 +1,34 @@
 package tech.maxjung.microservices.core.recommendation.persistence;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import org.springframework.data.repository.CrudRepository;
-import org.springframework.transaction.annotation.Transactional;
+import java.util.Collection;
 
-import java.util.List;
+// ReactiveMongoRepository for insert(Iterable), which writes all entities with a single insertMany
+public interface RecommendationRepository extends ReactiveMongoRepository<RecommendationEntity, String> {
 
-public interface RecommendationRepository extends CrudRepository<RecommendationEntity, String> {
+	Flux<RecommendationEntity> findByProductId(int productId);
 
-	@Transactional(readOnly = true)
-	List<RecommendationEntity> findByProductId(int productId);
+	/* A single aggregation for the first limitPerProduct recommendations of each product, ordered by productId and
+		 recommendationId. The $in match is served by the prod-rec-id index, the recommendations beyond the limit of
+		 their product are numbered and dropped on the server, as $limit can't be applied per product. */
+	@Aggregation(pipeline = {
+		"{ $match: { productId: { $in: ?0 } } }",
+		"{ $setWindowFields: { partitionBy: '$productId', sortBy: { recommendationId: 1 }, output: { rowNum: { $documentNumber: {} } } } }",
+		"{ $match: { rowNum: { $lte: ?1 } } }",
+		"{ $unset: 'rowNum' }",
+		"{ $sort: { productId: 1, recommendationId: 1 } }"
+	})
+	Flux<RecommendationEntity> findFirstOfEachProductIdIn(Collection<Integer> productIds, int limitPerProduct);
+
+	// keyset access on (productId,recommendationId), served by the prod-rec-id index
+	Flux<RecommendationEntity> findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(
+		int productId, int recommendationId, Limit limit);
+
+	// a single deleteMany on the server, emits the number of deleted recommendations
+	Mono<Long> deleteByProductId(int productId);
 }
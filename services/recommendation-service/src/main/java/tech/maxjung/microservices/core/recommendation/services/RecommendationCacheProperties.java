@@ -0,0 +1,25 @@
+package tech.maxjung.microservices.core.recommendation.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the recommendation cache, bound from the {@code app.recommendation.cache.*} properties.
+ *
+ * @param enabled               if false, every lookup reads from MongoDB
+ * @param maximumSize           max estimated size of the cached recommendations, Caffeine evicts the least valuable
+ *                              products' recommendations beyond that
+ * @param timeToLive            recommendations are reread at the latest after this time, also if another instance
+ *                              changed them
+ * @param maxEntriesPerProduct  the recommendations of products with more than this are not cached, but read page by page
+ */
+@ConfigurationProperties(prefix = "app.recommendation.cache")
+public record RecommendationCacheProperties(
+	@DefaultValue("true") boolean enabled,
+	@DefaultValue("32MB") DataSize maximumSize,
+	@DefaultValue("5m") Duration timeToLive,
+	@DefaultValue("100") int maxEntriesPerProduct
+) {}
@@ -1,66 +1,242 @@
 package tech.maxjung.microservices.core.recommendation.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Limit;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import tech.maxjung.api.core.recommendation.Recommendation;
+import tech.maxjung.api.core.recommendation.RecommendationPage;
 import tech.maxjung.api.core.recommendation.RecommendationService;
 import tech.maxjung.api.exceptions.InvalidInputException;
 import tech.maxjung.microservices.core.recommendation.persistence.RecommendationEntity;
 import tech.maxjung.microservices.core.recommendation.persistence.RecommendationRepository;
+import tech.maxjung.util.cache.ProductIdCache;
+import tech.maxjung.util.cache.SizeEstimates;
+import tech.maxjung.util.http.ConditionalGetFilter;
+import tech.maxjung.util.http.ETags;
 import tech.maxjung.util.http.ServiceUtil;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static tech.maxjung.api.BatchLimits.MAX_PRODUCT_IDS;
 
 @RestController
 public class RecommendationServiceImpl implements RecommendationService {
 
 	private static final Logger LOG = LoggerFactory.getLogger(RecommendationServiceImpl.class);
 
+	private static final int MAX_PAGE_SIZE = 100;
+
 	private final RecommendationRepository repository;
 
 	private final RecommendationMapper mapper;
 
 	private final ServiceUtil serviceUtil;
 
-	public RecommendationServiceImpl(RecommendationRepository repository, RecommendationMapper mapper, ServiceUtil serviceUtil) {
+	private final ProductIdCache<CachedRecommendations> cache;
+
+	private final int maxCachedPerProduct;
+
+	public RecommendationServiceImpl(
+		RecommendationRepository repository,
+		RecommendationMapper mapper,
+		ServiceUtil serviceUtil,
+		RecommendationCacheProperties cacheProperties,
+		ObjectProvider<MeterRegistry> meterRegistry
+	) {
 		this.repository = repository;
 		this.mapper = mapper;
 		this.serviceUtil = serviceUtil;
+		this.maxCachedPerProduct = cacheProperties.maxEntriesPerProduct();
+		this.cache = new ProductIdCache<>("recommendations", cacheProperties.enabled(), cacheProperties.maximumSize(),
+			cacheProperties.timeToLive(), CachedRecommendations::sizeEstimate, meterRegistry);
+	}
+
+	/* All recommendations of a product, ordered by recommendationId, with the tags of their entities' ids and versions
+	   for the ETags. Or none if the product has more than max-entries-per-product, then complete is false,
+	   and they are read from MongoDB page by page as before. */
+	private record CachedRecommendations(List<Recommendation> recommendations, long[] tags, boolean complete) {
+
+		// the serviceAddress is shared by all recommendations, so it isn't counted
+		int sizeEstimate() {
+			return SizeEstimates.object(3) + 16 + tags.length * Long.BYTES + SizeEstimates.list(recommendations, recommendation ->
+				SizeEstimates.object(6) + SizeEstimates.string(recommendation.author()) + SizeEstimates.string(recommendation.content()));
+		}
+	}
+
+	/* On a miss, max-entries-per-product + 1 recommendations are read. If the product has more, only that verdict is
+	   cached, and the recommendations already read are handed to head, so the request that read them continues after
+	   them instead of reading them again. */
+	private Mono<CachedRecommendations> cachedRecommendations(int productId, String serviceAddress, AtomicReference<CachedRecommendations> head) {
+		return cache.get(productId, id -> repository.findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(
+				id, Integer.MIN_VALUE, Limit.of(maxCachedPerProduct + 1))
+			.collectList()
+			.map(entities -> {
+				if (entities.size() <= maxCachedPerProduct) {
+					return new CachedRecommendations(mapper.entitiesToApis(entities, serviceAddress), tags(entities), true);
+				}
+				head.set(new CachedRecommendations(mapper.entitiesToApis(entities, serviceAddress), tags(entities), false));
+				return new CachedRecommendations(List.of(), new long[0], false);
+			}));
+	}
+
+	private static long[] tags(List<RecommendationEntity> entities) {
+		return entities.stream().mapToLong(entity -> ETags.tag(entity.getId(), entity.getVersion())).toArray();
 	}
 
 	@Override
-	public List<Recommendation> getRecommendations(int productId) {
+	public Flux<Recommendation> getRecommendations(int productId) {
 
 		if (productId < 1) {
 			throw new InvalidInputException("Invalid productId: " + productId);
 		}
 
-		List<RecommendationEntity> recommendationEntities = repository.findByProductId(productId);
-		List<Recommendation> recommendationApis = mapper.entitiesToApis(recommendationEntities, serviceUtil.getServiceAddress());
+		LOG.debug("/recommendation return the found recommendations for productId={}", productId);
+
+		String serviceAddress = serviceUtil.getServiceAddress();
+
+		// only cached recommendations get an ETag, the others are streamed before they are all read
+		AtomicReference<CachedRecommendations> head = new AtomicReference<>();
+		return cachedRecommendations(productId, serviceAddress, head)
+			.flatMapMany(cached -> {
+				if (cached.complete()) {
+					return ConditionalGetFilter.unlessNotModified(ETags.of(cached.tags(), 0, cached.tags().length), Flux.fromIterable(cached.recommendations()));
+				}
+				if (head.get() == null) {
+					return repository.findByProductId(productId).map(entity -> mapper.entityToApi(entity, serviceAddress));
+				}
+				List<Recommendation> read = head.get().recommendations();
+				return Flux.fromIterable(read).concatWith(Flux.defer(() -> repository
+					.findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(
+						productId, read.get(read.size() - 1).recommendationId(), Limit.unlimited())
+					.map(entity -> mapper.entityToApi(entity, serviceAddress))));
+			});
+	}
+
+	@Override
+	public Flux<Recommendation> getRecommendationsOfProducts(List<Integer> productIds, int pageSize) {
+
+		if (productIds.isEmpty() || productIds.size() > MAX_PRODUCT_IDS) {
+			throw new InvalidInputException("Invalid number of productIds: " + productIds.size());
+		}
+		productIds.stream().filter(productId -> productId < 1).findFirst().ifPresent(productId -> {
+			throw new InvalidInputException("Invalid productId: " + productId);
+		});
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new InvalidInputException("Invalid pageSize: " + pageSize);
+		}
+
+		LOG.debug("/recommendation/batch return the first {} recommendations for productIds={}", pageSize, productIds);
+
+		String serviceAddress = serviceUtil.getServiceAddress();
 
-		LOG.debug("/recommendation response size: {}", recommendationApis.size());
-		return recommendationApis;
+		// one more recommendation than a page per product tells the caller that the product has more
+		return repository.findFirstOfEachProductIdIn(productIds, pageSize + 1)
+			.map(entity -> mapper.entityToApi(entity, serviceAddress));
 	}
 
 	@Override
-	public Recommendation createRecommendation(Recommendation recommendation) {
-		try {
-			RecommendationEntity recommendationEntity = repository.save(mapper.apiToEntity(recommendation));
-			LOG.debug("createRecommendation: entity created for {}", getKeyString(recommendation));
+	public Mono<RecommendationPage> getRecommendationPage(int productId, String continuationToken, int pageSize) {
+
+		if (productId < 1) {
+			throw new InvalidInputException("Invalid productId: " + productId);
+		}
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new InvalidInputException("Invalid pageSize: " + pageSize);
+		}
+		int afterRecommendationId = continuationToken == null ? Integer.MIN_VALUE : parseContinuationToken(continuationToken);
+
+		LOG.debug("/recommendation/page return a page of recommendations for productId={} after recommendationId {}",
+			productId, afterRecommendationId);
+
+		// reads one recommendation more than asked for, to know if there is a next page
+		String serviceAddress = serviceUtil.getServiceAddress();
+		AtomicReference<CachedRecommendations> head = new AtomicReference<>();
+		return cachedRecommendations(productId, serviceAddress, head)
+			.flatMap(cached -> {
+				if (cached.complete()) {
+					return page(cached.recommendations(), cached.tags(), firstAfter(cached.recommendations(), afterRecommendationId), pageSize);
+				}
+				// a page, with the recommendation after it, that lies within the recommendations just read isn't read again
+				if (head.get() != null) {
+					int from = firstAfter(head.get().recommendations(), afterRecommendationId);
+					if (from + pageSize < head.get().recommendations().size()) {
+						return page(head.get().recommendations(), head.get().tags(), from, pageSize);
+					}
+				}
+				return repository.findByProductIdAndRecommendationIdGreaterThanOrderByRecommendationIdAsc(
+						productId, afterRecommendationId, Limit.of(pageSize + 1))
+					.collectList()
+					.flatMap(entities -> page(mapper.entitiesToApis(entities, serviceAddress), tags(entities), 0, pageSize));
+			});
+	}
+
+	private static int firstAfter(List<Recommendation> recommendations, int afterRecommendationId) {
+		int index = 0;
+		while (index < recommendations.size() && recommendations.get(index).recommendationId() <= afterRecommendationId) {
+			index++;
+		}
+		return index;
+	}
 
-			String serviceAddress = serviceUtil.getServiceAddress();
-			return mapper.entityToApi(recommendationEntity, serviceAddress);
-		} catch (DuplicateKeyException dke) {
-			throw new InvalidInputException("Duplicate key " + getKeyString(recommendation));
+	// the page of up to pageSize recommendations from index from, with a continuation token if there are more after it
+	private static Mono<RecommendationPage> page(List<Recommendation> recommendations, long[] tags, int from, int pageSize) {
+		int to = Math.min(from + pageSize, recommendations.size());
+		String nextToken = to < recommendations.size() ? String.valueOf(recommendations.get(to - 1).recommendationId()) : null;
+
+		// a page that gets a successor changes, too
+		String etag = ETags.of(tags, from, to) + (nextToken == null ? "" : "-" + nextToken);
+		return ConditionalGetFilter.unlessNotModified(etag, Mono.just(new RecommendationPage(recommendations.subList(from, to), nextToken)));
+	}
+
+	private static int parseContinuationToken(String continuationToken) {
+		try {
+			return Integer.parseInt(continuationToken);
+		} catch (NumberFormatException ex) {
+			throw new InvalidInputException("Invalid continuationToken: " + continuationToken);
 		}
 	}
 
 	@Override
-	public void deleteRecommendations(int productId) {
+	public Mono<Recommendation> createRecommendation(Recommendation recommendation) {
+		String serviceAddress = serviceUtil.getServiceAddress();
+
+		return repository.save(mapper.apiToEntity(recommendation))
+			.onErrorMap(
+				DuplicateKeyException.class,
+				ex -> new InvalidInputException("Duplicate key " + getKeyString(recommendation)))
+			.doOnNext(entity -> LOG.debug("createRecommendation: entity created for {}", getKeyString(recommendation)))
+			.map(entity -> mapper.entityToApi(entity, serviceAddress))
+			.doFinally(signal -> cache.invalidate(recommendation.productId()));
+	}
+
+	@Override
+	public Flux<Recommendation> createRecommendations(List<Recommendation> recommendations) {
+		LOG.debug("createRecommendations: will insert {} recommendations", recommendations.size());
+		String serviceAddress = serviceUtil.getServiceAddress();
+
+		return repository.insert(recommendations.stream().map(mapper::apiToEntity).toList())
+			.onErrorMap(
+				DuplicateKeyException.class,
+				ex -> new InvalidInputException("Duplicate key in batch of " + recommendations.size() + " recommendations"))
+			.map(entity -> mapper.entityToApi(entity, serviceAddress))
+			.doFinally(signal -> cache.invalidateAll(recommendations.stream().map(Recommendation::productId).distinct().toList()));
+	}
+
+	@Override
+	public Mono<Void> deleteRecommendations(int productId) {
 		LOG.debug("deleteRecommendations: tries to delete recommendations for the product with productId: {}", productId);
-		repository.deleteAll(repository.findByProductId(productId));
+		return repository.deleteByProductId(productId)
+			.doOnNext(deletedRecommendations -> LOG.debug("deleteRecommendations: deleted {} recommendations for the product with productId: {}",
+				deletedRecommendations, productId))
+			.doFinally(signal -> cache.invalidate(productId))
+			.then();
 	}
 
 	private static String getKeyString(Recommendation r) {
@@ -6,17 +6,23 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 import tech.maxjung.api.core.recommendation.Recommendation;
 import tech.maxjung.microservices.core.recommendation.persistence.RecommendationRepository;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 import static reactor.core.publisher.Mono.just;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = "app.recommendation.cache.max-entries-per-product=2")
 class RecommendationServiceApplicationTests extends MongoDbTestBase {
 
   @Autowired
@@ -28,7 +34,7 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 
 	@BeforeEach
 	void setupDb() {
-		repository.deleteAll();
+		repository.deleteAll().block();
 	}
 
 
@@ -49,7 +55,7 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 	  postAndVerifyRecommendation(productId, 2, OK);
 	  postAndVerifyRecommendation(productId, 3, OK);
 
-	  assertEquals(3, repository.findByProductId(productId).size());
+	  assertEquals(3, (long) repository.findByProductId(productId).count().block());
 
 	  getAndVerifyRecommendationsByProductId(productId, OK)
       .jsonPath("$.length()").isEqualTo(3)
@@ -57,6 +63,110 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 		  .jsonPath("$[2].recommendationId").isEqualTo(3);
   }
 
+	@Test
+	void getRecommendationsByProductIdAsStream() {
+		int productId = 1;
+		postAndVerifyRecommendation(productId, 1, OK);
+		postAndVerifyRecommendation(productId, 2, OK);
+		postAndVerifyRecommendation(productId, 3, OK);
+
+		Flux<Recommendation> recommendations = client.get()
+			.uri("/recommendation?productId=" + productId)
+			.accept(APPLICATION_NDJSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+			.returnResult(Recommendation.class)
+			.getResponseBody();
+
+		StepVerifier.create(recommendations.map(Recommendation::recommendationId))
+			.expectNext(1, 2, 3)
+			.verifyComplete();
+	}
+
+	@Test
+	void getRecommendationsByProductIdAsSmileStream() {
+		int productId = 1;
+		postAndVerifyRecommendation(productId, 1, OK);
+		postAndVerifyRecommendation(productId, 2, OK);
+
+		MediaType smileStream = MediaType.parseMediaType("application/stream+x-jackson-smile");
+		Flux<Recommendation> recommendations = client.get()
+			.uri("/recommendation?productId=" + productId)
+			.accept(smileStream)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentTypeCompatibleWith(smileStream)
+			.returnResult(Recommendation.class)
+			.getResponseBody();
+
+		StepVerifier.create(recommendations.map(Recommendation::recommendationId))
+			.expectNext(1, 2)
+			.verifyComplete();
+	}
+
+	@Test
+	void getRecommendationsOfProducts() {
+		postAndVerifyRecommendation(2, 2, OK);
+		postAndVerifyRecommendation(1, 2, OK);
+		postAndVerifyRecommendation(2, 1, OK);
+		postAndVerifyRecommendation(1, 1, OK);
+		postAndVerifyRecommendation(3, 1, OK);
+
+		client.get()
+			.uri("/recommendation/batch?productIds=1,2")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(4)
+			.jsonPath("$[*].productId").isEqualTo(List.of(1, 1, 2, 2))
+			.jsonPath("$[*].recommendationId").isEqualTo(List.of(1, 2, 1, 2));
+	}
+
+	@Test
+	void getRecommendationsOfProductsLimitsEachProductToOneMoreThanAPage() {
+		postAndVerifyRecommendation(1, 3, OK);
+		postAndVerifyRecommendation(1, 2, OK);
+		postAndVerifyRecommendation(1, 1, OK);
+		postAndVerifyRecommendation(2, 1, OK);
+
+		client.get()
+			.uri("/recommendation/batch?productIds=1,2&pageSize=1")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$[*].productId").isEqualTo(List.of(1, 1, 2))
+			.jsonPath("$[*].recommendationId").isEqualTo(List.of(1, 2, 1));
+	}
+
+	@Test
+	void getRecommendationPagesByProductId() {
+		int productId = 1;
+		postAndVerifyRecommendation(productId, 1, OK);
+		postAndVerifyRecommendation(productId, 2, OK);
+		postAndVerifyRecommendation(productId, 3, OK);
+
+		getAndVerifyRecommendationPage("?productId=" + productId + "&pageSize=2", OK)
+			.jsonPath("$.recommendations.length()").isEqualTo(2)
+			.jsonPath("$.recommendations[1].recommendationId").isEqualTo(2)
+			.jsonPath("$.continuationToken").isEqualTo("2");
+
+		getAndVerifyRecommendationPage("?productId=" + productId + "&pageSize=2&continuationToken=2", OK)
+			.jsonPath("$.recommendations.length()").isEqualTo(1)
+			.jsonPath("$.recommendations[0].recommendationId").isEqualTo(3)
+			.jsonPath("$.continuationToken").isEmpty();
+	}
+
+	@Test
+	void getRecommendationPageInvalidPageSize() {
+		getAndVerifyRecommendationPage("?productId=1&pageSize=0", UNPROCESSABLE_ENTITY)
+			.jsonPath("$.path").isEqualTo("/recommendation/page")
+			.jsonPath("$.message").isEqualTo("Invalid pageSize: 0");
+	}
+
   @Test
   void getRecommendationsMissingParameter() {
 	  getAndVerifyRecommendationsByProductId("", BAD_REQUEST)
@@ -95,20 +205,43 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 		postAndVerifyRecommendation(productId, recommendationId, UNPROCESSABLE_ENTITY)
 			.jsonPath("$.path").isEqualTo("/recommendation")
 			.jsonPath("$.message").value(Matchers.startsWithIgnoringCase("duplicate key"));
-		assertEquals(1, repository.count());
+		assertEquals(1, (long) repository.count().block());
+	}
+
+	@Test
+	void createRecommendationsInBatch() {
+		int productId = 1;
+
+		postAndVerifyRecommendations(
+			List.of(recommendation(productId, 1), recommendation(productId, 2), recommendation(productId, 3)), OK)
+			.jsonPath("$.length()").isEqualTo(3)
+			.jsonPath("$[2].recommendationId").isEqualTo(3);
+
+		assertEquals(3, (long) repository.findByProductId(productId).count().block());
+	}
+
+	@Test
+	void createRecommendationsInBatchDuplicateError() {
+		int productId = 1;
+		postAndVerifyRecommendation(productId, 2, OK);
+
+		postAndVerifyRecommendations(
+			List.of(recommendation(productId, 1), recommendation(productId, 2), recommendation(productId, 3)), UNPROCESSABLE_ENTITY)
+			.jsonPath("$.path").isEqualTo("/recommendation/batch")
+			.jsonPath("$.message").value(Matchers.startsWithIgnoringCase("duplicate key"));
 	}
 
 	@Test
 	void deleteRecommendations() {
 		int productId = 1;
-		assertEquals(0, repository.findByProductId(productId).size());
+		assertEquals(0, (long) repository.findByProductId(productId).count().block());
 
 		postAndVerifyRecommendation(productId, 1, OK);
 		postAndVerifyRecommendation(productId, 2, OK);
-		assertEquals(2, repository.findByProductId(productId).size());
+		assertEquals(2, (long) repository.findByProductId(productId).count().block());
 
 		deleteAndVerifyRecommendationsByProductId(productId, OK);
-		assertEquals(0, repository.findByProductId(productId).size());
+		assertEquals(0, (long) repository.findByProductId(productId).count().block());
 
 		deleteAndVerifyRecommendationsByProductId(productId, OK); // idempotence
 	}
@@ -128,8 +261,33 @@ class RecommendationServiceApplicationTests extends MongoDbTestBase {
 			.expectBody();
 	}
 
+	private WebTestClient.BodyContentSpec getAndVerifyRecommendationPage(String query, HttpStatus expectedStatus) {
+		return client.get()
+			.uri("/recommendation/page" + query)
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isEqualTo(expectedStatus)
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody();
+	}
+
+	private WebTestClient.BodyContentSpec postAndVerifyRecommendations(List<Recommendation> recommendations, HttpStatus expectedStatus) {
+		return client.post()
+			.uri("/recommendation/batch")
+			.bodyValue(recommendations)
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isEqualTo(expectedStatus)
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody();
+	}
+
+	private static Recommendation recommendation(int productId, int recommendationId) {
+		return new Recommendation(productId, recommendationId, "Author " + recommendationId, recommendationId, "Content " + recommendationId, "SA");
+	}
+
 	private WebTestClient.BodyContentSpec postAndVerifyRecommendation(int productId, int recommendationId, HttpStatus expectedStatus) {
-		Recommendation recommendation = new Recommendation(productId, recommendationId, "Author " + recommendationId, recommendationId, "Content " + recommendationId, "SA");
+		Recommendation recommendation = recommendation(productId, recommendationId);
 		return client.post()
 			.uri("/recommendation")
 			.body(just(recommendation), Recommendation.class)
@@ -6,7 +6,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.dao.OptimisticLockingFailureException;
-import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.test.StepVerifier;
 import tech.maxjung.microservices.core.recommendation.persistence.RecommendationEntity;
 import tech.maxjung.microservices.core.recommendation.persistence.RecommendationRepository;
 
@@ -24,18 +25,21 @@ class RecommendationServicePersistenceTests extends MongoDbTestBase {
   private RecommendationRepository repository;
 
   @Autowired
-  private MongoTemplate mongoTemplate;
+  private ReactiveMongoTemplate mongoTemplate;
 
   private RecommendationEntity savedEntity;
 
   @BeforeEach
   void setupDb() {
-    repository.deleteAll();
+    StepVerifier.create(repository.deleteAll()).verifyComplete();
 
     RecommendationEntity entity = new RecommendationEntity(1, 2, "a", 3, "c");
-    savedEntity = repository.save(entity);
-
-    assertEqualsRecommendation(entity, savedEntity);
+    StepVerifier.create(repository.save(entity))
+      .assertNext(createdEntity -> {
+        savedEntity = createdEntity;
+        assertEqualsRecommendation(entity, savedEntity);
+      })
+      .verifyComplete();
   }
 
 
@@ -43,33 +47,51 @@ class RecommendationServicePersistenceTests extends MongoDbTestBase {
   void create() {
 
     RecommendationEntity newEntity = new RecommendationEntity(1, 3, "a", 3, "c");
-    repository.save(newEntity);
+    StepVerifier.create(repository.save(newEntity))
+      .expectNextMatches(createdEntity -> newEntity.getRecommendationId() == createdEntity.getRecommendationId())
+      .verifyComplete();
+
+    StepVerifier.create(repository.findById(newEntity.getId()))
+      .assertNext(foundEntity -> assertEqualsRecommendation(newEntity, foundEntity))
+      .verifyComplete();
 
-    RecommendationEntity foundEntity = repository.findById(newEntity.getId()).get();
-    assertEqualsRecommendation(newEntity, foundEntity);
+    StepVerifier.create(repository.count()).expectNext(2L).verifyComplete();
+  }
+
+  @Test
+  void deleteByProductId() {
+    repository.save(new RecommendationEntity(1, 3, "a", 3, "c")).block();
+    repository.save(new RecommendationEntity(2, 1, "a", 3, "c")).block();
 
-    assertEquals(2, repository.count());
+    StepVerifier.create(repository.deleteByProductId(1)).expectNext(2L).verifyComplete();
+    StepVerifier.create(repository.findByProductId(1).count()).expectNext(0L).verifyComplete();
+    StepVerifier.create(repository.findByProductId(2).count()).expectNext(1L).verifyComplete();
   }
 
   @Test
   void update() {
     savedEntity.setAuthor("a2");
-    repository.save(savedEntity);
-
-    RecommendationEntity foundEntity = repository.findById(savedEntity.getId()).get();
-    assertEquals(1, (long)foundEntity.getVersion());
-    assertEquals("a2", foundEntity.getAuthor());
+    StepVerifier.create(repository.save(savedEntity))
+      .expectNextMatches(updatedEntity -> updatedEntity.getAuthor().equals("a2"))
+      .verifyComplete();
+
+    StepVerifier.create(repository.findById(savedEntity.getId()))
+      .assertNext(foundEntity -> {
+        assertEquals(1, (long)foundEntity.getVersion());
+        assertEquals("a2", foundEntity.getAuthor());
+      })
+      .verifyComplete();
   }
 
   @Test
   void delete() {
-    repository.delete(savedEntity);
-    assertFalse(repository.existsById(savedEntity.getId()));
+    StepVerifier.create(repository.delete(savedEntity)).verifyComplete();
+    StepVerifier.create(repository.existsById(savedEntity.getId())).expectNext(false).verifyComplete();
   }
 
   @Test
   void getByProductId() {
-    List<RecommendationEntity> entityList = repository.findByProductId(savedEntity.getProductId());
+    List<RecommendationEntity> entityList = repository.findByProductId(savedEntity.getProductId()).collectList().block();
 
     assertThat(entityList, hasSize(1));
     assertEqualsRecommendation(savedEntity, entityList.get(0));
@@ -80,41 +102,37 @@ class RecommendationServicePersistenceTests extends MongoDbTestBase {
     System.out.println("Running duplicateError test");
 
     // Ensure index is created before running the test
-    List<org.springframework.data.mongodb.core.index.IndexInfo> indexInfoList = mongoTemplate.indexOps(RecommendationEntity.class).getIndexInfo();
-    indexInfoList.forEach(indexInfo -> System.out.println("Index Info: " + indexInfo));
-
-    assertThrows(DuplicateKeyException.class, () -> {
-      RecommendationEntity entity = new RecommendationEntity(1, 2, "a", 3, "c");
-      repository.save(entity);
+    mongoTemplate.indexOps(RecommendationEntity.class).getIndexInfo()
+      .doOnNext(indexInfo -> System.out.println("Index Info: " + indexInfo))
+      .blockLast();
 
-//      RecommendationEntity entity2 = new RecommendationEntity(1, 2, "a3", 3, "c");
-//      repository.save(entity2);
-
-    });
+    RecommendationEntity entity = new RecommendationEntity(1, 2, "a", 3, "c");
+    StepVerifier.create(repository.save(entity)).expectError(DuplicateKeyException.class).verify();
   }
 
   @Test
   void optimisticLockError() {
 
     // Store the saved entity in two separate entity objects
-    RecommendationEntity entity1 = repository.findById(savedEntity.getId()).get();
-    RecommendationEntity entity2 = repository.findById(savedEntity.getId()).get();
+    RecommendationEntity entity1 = repository.findById(savedEntity.getId()).block();
+    RecommendationEntity entity2 = repository.findById(savedEntity.getId()).block();
 
     // Update the entity using the first entity object
     entity1.setAuthor("a1");
-    repository.save(entity1);
+    repository.save(entity1).block();
 
     //  Update the entity using the second entity object.
     // This should fail since the second entity now holds an old version number, i.e. an Optimistic Lock Error
-    assertThrows(OptimisticLockingFailureException.class, () -> {
-      entity2.setAuthor("a2");
-      repository.save(entity2);
-    });
+    entity2.setAuthor("a2");
+    StepVerifier.create(repository.save(entity2)).expectError(OptimisticLockingFailureException.class).verify();
 
     // Get the updated entity from the database and verify its new sate
-    RecommendationEntity updatedEntity = repository.findById(savedEntity.getId()).get();
-    assertEquals(1, (int)updatedEntity.getVersion());
-    assertEquals("a1", updatedEntity.getAuthor());
+    StepVerifier.create(repository.findById(savedEntity.getId()))
+      .assertNext(updatedEntity -> {
+        assertEquals(1, (int)updatedEntity.getVersion());
+        assertEquals("a1", updatedEntity.getAuthor());
+      })
+      .verifyComplete();
   }
 
   private void assertEqualsRecommendation(RecommendationEntity expectedEntity, RecommendationEntity actualEntity) {
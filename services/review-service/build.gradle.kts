@@ -26,9 +26,15 @@ dependencies {
     implementation(project(":util"))
 
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
+    implementation("io.micrometer:micrometer-tracing-bridge-otel")
+    implementation("io.micrometer:context-propagation")
     implementation("org.springframework.boot:spring-boot-starter-webflux")
+    implementation("com.fasterxml.jackson.dataformat:jackson-dataformat-smile")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("com.mysql:mysql-connector-j")
+    // in-memory stand-in for MySQL in the loadtest profile
+    runtimeOnly("com.h2database:h2")
     implementation("org.mapstruct:mapstruct:$mapstructVersion")
 
     compileOnly("org.mapstruct:mapstruct-processor:$mapstructVersion")
@@ -47,3 +53,21 @@ dependencies {
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+tasks.named<Test>("test") {
+    useJUnitPlatform {
+        excludeTags("benchmark")
+    }
+}
+
+// ./gradlew :services:review-service:benchmark
+tasks.register<Test>("benchmark") {
+    description = "Runs the tests tagged with 'benchmark'."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("benchmark")
+    }
+    testLogging.showStandardStreams = true
+}
@@ -1,18 +1,136 @@
 package tech.maxjung.microservices.core.review;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import tech.maxjung.microservices.core.review.services.ReviewCacheProperties;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 @SpringBootApplication
 @ComponentScan("tech.maxjung")
+@EnableConfigurationProperties(ReviewCacheProperties.class)
 public class ReviewServiceApplication {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceApplication.class);
 
+	private final String jdbcSchedulerMode;
+	private final int threadPoolSize;
+	private final int taskQueueSize;
+
+	public ReviewServiceApplication(
+		@Value("${app.jdbc-scheduler.mode}") String jdbcSchedulerMode,
+		@Value("${app.jdbc-scheduler.thread-pool-size}") int threadPoolSize,
+		@Value("${app.jdbc-scheduler.task-queue-size}") int taskQueueSize
+	) {
+		this.jdbcSchedulerMode = jdbcSchedulerMode;
+		this.threadPoolSize = threadPoolSize;
+		this.taskQueueSize = taskQueueSize;
+	}
+
+	/* JPA is blocking, so every repository call runs on this scheduler instead of on a Netty event-loop thread.
+	   No more than thread-pool-size calls (i.e. the size of the Hikari pool) run at a time, further calls wait
+	   in a bounded queue. In mode 'bounded' that is a fixed thread pool that rejects tasks once its queue is full,
+	   in mode 'virtual-threads' every call gets its own virtual thread, which parks until a permit is available. */
+	@Bean(destroyMethod = "dispose")
+	public Scheduler jdbcScheduler(ObjectProvider<MeterRegistry> meterRegistry) {
+		LOG.info("Creates a jdbcScheduler in mode {} with thread pool size = {}", jdbcSchedulerMode, threadPoolSize);
+
+		return switch (jdbcSchedulerMode) {
+			case "bounded" -> {
+				// a rejected call fails with a RejectedExecutionException, answered with 503 Service Unavailable
+				// by the GlobalControllerExceptionHandler, as saturation is expected in this mode
+				AtomicLong rejectedTasks = new AtomicLong();
+				ThreadPoolExecutor executor = new ThreadPoolExecutor(
+					threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS,
+					new ArrayBlockingQueue<>(taskQueueSize), jdbcThreadFactory(),
+					(task, pool) -> {
+						rejectedTasks.incrementAndGet();
+						throw new RejectedExecutionException("Too many concurrent database calls, the jdbc scheduler queue is full");
+					});
+				meterRegistry.ifAvailable(registry -> {
+					registerSaturationMetrics(registry, executor::getActiveCount, () -> executor.getQueue().size());
+					FunctionCounter.builder("jdbc.scheduler.rejected.tasks", rejectedTasks, AtomicLong::get)
+						.description("Repository calls rejected as the queue was full")
+						.tag("mode", jdbcSchedulerMode)
+						.register(registry);
+				});
+				yield Schedulers.fromExecutorService(executor, "jdbc");
+			}
+			case "virtual-threads" -> {
+				ExecutorService virtualThreads = newVirtualThreadPerTaskExecutor();
+				Semaphore permits = new Semaphore(threadPoolSize, true);
+				Executor executor = task -> virtualThreads.execute(() -> {
+					permits.acquireUninterruptibly();
+					try {
+						task.run();
+					} finally {
+						permits.release();
+					}
+				});
+				meterRegistry.ifAvailable(registry ->
+					registerSaturationMetrics(registry, () -> threadPoolSize - permits.availablePermits(), permits::getQueueLength));
+				yield Schedulers.fromExecutor(executor);
+			}
+			default -> throw new IllegalArgumentException("Unknown app.jdbc-scheduler.mode: " + jdbcSchedulerMode);
+		};
+	}
+
+	private void registerSaturationMetrics(MeterRegistry meterRegistry, Supplier<Number> activeTasks, Supplier<Number> queuedTasks) {
+		Gauge.builder("jdbc.scheduler.active.tasks", activeTasks)
+			.description("Repository calls currently executing")
+			.tag("mode", jdbcSchedulerMode)
+			.register(meterRegistry);
+		Gauge.builder("jdbc.scheduler.queued.tasks", queuedTasks)
+			.description("Repository calls waiting for a free database connection slot")
+			.tag("mode", jdbcSchedulerMode)
+			.register(meterRegistry);
+		Gauge.builder("jdbc.scheduler.max.active.tasks", () -> threadPoolSize)
+			.tag("mode", jdbcSchedulerMode)
+			.register(meterRegistry);
+	}
+
+	private static ThreadFactory jdbcThreadFactory() {
+		AtomicInteger threadCount = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, "jdbc-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	// looked up reflectively as the build still targets Java 17
+	private static ExecutorService newVirtualThreadPerTaskExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException("app.jdbc-scheduler.mode=virtual-threads requires Java 21 or later", ex);
+		}
+	}
+
 	public static void main(String[] args) {
 
 		ConfigurableApplicationContext context = SpringApplication.run(ReviewServiceApplication.class, args);
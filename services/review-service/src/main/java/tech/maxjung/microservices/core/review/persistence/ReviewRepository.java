@@ -1,12 +1,42 @@
 package tech.maxjung.microservices.core.review.persistence;
 
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.ListCrudRepository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
-public interface ReviewRepository extends CrudRepository<ReviewEntity, Integer> {
+public interface ReviewRepository extends ListCrudRepository<ReviewEntity, Integer> {
 
   @Transactional(readOnly = true)
   List<ReviewEntity> findByProductId(int productId);
+
+  /* A single query for the first limitPerProduct reviews of each product, ordered by productId and reviewId.
+     The row numbers are computed over (productId,reviewId) of the reviews_unique_idx index only, the rows beyond
+     the limit are dropped before the reviews are read. */
+  @Transactional(readOnly = true)
+  @Query(nativeQuery = true, value = """
+    select r.* from reviews r
+    join (
+      select id, row_number() over (partition by product_id order by review_id) as row_num
+      from reviews
+      where product_id in (:productIds)
+    ) ranked on ranked.id = r.id
+    where ranked.row_num <= :limitPerProduct
+    order by r.product_id, r.review_id
+    """)
+  List<ReviewEntity> findFirstOfEachProductIdIn(Collection<Integer> productIds, int limitPerProduct);
+
+  // keyset access on (productId,reviewId), served by the reviews_unique_idx index
+  @Transactional(readOnly = true)
+  List<ReviewEntity> findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(int productId, int reviewId, Limit limit);
+
+  // a single "delete ... where productId = ?" statement instead of loading and deleting the reviews one by one
+  @Modifying
+  @Transactional
+  @Query("delete from ReviewEntity r where r.productId = :productId")
+  int deleteByProductId(int productId);
 }
@@ -0,0 +1,24 @@
+package tech.maxjung.microservices.core.review.services;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings of the review cache, bound from the {@code app.review.cache.*} properties.
+ *
+ * @param enabled               if false, every lookup reads from MySQL
+ * @param maximumSize           max estimated size of the cached reviews, Caffeine evicts the least valuable
+ *                              products' reviews beyond that
+ * @param timeToLive            reviews are reread at the latest after this time, also if another instance changed them
+ * @param maxEntriesPerProduct  the reviews of products with more than this are not cached, but read chunk by chunk
+ */
+@ConfigurationProperties(prefix = "app.review.cache")
+public record ReviewCacheProperties(
+	@DefaultValue("true") boolean enabled,
+	@DefaultValue("32MB") DataSize maximumSize,
+	@DefaultValue("5m") Duration timeToLive,
+	@DefaultValue("100") int maxEntriesPerProduct
+) {}
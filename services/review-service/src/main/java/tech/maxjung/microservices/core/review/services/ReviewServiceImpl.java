@@ -1,65 +1,300 @@
 package tech.maxjung.microservices.core.review.services;
 
+import io.micrometer.context.ContextSnapshot;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import tech.maxjung.api.core.review.Review;
+import tech.maxjung.api.core.review.ReviewPage;
 import tech.maxjung.api.core.review.ReviewService;
 import tech.maxjung.api.exceptions.InvalidInputException;
 import tech.maxjung.microservices.core.review.persistence.ReviewEntity;
 import tech.maxjung.microservices.core.review.persistence.ReviewRepository;
+import tech.maxjung.util.cache.ProductIdCache;
+import tech.maxjung.util.cache.SizeEstimates;
+import tech.maxjung.util.http.ConditionalGetFilter;
+import tech.maxjung.util.http.ETags;
 import tech.maxjung.util.http.ServiceUtil;
 
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static tech.maxjung.api.BatchLimits.MAX_PRODUCT_IDS;
 
 @RestController
 public class ReviewServiceImpl implements ReviewService {
 
 	private static final Logger LOG = LoggerFactory.getLogger(ReviewServiceImpl.class);
 
+	private static final int MAX_PAGE_SIZE = 100;
+
+	private static final ContextSnapshotFactory CONTEXT_SNAPSHOTS = ContextSnapshotFactory.builder().build();
+
 	private final ReviewRepository repository;
 
 	private final ReviewMapper mapper;
 
 	private final ServiceUtil serviceUtil;
 
-	public ReviewServiceImpl(ReviewRepository repository, ReviewMapper mapper, ServiceUtil serviceUtil) {
+	private final Scheduler jdbcScheduler;
+
+	private final int fetchSize;
+
+	private final ProductIdCache<CachedReviews> cache;
+
+	private final int maxCachedPerProduct;
+
+	public ReviewServiceImpl(
+		@Qualifier("jdbcScheduler") Scheduler jdbcScheduler,
+		@Value("${app.review.fetch-size}") int fetchSize,
+		ReviewRepository repository,
+		ReviewMapper mapper,
+		ServiceUtil serviceUtil,
+		ReviewCacheProperties cacheProperties,
+		ObjectProvider<MeterRegistry> meterRegistry
+	) {
+		this.jdbcScheduler = jdbcScheduler;
+		this.fetchSize = fetchSize;
 		this.repository = repository;
 		this.mapper = mapper;
 		this.serviceUtil = serviceUtil;
+		this.maxCachedPerProduct = cacheProperties.maxEntriesPerProduct();
+		this.cache = new ProductIdCache<>("reviews", cacheProperties.enabled(), cacheProperties.maximumSize(),
+			cacheProperties.timeToLive(), CachedReviews::sizeEstimate, meterRegistry);
+	}
+
+	// reviews ordered by reviewId, with the tags of their entities' ids and versions for the ETags
+	private record ReviewChunk(List<Review> reviews, long[] tags) {}
+
+	/* All reviews of a product, or none if the product has more than max-entries-per-product.
+	   Then complete is false, and they are read from MySQL chunk by chunk as before. */
+	private record CachedReviews(ReviewChunk chunk, boolean complete) {
+
+		// the serviceAddress is shared by all reviews, so it isn't counted
+		int sizeEstimate() {
+			return SizeEstimates.object(2) + SizeEstimates.object(2) + 16 + chunk.tags().length * Long.BYTES
+				+ SizeEstimates.list(chunk.reviews(), review -> SizeEstimates.object(6) + SizeEstimates.string(review.author())
+					+ SizeEstimates.string(review.subject()) + SizeEstimates.string(review.content()));
+		}
+	}
+
+	/* On a miss, max-entries-per-product + 1 reviews are read. If the product has more, only that verdict is cached,
+	   and the reviews already read are handed to head, so the request that read them continues after them instead of
+	   reading them again. */
+	private Mono<CachedReviews> cachedReviews(int productId, String serviceAddress, AtomicReference<ReviewChunk> head) {
+		return cache.get(productId, id -> readReviews(id, Integer.MIN_VALUE, maxCachedPerProduct + 1, serviceAddress)
+			.map(chunk -> {
+				if (chunk.reviews().size() <= maxCachedPerProduct) {
+					return new CachedReviews(chunk, true);
+				}
+				head.set(chunk);
+				return new CachedReviews(new ReviewChunk(List.of(), new long[0]), false);
+			}));
+	}
+
+	@Override
+	public Flux<Review> getReviews(int productId) {
+		if (productId < 1) {
+			throw new InvalidInputException("Invalid productId: " + productId);
+		}
+
+		LOG.debug("Will get reviews for product with id={}", productId);
+
+		/* Served from the cache with an ETag, unless the product has more than max-entries-per-product reviews.
+		   Those are read in chunks of fetch-size rows, ordered by reviewId, each chunk continuing after the last reviewId
+		   of the previous one. The next chunk is only read when the previous one has been consumed, so no more than
+		   about two chunks are held in memory however many reviews the product has. */
+		String serviceAddress = serviceUtil.getServiceAddress();
+		AtomicReference<ReviewChunk> head = new AtomicReference<>();
+		return cachedReviews(productId, serviceAddress, head)
+			.flatMapMany(cached -> {
+				if (cached.complete()) {
+					return ConditionalGetFilter.unlessNotModified(
+						ETags.of(cached.chunk().tags(), 0, cached.chunk().tags().length), Flux.fromIterable(cached.chunk().reviews()));
+				}
+				// the head is full, so more reviews follow after it
+				Flux<ReviewChunk> chunks = head.get() == null
+					? readChunks(productId, Integer.MIN_VALUE, serviceAddress)
+					: Flux.just(head.get()).concatWith(Flux.defer(() -> readChunks(productId, lastReviewId(head.get()), serviceAddress)));
+				return chunks.flatMapIterable(ReviewChunk::reviews);
+			});
+	}
+
+	private Flux<ReviewChunk> readChunks(int productId, int afterReviewId, String serviceAddress) {
+		return readReviews(productId, afterReviewId, fetchSize, serviceAddress)
+			.expand(chunk -> chunk.reviews().size() < fetchSize
+				? Mono.empty()
+				: readReviews(productId, lastReviewId(chunk), fetchSize, serviceAddress));
+	}
+
+	private static int lastReviewId(ReviewChunk chunk) {
+		return chunk.reviews().get(chunk.reviews().size() - 1).reviewId();
+	}
+
+	private Mono<ReviewChunk> readReviews(int productId, int afterReviewId, int limit, String serviceAddress) {
+		return onJdbcScheduler(() -> {
+			List<ReviewEntity> reviewEntities = repository.findByProductIdAndReviewIdGreaterThanOrderByReviewIdAsc(
+				productId, afterReviewId, Limit.of(limit));
+			LOG.debug("/reviews read {} reviews after reviewId {}", reviewEntities.size(), afterReviewId);
+			long[] tags = reviewEntities.stream()
+				.mapToLong(entity -> ETags.tag(String.valueOf(entity.getId()), entity.getVersion()))
+				.toArray();
+			return new ReviewChunk(mapper.entitiesToApis(reviewEntities, serviceAddress), tags);
+		});
+	}
+
+	@Override
+	public Flux<Review> getReviewsOfProducts(List<Integer> productIds, int pageSize) {
+		if (productIds.isEmpty() || productIds.size() > MAX_PRODUCT_IDS) {
+			throw new InvalidInputException("Invalid number of productIds: " + productIds.size());
+		}
+		productIds.stream().filter(productId -> productId < 1).findFirst().ifPresent(productId -> {
+			throw new InvalidInputException("Invalid productId: " + productId);
+		});
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new InvalidInputException("Invalid pageSize: " + pageSize);
+		}
+
+		LOG.debug("Will get the first {} reviews for products with ids={}", pageSize, productIds);
+
+		// one more review than a page per product tells the caller that the product has more
+		String serviceAddress = serviceUtil.getServiceAddress();
+		return onJdbcScheduler(() -> {
+				List<ReviewEntity> reviewEntities = repository.findFirstOfEachProductIdIn(productIds, pageSize + 1);
+				LOG.debug("/review/batch read {} reviews", reviewEntities.size());
+				return mapper.entitiesToApis(reviewEntities, serviceAddress);
+			})
+			.flatMapMany(Flux::fromIterable);
 	}
 
 	@Override
-	public List<Review> getReviews(int productId) {
+	public Mono<ReviewPage> getReviewPage(int productId, String continuationToken, int pageSize) {
 		if (productId < 1) {
 			throw new InvalidInputException("Invalid productId: " + productId);
 		}
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new InvalidInputException("Invalid pageSize: " + pageSize);
+		}
+		int afterReviewId = continuationToken == null ? Integer.MIN_VALUE : parseContinuationToken(continuationToken);
+
+		LOG.debug("Will get a page of reviews for product with id={} after reviewId {}", productId, afterReviewId);
+
+		// reads one review more than asked for, to know if there is a next page
+		String serviceAddress = serviceUtil.getServiceAddress();
+		AtomicReference<ReviewChunk> head = new AtomicReference<>();
+		return cachedReviews(productId, serviceAddress, head)
+			.flatMap(cached -> {
+				if (cached.complete()) {
+					return page(cached.chunk(), firstAfter(cached.chunk().reviews(), afterReviewId), pageSize);
+				}
+				// a page, with the review after it, that lies within the reviews just read isn't read again
+				if (head.get() != null) {
+					int from = firstAfter(head.get().reviews(), afterReviewId);
+					if (from + pageSize < head.get().reviews().size()) {
+						return page(head.get(), from, pageSize);
+					}
+				}
+				return readReviews(productId, afterReviewId, pageSize + 1, serviceAddress).flatMap(chunk -> page(chunk, 0, pageSize));
+			});
+	}
+
+	private static int firstAfter(List<Review> reviews, int afterReviewId) {
+		int index = 0;
+		while (index < reviews.size() && reviews.get(index).reviewId() <= afterReviewId) {
+			index++;
+		}
+		return index;
+	}
 
-		List<ReviewEntity> reviewEntities = repository.findByProductId(productId);
-		List<Review> reviewApis = mapper.entitiesToApis(reviewEntities, serviceUtil.getServiceAddress());
+	// the page of up to pageSize reviews from index from, with a continuation token if there are more after it
+	private static Mono<ReviewPage> page(ReviewChunk chunk, int from, int pageSize) {
+		List<Review> reviews = chunk.reviews();
+		int to = Math.min(from + pageSize, reviews.size());
+		String nextToken = to < reviews.size() ? String.valueOf(reviews.get(to - 1).reviewId()) : null;
 
-		LOG.debug("/reviews response size: {}", reviewApis.size());
-		return reviewApis;
+		// a page that gets a successor changes, too
+		String etag = ETags.of(chunk.tags(), from, to) + (nextToken == null ? "" : "-" + nextToken);
+		return ConditionalGetFilter.unlessNotModified(etag, Mono.just(new ReviewPage(reviews.subList(from, to), nextToken)));
+	}
+
+	private static int parseContinuationToken(String continuationToken) {
+		try {
+			return Integer.parseInt(continuationToken);
+		} catch (NumberFormatException ex) {
+			throw new InvalidInputException("Invalid continuationToken: " + continuationToken);
+		}
 	}
 
 	@Override
-	public Review createReview(Review review) {
+	public Mono<Review> createReview(Review review) {
+		return onJdbcScheduler(() -> internalCreateReview(review))
+			.doFinally(signal -> cache.invalidate(review.productId()));
+	}
+
+	private Review internalCreateReview(Review review) {
 		try {
 			ReviewEntity reviewEntity = repository.save(mapper.apiToEntity(review));
 			LOG.debug("createReview: entity created for {}", getKeyString(review));
 
-			String serviceAddress = serviceUtil.getServiceAddress();
-			return mapper.entityToApi(reviewEntity, serviceAddress);
+			return mapper.entityToApi(reviewEntity, serviceUtil.getServiceAddress());
 		} catch (DataIntegrityViolationException dive) {
 			throw new InvalidInputException("Duplicate key " + getKeyString(review));
 		}
 	}
 
 	@Override
-	public void deleteReviews(int productId) {
+	public Flux<Review> createReviews(List<Review> reviews) {
+		return onJdbcScheduler(() -> internalCreateReviews(reviews))
+			.doFinally(signal -> cache.invalidateAll(reviews.stream().map(Review::productId).distinct().toList()))
+			.flatMapMany(Flux::fromIterable);
+	}
+
+	// saveAll runs in one transaction, with hibernate.jdbc.batch_size set the inserts are sent in JDBC batches
+	private List<Review> internalCreateReviews(List<Review> reviews) {
+		try {
+			List<ReviewEntity> reviewEntities = repository.saveAll(reviews.stream().map(mapper::apiToEntity).toList());
+			LOG.debug("createReviews: {} entities created", reviewEntities.size());
+
+			return mapper.entitiesToApis(reviewEntities, serviceUtil.getServiceAddress());
+		} catch (DataIntegrityViolationException dive) {
+			throw new InvalidInputException("Duplicate key in batch of " + reviews.size() + " reviews");
+		}
+	}
+
+	@Override
+	public Mono<Void> deleteReviews(int productId) {
+		return onJdbcScheduler(() -> internalDeleteReviews(productId))
+			.doFinally(signal -> cache.invalidate(productId))
+			.then();
+	}
+
+	private int internalDeleteReviews(int productId) {
 		LOG.debug("deleteReviews: tries to delete reviews for the product with productId: {}", productId);
-		repository.deleteAll(repository.findByProductId(productId));
+		int deletedReviews = repository.deleteByProductId(productId);
+		LOG.debug("deleteReviews: deleted {} reviews for the product with productId: {}", deletedReviews, productId);
+		return deletedReviews;
+	}
+
+	/* Runs a blocking repository call on the jdbcScheduler. The observation of the request is restored from the
+	   Reactor context on the JDBC thread, so the span of the repository call is a child of the request's span. */
+	private <T> Mono<T> onJdbcScheduler(Callable<T> call) {
+		return Mono.deferContextual(context -> Mono.fromCallable(() -> {
+				try (ContextSnapshot.Scope scope = CONTEXT_SNAPSHOTS.setThreadLocalsFrom(context)) {
+					return call.call();
+				}
+			}))
+			.subscribeOn(jdbcScheduler);
 	}
 
 	private static String getKeyString(Review r) {
@@ -0,0 +1,93 @@
+package tech.maxjung.microservices.core.review;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.transaction.annotation.Transactional;
+import tech.maxjung.microservices.core.review.persistence.ReviewEntity;
+
+import static org.springframework.transaction.annotation.Propagation.NOT_SUPPORTED;
+
+/**
+ * Compares the throughput of bulk review ingestion with JDBC batching turned off (batch size 1, i.e. one round trip
+ * per insert) and turned on (the configured hibernate.jdbc.batch_size).
+ * Not part of the regular build, run it with "./gradlew :services:review-service:benchmark".
+ */
+@Tag("benchmark")
+@DataJpaTest(properties = {
+  "spring.jpa.show-sql=false",
+  "logging.level.org.hibernate.SQL=INFO",
+  "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = NOT_SUPPORTED)
+class ReviewIngestionBenchmarkTests extends MySqlTestBase {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReviewIngestionBenchmarkTests.class);
+
+  private static final int REVIEWS_PER_ROUND = 5_000;
+  private static final int WARMUP_ROUNDS = 2;
+  private static final int MEASURED_ROUNDS = 5;
+  private static final int FLUSH_INTERVAL = 50;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Value("${spring.jpa.properties.hibernate.jdbc.batch_size}")
+  private int configuredBatchSize;
+
+  private int nextProductId = 1;
+
+  @Test
+  void bulkReviewIngestion() {
+    double unbatched = measureThroughput(1);
+    double batched = measureThroughput(configuredBatchSize);
+
+    LOG.info("Bulk review ingestion, {} reviews per round:", REVIEWS_PER_ROUND);
+    LOG.info("  jdbc batch size  1: {} reviews/s", String.format("%,.0f", unbatched));
+    LOG.info("  jdbc batch size {}: {} reviews/s ({}x)", configuredBatchSize,
+      String.format("%,.0f", batched), String.format("%.1f", batched / unbatched));
+  }
+
+  // best of the measured rounds, after some rounds to warm up the JIT and the connection pool
+  private double measureThroughput(int jdbcBatchSize) {
+    for (int i = 0; i < WARMUP_ROUNDS; i++) {
+      ingestReviews(jdbcBatchSize);
+    }
+    long bestNanos = Long.MAX_VALUE;
+    for (int i = 0; i < MEASURED_ROUNDS; i++) {
+      bestNanos = Math.min(bestNanos, ingestReviews(jdbcBatchSize));
+    }
+    return REVIEWS_PER_ROUND / (bestNanos / 1_000_000_000.0);
+  }
+
+  private long ingestReviews(int jdbcBatchSize) {
+    int productId = nextProductId++;
+    EntityManager entityManager = entityManagerFactory.createEntityManager();
+    try {
+      entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+
+      long start = System.nanoTime();
+      entityManager.getTransaction().begin();
+      for (int reviewId = 1; reviewId <= REVIEWS_PER_ROUND; reviewId++) {
+        entityManager.persist(new ReviewEntity(productId, reviewId, "a", "s", "c"));
+        if (reviewId % FLUSH_INTERVAL == 0) {
+          entityManager.flush();
+          entityManager.clear();
+        }
+      }
+      entityManager.getTransaction().commit();
+      return System.nanoTime() - start;
+    } finally {
+      entityManager.close();
+    }
+  }
+}
@@ -6,19 +6,31 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 import tech.maxjung.api.core.review.Review;
 import tech.maxjung.microservices.core.review.persistence.ReviewRepository;
 
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON;
 import static reactor.core.publisher.Mono.just;
 
-@SpringBootTest(webEnvironment = RANDOM_PORT)
+// a small fetch size makes the tests read reviews in several chunks, products with more than 2 reviews aren't cached
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {"app.review.fetch-size=2", "app.review.cache.max-entries-per-product=2"})
 class ReviewServiceApplicationTests extends MySqlTestBase {
 
+	private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+	private static final MediaType APPLICATION_STREAM_SMILE = MediaType.parseMediaType("application/stream+x-jackson-smile");
+
 	@Autowired
 	private WebTestClient client;
 
@@ -54,6 +66,134 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
 			.jsonPath("$[2].reviewId").isEqualTo(3);
 	}
 
+	@Test
+	void getReviewsByProductIdAsStream() {
+		int productId = 1;
+
+		postAndVerifyReview(productId, 5, HttpStatus.OK);
+		postAndVerifyReview(productId, 3, HttpStatus.OK);
+		postAndVerifyReview(productId, 1, HttpStatus.OK);
+		postAndVerifyReview(productId, 4, HttpStatus.OK);
+		postAndVerifyReview(productId, 2, HttpStatus.OK);
+
+		Flux<Review> reviews = client.get()
+			.uri("/review?productId=" + productId)
+			.accept(APPLICATION_NDJSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentTypeCompatibleWith(APPLICATION_NDJSON)
+			.returnResult(Review.class)
+			.getResponseBody();
+
+		StepVerifier.create(reviews.map(Review::reviewId))
+			.expectNext(1, 2, 3, 4, 5)
+			.verifyComplete();
+	}
+
+	@Test
+	void createAndGetReviewsAsSmile() {
+		int productId = 1;
+
+		client.post()
+			.uri("/review/batch")
+			.contentType(APPLICATION_SMILE)
+			.bodyValue(List.of(review(productId, 1), review(productId, 2), review(productId, 3)))
+			.accept(APPLICATION_SMILE)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentTypeCompatibleWith(APPLICATION_SMILE)
+			.expectBodyList(Review.class).hasSize(3);
+
+		Flux<Review> reviews = client.get()
+			.uri("/review?productId=" + productId)
+			.accept(APPLICATION_STREAM_SMILE)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentTypeCompatibleWith(APPLICATION_STREAM_SMILE)
+			.returnResult(Review.class)
+			.getResponseBody();
+
+		StepVerifier.create(reviews.map(Review::reviewId))
+			.expectNext(1, 2, 3)
+			.verifyComplete();
+	}
+
+	@Test
+	void getReviewsOfProducts() {
+		postAndVerifyReview(2, 2, HttpStatus.OK);
+		postAndVerifyReview(1, 2, HttpStatus.OK);
+		postAndVerifyReview(2, 1, HttpStatus.OK);
+		postAndVerifyReview(1, 1, HttpStatus.OK);
+		postAndVerifyReview(3, 1, HttpStatus.OK);
+
+		client.get()
+			.uri("/review/batch?productIds=1,2")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody()
+			.jsonPath("$.length()").isEqualTo(4)
+			.jsonPath("$[*].productId").isEqualTo(List.of(1, 1, 2, 2))
+			.jsonPath("$[*].reviewId").isEqualTo(List.of(1, 2, 1, 2));
+	}
+
+	@Test
+	void getReviewsOfProductsLimitsEachProductToOneMoreThanAPage() {
+		postAndVerifyReview(1, 3, HttpStatus.OK);
+		postAndVerifyReview(1, 2, HttpStatus.OK);
+		postAndVerifyReview(1, 1, HttpStatus.OK);
+		postAndVerifyReview(2, 1, HttpStatus.OK);
+
+		client.get()
+			.uri("/review/batch?productIds=1,2&pageSize=1")
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isOk()
+			.expectBody()
+			.jsonPath("$[*].productId").isEqualTo(List.of(1, 1, 2))
+			.jsonPath("$[*].reviewId").isEqualTo(List.of(1, 2, 1));
+	}
+
+	@Test
+	void getReviewsOfTooManyProducts() {
+		String productIds = IntStream.rangeClosed(1, 101).mapToObj(String::valueOf).collect(Collectors.joining(","));
+
+		client.get()
+			.uri("/review/batch?productIds=" + productIds)
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+			.expectBody()
+			.jsonPath("$.message").isEqualTo("Invalid number of productIds: 101");
+	}
+
+	@Test
+	void getReviewPagesByProductId() {
+		int productId = 1;
+
+		postAndVerifyReview(productId, 1, HttpStatus.OK);
+		postAndVerifyReview(productId, 2, HttpStatus.OK);
+		postAndVerifyReview(productId, 3, HttpStatus.OK);
+
+		getAndVerifyReviewPage("?productId=" + productId + "&pageSize=2", HttpStatus.OK)
+			.jsonPath("$.reviews.length()").isEqualTo(2)
+			.jsonPath("$.reviews[1].reviewId").isEqualTo(2)
+			.jsonPath("$.continuationToken").isEqualTo("2");
+
+		getAndVerifyReviewPage("?productId=" + productId + "&pageSize=2&continuationToken=2", HttpStatus.OK)
+			.jsonPath("$.reviews.length()").isEqualTo(1)
+			.jsonPath("$.reviews[0].reviewId").isEqualTo(3)
+			.jsonPath("$.continuationToken").isEmpty();
+	}
+
+	@Test
+	void getReviewPageInvalidContinuationToken() {
+		getAndVerifyReviewPage("?productId=1&continuationToken=no-token", HttpStatus.UNPROCESSABLE_ENTITY)
+			.jsonPath("$.path").isEqualTo("/review/page")
+			.jsonPath("$.message").isEqualTo("Invalid continuationToken: no-token");
+	}
+
 	@Test
 	void duplicateError() {
 		int productId = 1;
@@ -67,6 +207,28 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
 		assertEquals(1, repository.count());
 	}
 
+	@Test
+	void createReviewsInBatch() {
+		int productId = 1;
+
+		postAndVerifyReviews(List.of(review(productId, 1), review(productId, 2), review(productId, 3)), HttpStatus.OK)
+			.jsonPath("$.length()").isEqualTo(3)
+			.jsonPath("$[2].reviewId").isEqualTo(3);
+
+		assertEquals(3, repository.count());
+	}
+
+	@Test
+	void createReviewsInBatchIsAllOrNothing() {
+		int productId = 1;
+
+		postAndVerifyReviews(List.of(review(productId, 1), review(productId, 2), review(productId, 1)), HttpStatus.UNPROCESSABLE_ENTITY)
+			.jsonPath("$.path").isEqualTo("/review/batch")
+			.jsonPath("$.message").value(Matchers.startsWithIgnoringCase("duplicate key"));
+
+		assertEquals(0, repository.count());
+	}
+
 	@Test
 	void deleteReviews() {
 
@@ -125,8 +287,33 @@ class ReviewServiceApplicationTests extends MySqlTestBase {
 			.expectBody();
 	}
 
+	private WebTestClient.BodyContentSpec getAndVerifyReviewPage(String query, HttpStatus expectedStatus) {
+		return client.get()
+			.uri("/review/page" + query)
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isEqualTo(expectedStatus)
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody();
+	}
+
+	private WebTestClient.BodyContentSpec postAndVerifyReviews(List<Review> reviews, HttpStatus expectedStatus) {
+		return client.post()
+			.uri("/review/batch")
+			.bodyValue(reviews)
+			.accept(APPLICATION_JSON)
+			.exchange()
+			.expectStatus().isEqualTo(expectedStatus)
+			.expectHeader().contentType(APPLICATION_JSON)
+			.expectBody();
+	}
+
+	private static Review review(int productId, int reviewId) {
+		return new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId, "Content " + reviewId, "SA");
+	}
+
 	private WebTestClient.BodyContentSpec postAndVerifyReview(int productId, int reviewId, HttpStatus expectedStatus) {
-		Review review = new Review(productId, reviewId, "Author " + reviewId, "Subject " + reviewId, "Content " + reviewId, "SA");
+		Review review = review(productId, reviewId);
 		return client.post()
 			.uri("/review")
 			.body(just(review), Review.class)
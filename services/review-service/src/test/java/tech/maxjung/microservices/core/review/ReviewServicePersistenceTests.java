@@ -75,6 +75,17 @@ class ReviewServicePersistenceTests extends MySqlTestBase {
   }
 
 
+  @Test
+  void deleteByProductId() {
+    repository.save(new ReviewEntity(1, 3, "a", "s", "c"));
+    repository.save(new ReviewEntity(2, 1, "a", "s", "c"));
+
+    assertEquals(2, repository.deleteByProductId(1));
+    assertThat(repository.findByProductId(1), hasSize(0));
+    assertThat(repository.findByProductId(2), hasSize(1));
+  }
+
+
   @Test
   void getByProductId() {
     List<ReviewEntity> entityList = repository.findByProductId(savedEntity.getProductId());
@@ -0,0 +1,87 @@
+package tech.maxjung.microservices.core.review;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import tech.maxjung.api.core.review.Review;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the payload size and the serialization and deserialization CPU time of large review lists
+ * as JSON and as Smile, the binary format the composite service uses for its calls to the core services.
+ * The object mappers are built the same way as the ones of Spring's default JSON and Smile codecs.
+ * Not part of the regular build, run it with "./gradlew :services:review-service:benchmark".
+ */
+@Tag("benchmark")
+class ReviewWireFormatBenchmarkTests {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReviewWireFormatBenchmarkTests.class);
+
+  private static final int[] REVIEWS_PER_LIST = {100, 1_000, 10_000};
+  private static final int WARMUP_ROUNDS = 20;
+  private static final int MEASURED_ROUNDS = 50;
+
+  private static final TypeReference<List<Review>> REVIEW_LIST = new TypeReference<>() {};
+
+  private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+  private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.smile().build();
+
+  @Test
+  void reviewListWireFormats() throws IOException {
+    for (int reviewsPerList : REVIEWS_PER_LIST) {
+      List<Review> reviews = reviews(reviewsPerList);
+      Result json = measure(jsonMapper, reviews);
+      Result smile = measure(smileMapper, reviews);
+
+      LOG.info("Review list of {} reviews:", reviewsPerList);
+      LOG.info("  json : {}", json);
+      LOG.info("  smile: {} ({}% of the json size)", smile, String.format("%.0f", 100.0 * smile.bytes() / json.bytes()));
+    }
+  }
+
+  // best of the measured rounds, after some rounds to warm up the JIT
+  private Result measure(ObjectMapper mapper, List<Review> reviews) throws IOException {
+    byte[] payload = mapper.writeValueAsBytes(reviews);
+    long bestWrite = Long.MAX_VALUE;
+    long bestRead = Long.MAX_VALUE;
+
+    for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+      long start = System.nanoTime();
+      payload = mapper.writeValueAsBytes(reviews);
+      long written = System.nanoTime();
+      List<Review> read = mapper.readValue(payload, REVIEW_LIST);
+      long end = System.nanoTime();
+
+      if (read.size() != reviews.size()) {
+        throw new IllegalStateException("Read " + read.size() + " of " + reviews.size() + " reviews");
+      }
+      if (round >= WARMUP_ROUNDS) {
+        bestWrite = Math.min(bestWrite, written - start);
+        bestRead = Math.min(bestRead, end - written);
+      }
+    }
+    return new Result(payload.length, bestWrite, bestRead);
+  }
+
+  private static List<Review> reviews(int count) {
+    return IntStream.rangeClosed(1, count)
+      .mapToObj(reviewId -> new Review(1, reviewId, "Author " + reviewId, "Subject " + reviewId,
+        "Content of review " + reviewId + ", lorem ipsum dolor sit amet, consectetur adipiscing elit", "review:8080"))
+      .toList();
+  }
+
+  private record Result(int bytes, long writeNanos, long readNanos) {
+
+    @Override
+    public String toString() {
+      return String.format("%,10d bytes, write %,8d µs, read %,8d µs", bytes, writeNanos / 1_000, readNanos / 1_000);
+    }
+  }
+}
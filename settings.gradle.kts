@@ -5,4 +5,6 @@ include(":util")
 include(":services:product-service")
 include(":services:recommendation-service")
 include(":services:review-service")
-include(":services:product-comp-service")
\ No newline at end of file
+include(":services:product-comp-service")
+include(":benchmarks")
+include(":load-test")
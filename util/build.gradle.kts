@@ -28,6 +28,13 @@ dependencies {
     implementation(project(":api"))
 
     implementation("org.springframework.boot:spring-boot-starter-webflux")
+    implementation("io.micrometer:micrometer-core")
+    implementation("com.github.ben-manes.caffeine:caffeine")
+    implementation("io.micrometer:context-propagation")
+    implementation("io.opentelemetry:opentelemetry-sdk-trace")
+    // provided by the services that use them
+    compileOnly("org.springframework.boot:spring-boot-actuator")
+    compileOnly("org.springframework.data:spring-data-commons")
 
     testImplementation("org.springframework.boot:spring-boot-starter-test")
 }
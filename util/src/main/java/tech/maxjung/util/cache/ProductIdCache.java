@@ -0,0 +1,98 @@
+package tech.maxjung.util.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.util.unit.DataSize;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+
+/**
+ * Read-through cache of the responses of a core service, keyed by productId.
+ * <p>
+ * Bounded by the estimated size of the cached values in bytes instead of by their number, as e.g. the reviews
+ * of one product may take a hundred times the space of those of another. Beyond that, Caffeine evicts the least
+ * valuable entries (W-TinyLFU). The service invalidates the entries of the products it writes, entries are
+ * expired a fixed time after loading, which bounds how long other instances of the service serve stale values.
+ * Only values that were found are cached, errors and empty results are not.
+ * <p>
+ * Hits, misses, loads and evictions are published as the Micrometer cache.* metrics, the estimated size of the
+ * cached values as cache.weighted.size, all tagged with the cache name.
+ */
+public class ProductIdCache<V> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ProductIdCache.class);
+
+  private final String name;
+  private final boolean enabled;
+  private final AsyncCache<Integer, V> cache;
+
+  /**
+   * @param sizeEstimate the estimated size of a value in bytes, see SizeEstimates
+   */
+  public ProductIdCache(
+    String name,
+    boolean enabled,
+    DataSize maximumSize,
+    Duration timeToLive,
+    ToIntFunction<V> sizeEstimate,
+    ObjectProvider<MeterRegistry> meterRegistry
+  ) {
+    this.name = name;
+    this.enabled = enabled;
+    this.cache = Caffeine.newBuilder()
+      .maximumWeight(maximumSize.toBytes())
+      .<Integer, V>weigher((productId, value) -> sizeEstimate.applyAsInt(value))
+      .expireAfterWrite(timeToLive)
+      .recordStats()
+      .buildAsync();
+
+    meterRegistry.ifAvailable(registry -> {
+      CaffeineCacheMetrics.monitor(registry, cache, name);
+      Gauge.builder("cache.weighted.size", () -> cache.synchronous().policy().eviction()
+          .map(eviction -> eviction.weightedSize().orElse(0))
+          .orElse(0L))
+        .description("Estimated size of the cached values")
+        .baseUnit("bytes")
+        .tag("cache", name)
+        .register(registry);
+    });
+    LOG.info("Created the {} cache, enabled: {}, maximum size: {}, time to live: {}", name, enabled, maximumSize, timeToLive);
+  }
+
+  /**
+   * Returns the cached value, or loads it with the loader and caches it. Concurrent misses for the same productId
+   * share one load, it runs in the Reactor context of the request that started it.
+   */
+  public Mono<V> get(int productId, IntFunction<Mono<V>> loader) {
+    if (!enabled) {
+      return loader.apply(productId);
+    }
+
+    // the load is shared, so a cancelled subscriber must not cancel it for the others
+    return Mono.deferContextual(context -> Mono.fromFuture(
+      () -> cache.get(productId, (id, executor) -> loader.apply(id).contextWrite(context).toFuture()), true));
+  }
+
+  /**
+   * Also discards a load in progress, so a value read before a write can't be cached after it.
+   */
+  public void invalidate(int productId) {
+    LOG.debug("Invalidates the cached {} of productId: {}", name, productId);
+    cache.synchronous().invalidate(productId);
+  }
+
+  public void invalidateAll(Collection<Integer> productIds) {
+    LOG.debug("Invalidates the cached {} of productIds: {}", name, productIds);
+    cache.synchronous().invalidateAll(productIds);
+  }
+}
@@ -0,0 +1,37 @@
+package tech.maxjung.util.cache;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Rough estimates of the heap space of cached values, for the byte budget of a ProductIdCache.
+ * Assumes compressed references and Latin-1 strings, good enough to bound a cache, not to account for every byte.
+ */
+public final class SizeEstimates {
+
+  private static final int OBJECT_HEADER = 16;
+  private static final int REFERENCE = 4;
+  private static final int STRING = 24 + 16;
+
+  private SizeEstimates() {
+  }
+
+  /**
+   * @param fields the number of fields, counted as 4 bytes each, like references and ints
+   */
+  public static int object(int fields) {
+    return OBJECT_HEADER + fields * REFERENCE;
+  }
+
+  public static int string(String value) {
+    return value == null ? 0 : STRING + value.length();
+  }
+
+  public static <T> int list(List<T> values, ToIntFunction<T> elementSize) {
+    int size = OBJECT_HEADER + 16 + values.size() * REFERENCE;
+    for (T value : values) {
+      size += elementSize.applyAsInt(value);
+    }
+    return size;
+  }
+}
@@ -0,0 +1,81 @@
+package tech.maxjung.util.http;
+
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Conditional GETs with If-None-Match, for endpoints whose ETag is only known once the entities are read.
+ * <p>
+ * An endpoint passes its result through {@link #unlessNotModified(String, Mono)} together with its ETag, see ETags.
+ * The ETag is sent with the response, and if it matches the request's If-None-Match the result is dropped
+ * unserialized and the response is a 304 - Not Modified without a body. The ETag is made specific to the
+ * representation, as e.g. JSON and Smile responses of the same entities differ.
+ * <p>
+ * The filter passes the exchange down to the endpoints in the Reactor context, and drops the body that is
+ * still written for a 304, e.g. the brackets of an empty JSON array.
+ */
+@Component
+public class ConditionalGetFilter implements WebFilter {
+
+  private static final Class<ServerWebExchange> EXCHANGE = ServerWebExchange.class;
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    ServerHttpResponse response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+      @Override
+      public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        return exchange.isNotModified()
+          ? Flux.from(body).doOnNext(DataBufferUtils::release).then(setComplete())
+          : super.writeWith(body);
+      }
+
+      @Override
+      public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return exchange.isNotModified()
+          ? Flux.from(body).concatMap(chunk -> Flux.from(chunk).doOnNext(DataBufferUtils::release)).then(setComplete())
+          : super.writeAndFlushWith(body);
+      }
+    };
+
+    ServerWebExchange conditionalExchange = exchange.mutate().response(response).build();
+    return chain.filter(conditionalExchange)
+      .contextWrite(context -> context.put(EXCHANGE, conditionalExchange));
+  }
+
+  /**
+   * @param etag the ETag of the result, without the quotes
+   * @return the result, or an empty Mono if the client already has it
+   */
+  public static <T> Mono<T> unlessNotModified(String etag, Mono<T> result) {
+    return notModified(etag).flatMap(notModified -> notModified ? Mono.empty() : result);
+  }
+
+  public static <T> Flux<T> unlessNotModified(String etag, Flux<T> result) {
+    return notModified(etag).flatMapMany(notModified -> notModified ? Flux.empty() : result);
+  }
+
+  // also sets the ETag on the response, outside of a request (e.g. in a test calling the service directly) there's none
+  private static Mono<Boolean> notModified(String etag) {
+    return Mono.deferContextual(context -> Mono.just(context.<ServerWebExchange>getOrEmpty(EXCHANGE)
+      .map(exchange -> {
+        exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        return exchange.checkNotModified(etag + "-" + representation(exchange));
+      })
+      .orElse(false)));
+  }
+
+  private static String representation(ServerWebExchange exchange) {
+    String accept = exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT);
+    return Integer.toHexString(accept == null ? 0 : accept.hashCode());
+  }
+}
@@ -0,0 +1,47 @@
+package tech.maxjung.util.http;
+
+/**
+ * Strong entity tags derived from the ids and @Version fields of the entities a response is made of.
+ * <p>
+ * Every entity gets a 64 bit tag of its id and version, the ETag of a response combines the tags of its entities,
+ * in order. A changed, added, removed or recreated entity (with a new id, starting over at version 0) changes the ETag.
+ * FNV-1a, not a cryptographic hash, which is good enough to tell versions of the same resource apart.
+ */
+public final class ETags {
+
+  private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long PRIME = 0x100000001b3L;
+
+  private ETags() {
+  }
+
+  public static long tag(String id, long version) {
+    long hash = OFFSET_BASIS;
+    for (int i = 0; i < id.length(); i++) {
+      hash = (hash ^ id.charAt(i)) * PRIME;
+    }
+    return add(hash, version);
+  }
+
+  public static String of(long tag) {
+    return of(new long[]{tag}, 0, 1);
+  }
+
+  /**
+   * @return the ETag of the entities from (inclusive) to (exclusive), without the quotes
+   */
+  public static String of(long[] tags, int from, int to) {
+    long hash = add(OFFSET_BASIS, to - from);
+    for (int i = from; i < to; i++) {
+      hash = add(hash, tags[i]);
+    }
+    return Long.toHexString(hash);
+  }
+
+  private static long add(long hash, long value) {
+    for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+      hash = (hash ^ ((value >>> shift) & 0xff)) * PRIME;
+    }
+    return hash;
+  }
+}
@@ -12,6 +12,8 @@ import tech.maxjung.api.exceptions.BadRequestException;
 import tech.maxjung.api.exceptions.InvalidInputException;
 import tech.maxjung.api.exceptions.NotFoundException;
 
+import java.util.concurrent.RejectedExecutionException;
+
 import static org.springframework.http.HttpStatus.*;
 
 
@@ -47,6 +49,15 @@ class GlobalControllerExceptionHandler {
     return createHttpErrorInfo(NOT_FOUND, request, ex);
   }
 
+  // a saturated bounded scheduler, e.g. the jdbc scheduler of the review service, rejects calls: the client may retry later
+  @ResponseStatus(SERVICE_UNAVAILABLE)
+  @ExceptionHandler(RejectedExecutionException.class)
+  public @ResponseBody HttpErrorInfo handleRejectedExecutionException(
+    ServerHttpRequest request, RejectedExecutionException ex) {
+
+    return createHttpErrorInfo(SERVICE_UNAVAILABLE, request, ex);
+  }
+
   private HttpErrorInfo createHttpErrorInfo(
     HttpStatus httpStatus, ServerHttpRequest request, Exception ex) {
 
@@ -0,0 +1,95 @@
+package tech.maxjung.util.http;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.HandlerMapping;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the size of the request and response bodies of every endpoint in the distribution summaries
+ * http.server.request.size and http.server.response.size, in bytes with percentile histograms, tagged with the
+ * HTTP method and the URI pattern like http.server.requests. Streamed bodies are counted as they are read or written.
+ * The request size is only recorded if the request body was read, i.e. not for GET and DELETE requests.
+ */
+@Component
+public class PayloadSizeMetricsFilter implements WebFilter {
+
+  public static final String REQUEST_SIZE = "http.server.request.size";
+  public static final String RESPONSE_SIZE = "http.server.response.size";
+
+  private final MeterRegistry meterRegistry;
+
+  public PayloadSizeMetricsFilter(ObjectProvider<MeterRegistry> meterRegistry) {
+    this.meterRegistry = meterRegistry.getIfAvailable();
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    if (meterRegistry == null) {
+      return chain.filter(exchange);
+    }
+
+    AtomicBoolean requestBodyRead = new AtomicBoolean();
+    AtomicLong requestBytes = new AtomicLong();
+    AtomicLong responseBytes = new AtomicLong();
+
+    ServerHttpRequest request = new ServerHttpRequestDecorator(exchange.getRequest()) {
+      @Override
+      public Flux<DataBuffer> getBody() {
+        return super.getBody()
+          .doOnSubscribe(subscription -> requestBodyRead.set(true))
+          .doOnNext(buffer -> requestBytes.addAndGet(buffer.readableByteCount()));
+      }
+    };
+
+    ServerHttpResponse response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+      @Override
+      public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        return super.writeWith(Flux.from(body).doOnNext(buffer -> responseBytes.addAndGet(buffer.readableByteCount())));
+      }
+
+      @Override
+      public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+        return super.writeAndFlushWith(Flux.from(body).map(chunk ->
+          Flux.from(chunk).doOnNext(buffer -> responseBytes.addAndGet(buffer.readableByteCount()))));
+      }
+    };
+
+    return chain.filter(exchange.mutate().request(request).response(response).build())
+      .doFinally(signal -> {
+        String method = exchange.getRequest().getMethod().name();
+        PathPattern pattern = exchange.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.getPatternString() : "UNKNOWN";
+
+        if (requestBodyRead.get()) {
+          summary(REQUEST_SIZE, "Size of the request bodies", method, uri).record(requestBytes.get());
+        }
+        summary(RESPONSE_SIZE, "Size of the response bodies", method, uri).record(responseBytes.get());
+      });
+  }
+
+  private DistributionSummary summary(String name, String description, String method, String uri) {
+    return DistributionSummary.builder(name)
+      .description(description)
+      .baseUnit("bytes")
+      .tags("method", method, "uri", uri)
+      .publishPercentileHistogram()
+      .register(meterRegistry);
+  }
+}
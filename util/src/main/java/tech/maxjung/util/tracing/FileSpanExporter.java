@@ -0,0 +1,67 @@
+package tech.maxjung.util.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+
+/**
+ * Appends every finished span as one line of JSON to a file, e.g. to grep a slow trace by its traceId
+ * or to load the spans of all services into a notebook. Spans are handed over in batches by the span processor.
+ */
+public class FileSpanExporter implements SpanExporter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FileSpanExporter.class);
+
+  private final ObjectMapper mapper = new ObjectMapper();
+  private final BufferedWriter writer;
+
+  public FileSpanExporter(Path file) throws IOException {
+    if (file.toAbsolutePath().getParent() != null) {
+      Files.createDirectories(file.toAbsolutePath().getParent());
+    }
+    this.writer = Files.newBufferedWriter(file, CREATE, APPEND);
+    LOG.info("Writing spans to {}", file.toAbsolutePath());
+  }
+
+  @Override
+  public synchronized CompletableResultCode export(Collection<SpanData> spans) {
+    try {
+      for (SpanData span : spans) {
+        writer.write(mapper.writeValueAsString(SpanRecords.toRecord(span)));
+        writer.newLine();
+      }
+      writer.flush();
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException ex) {
+      LOG.warn("Failed to write {} spans: {}", spans.size(), ex.toString());
+      return CompletableResultCode.ofFailure();
+    }
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return CompletableResultCode.ofSuccess();
+  }
+
+  @Override
+  public synchronized CompletableResultCode shutdown() {
+    try {
+      writer.close();
+      return CompletableResultCode.ofSuccess();
+    } catch (IOException ex) {
+      return CompletableResultCode.ofFailure();
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package tech.maxjung.util.tracing;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent finished spans in memory, the oldest are dropped beyond maxSpans.
+ * They can be read from GET /actuator/spans, see SpansEndpoint, or directly in tests.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+  private final int maxSpans;
+  private final Deque<SpanData> spans = new ArrayDeque<>();
+
+  public InMemorySpanExporter(int maxSpans) {
+    this.maxSpans = maxSpans;
+  }
+
+  @Override
+  public synchronized CompletableResultCode export(Collection<SpanData> finishedSpans) {
+    for (SpanData span : finishedSpans) {
+      if (spans.size() == maxSpans) {
+        spans.removeFirst();
+      }
+      spans.addLast(span);
+    }
+    return CompletableResultCode.ofSuccess();
+  }
+
+  public synchronized List<SpanData> getSpans() {
+    return List.copyOf(spans);
+  }
+
+  public synchronized List<SpanData> getSpans(String traceId) {
+    return spans.stream().filter(span -> span.getTraceId().equals(traceId)).toList();
+  }
+
+  public synchronized void reset() {
+    spans.clear();
+  }
+
+  @Override
+  public CompletableResultCode flush() {
+    return CompletableResultCode.ofSuccess();
+  }
+
+  @Override
+  public CompletableResultCode shutdown() {
+    return CompletableResultCode.ofSuccess();
+  }
+}
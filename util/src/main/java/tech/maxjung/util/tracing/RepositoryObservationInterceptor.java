@@ -0,0 +1,93 @@
+package tech.maxjung.util.tracing;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.ObjectProvider;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+/**
+ * Observes every call of a repository as repository.invocation, named e.g. ProductRepository.findByProductId
+ * and tagged with the repository and the method.
+ * <p>
+ * A reactive call is observed from subscription to completion, its parent is the observation in the Reactor
+ * context, i.e. of the request. A blocking call is observed while it runs, its parent is the current observation
+ * of the calling thread, so a call on another thread must have the observation restored from the Reactor context,
+ * as ReviewServiceImpl does for the JDBC threads.
+ */
+class RepositoryObservationInterceptor implements MethodInterceptor {
+
+  static final String OBSERVATION_NAME = "repository.invocation";
+
+  private final ObjectProvider<ObservationRegistry> observationRegistry;
+  private final String repository;
+
+  RepositoryObservationInterceptor(ObjectProvider<ObservationRegistry> observationRegistry, String repository) {
+    this.observationRegistry = observationRegistry;
+    this.repository = repository;
+  }
+
+  @Override
+  public Object invoke(MethodInvocation invocation) throws Throwable {
+    ObservationRegistry registry = observationRegistry.getIfAvailable(() -> ObservationRegistry.NOOP);
+    if (registry.isNoop() || invocation.getMethod().getDeclaringClass() == Object.class) {
+      return invocation.proceed();
+    }
+
+    String method = invocation.getMethod().getName();
+    Class<?> returnType = invocation.getMethod().getReturnType();
+    if (Mono.class.isAssignableFrom(returnType)) {
+      return observe((Mono<?>) invocation.proceed(), registry, method);
+    } else if (Flux.class.isAssignableFrom(returnType)) {
+      return observe((Flux<?>) invocation.proceed(), registry, method);
+    }
+
+    // the parent is the current observation of this thread
+    Observation observation = observation(registry, method).start();
+    try (Observation.Scope scope = observation.openScope()) {
+      return invocation.proceed();
+    } catch (Throwable ex) {
+      observation.error(ex);
+      throw ex;
+    } finally {
+      observation.stop();
+    }
+  }
+
+  private <T> Mono<T> observe(Mono<T> mono, ObservationRegistry registry, String method) {
+    return Mono.deferContextual(context -> {
+      Observation observation = start(registry, method, context);
+      return mono
+        .doOnError(observation::error)
+        .doFinally(signal -> observation.stop())
+        .contextWrite(c -> c.put(ObservationThreadLocalAccessor.KEY, observation));
+    });
+  }
+
+  private <T> Flux<T> observe(Flux<T> flux, ObservationRegistry registry, String method) {
+    return Flux.deferContextual(context -> {
+      Observation observation = start(registry, method, context);
+      return flux
+        .doOnError(observation::error)
+        .doFinally(signal -> observation.stop())
+        .contextWrite(c -> c.put(ObservationThreadLocalAccessor.KEY, observation));
+    });
+  }
+
+  private Observation start(ObservationRegistry registry, String method, ContextView context) {
+    return observation(registry, method)
+      .parentObservation(context.getOrDefault(ObservationThreadLocalAccessor.KEY, null))
+      .start();
+  }
+
+  private Observation observation(ObservationRegistry registry, String method) {
+    return Observation.createNotStarted(OBSERVATION_NAME, registry)
+      .contextualName(repository + "." + method)
+      .lowCardinalityKeyValue("repository", repository)
+      .lowCardinalityKeyValue("method", method);
+  }
+}
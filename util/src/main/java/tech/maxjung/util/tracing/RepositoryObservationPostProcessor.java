@@ -0,0 +1,34 @@
+package tech.maxjung.util.tracing;
+
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds a RepositoryObservationInterceptor to every Spring Data repository, so each repository call gets a span,
+ * a child of the span of the request it is made for. Only in services with Spring Data on the classpath.
+ */
+@Component
+@ConditionalOnClass(name = "org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport")
+public class RepositoryObservationPostProcessor implements BeanPostProcessor {
+
+  private final ObjectProvider<ObservationRegistry> observationRegistry;
+
+  public RepositoryObservationPostProcessor(ObjectProvider<ObservationRegistry> observationRegistry) {
+    this.observationRegistry = observationRegistry;
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName) {
+    if (bean instanceof RepositoryFactoryBeanSupport<?, ?, ?> repositoryFactoryBean) {
+      repositoryFactoryBean.addRepositoryFactoryCustomizer(repositoryFactory ->
+        repositoryFactory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) ->
+          proxyFactory.addAdvice(new RepositoryObservationInterceptor(
+            observationRegistry, repositoryInformation.getRepositoryInterface().getSimpleName()))));
+    }
+    return bean;
+  }
+}
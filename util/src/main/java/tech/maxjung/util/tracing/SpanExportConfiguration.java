@@ -0,0 +1,37 @@
+package tech.maxjung.util.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Exports the spans of a service without a tracing backend, selected by app.tracing.exporter:
+ * 'file' appends them as JSON lines to app.tracing.file, 'in-memory' keeps the last app.tracing.in-memory.max-spans
+ * for GET /actuator/spans, 'none' drops them. Spring Boot's tracing auto-configuration hands every span to the
+ * SpanExporter beans, the trace context is propagated between the services in W3C traceparent headers.
+ */
+@Configuration(proxyBeanMethods = false)
+public class SpanExportConfiguration {
+
+  @Bean
+  @ConditionalOnProperty(name = "app.tracing.exporter", havingValue = "file")
+  public FileSpanExporter fileSpanExporter(@Value("${app.tracing.file}") String file) throws IOException {
+    return new FileSpanExporter(Path.of(file));
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "app.tracing.exporter", havingValue = "in-memory")
+  public InMemorySpanExporter inMemorySpanExporter(@Value("${app.tracing.in-memory.max-spans:10000}") int maxSpans) {
+    return new InMemorySpanExporter(maxSpans);
+  }
+
+  @Bean
+  @ConditionalOnProperty(name = "app.tracing.exporter", havingValue = "in-memory")
+  public SpansEndpoint spansEndpoint(InMemorySpanExporter inMemorySpanExporter) {
+    return new SpansEndpoint(inMemorySpanExporter);
+  }
+}
@@ -0,0 +1,40 @@
+package tech.maxjung.util.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.sdk.trace.data.SpanData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The plain, JSON friendly form of a finished span, as written by FileSpanExporter and returned by SpansEndpoint.
+ */
+final class SpanRecords {
+
+  private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+  private SpanRecords() {
+  }
+
+  static Map<String, Object> toRecord(SpanData span) {
+    Map<String, Object> record = new LinkedHashMap<>();
+    record.put("traceId", span.getTraceId());
+    record.put("spanId", span.getSpanId());
+    SpanContext parent = span.getParentSpanContext();
+    record.put("parentSpanId", parent.isValid() ? parent.getSpanId() : null);
+    record.put("service", span.getResource().getAttribute(SERVICE_NAME));
+    record.put("name", span.getName());
+    record.put("kind", span.getKind().name());
+    record.put("startEpochMicros", TimeUnit.NANOSECONDS.toMicros(span.getStartEpochNanos()));
+    record.put("durationMicros", TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()));
+    record.put("status", span.getStatus().getStatusCode().name());
+
+    Map<String, String> attributes = new TreeMap<>();
+    span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), String.valueOf(value)));
+    record.put("attributes", attributes);
+    return record;
+  }
+}
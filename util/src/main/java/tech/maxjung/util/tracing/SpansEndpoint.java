@@ -0,0 +1,29 @@
+package tech.maxjung.util.tracing;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GET /actuator/spans returns the spans kept by the InMemorySpanExporter, oldest first,
+ * GET /actuator/spans?traceId=... only those of one trace.
+ */
+@Endpoint(id = "spans")
+public class SpansEndpoint {
+
+  private final InMemorySpanExporter exporter;
+
+  public SpansEndpoint(InMemorySpanExporter exporter) {
+    this.exporter = exporter;
+  }
+
+  @ReadOperation
+  public List<Map<String, Object>> spans(@Nullable String traceId) {
+    return (traceId == null ? exporter.getSpans() : exporter.getSpans(traceId)).stream()
+      .map(SpanRecords::toRecord)
+      .toList();
+  }
+}